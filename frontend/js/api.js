@@ -13,12 +13,123 @@ function getAuthCredentials() {
     return localStorage.getItem('authCredentials');
 }
 
+/**
+ * Obtém o token de sessão emitido em /auth/login, se ainda não expirou
+ * @returns {string|null} Token ou null
+ */
+function getAuthToken() {
+    const token = localStorage.getItem('authToken');
+    const expiresAt = Number(localStorage.getItem('authTokenExpiresAt') || 0);
+    if (!token || expiresAt * 1000 <= Date.now()) {
+        return null;
+    }
+    return token;
+}
+
+/**
+ * Monta o header Authorization: token Bearer quando disponível, HTTP Basic como fallback
+ * @returns {string|null} Valor do header ou null
+ */
+function getAuthorizationHeader() {
+    const token = getAuthToken();
+    if (token) {
+        return `Bearer ${token}`;
+    }
+    const authCredentials = getAuthCredentials();
+    return authCredentials ? `Basic ${authCredentials}` : null;
+}
+
+/**
+ * URL completa de uma imagem da página; uploads do próprio backend pedem a variante de {size}px
+ * @param {string} url - URL salva na página (absoluta ou /uploads/...)
+ * @param {number} size - Maior lado desejado em pixels
+ * @returns {string} URL para usar no src/background
+ */
+function imageUrl(url, size) {
+    if (url.startsWith('http')) {
+        return url;
+    }
+    return url.startsWith('/uploads/') && !url.includes('?')
+        ? `${API_URL}${url}?size=${size}`
+        : `${API_URL}${url}`;
+}
+
+/**
+ * Remove todos os dados de sessão armazenados
+ */
+function clearSession() {
+    localStorage.removeItem('user');
+    localStorage.removeItem('authCredentials');
+    localStorage.removeItem('authToken');
+    localStorage.removeItem('authTokenExpiresAt');
+    clearConditionalCache();
+}
+
+const CONDITIONAL_CACHE_PREFIX = 'conditionalCache:';
+
+/**
+ * Remove as respostas guardadas por conditionalGetJson
+ */
+function clearConditionalCache() {
+    Object.keys(sessionStorage)
+        .filter(key => key.startsWith(CONDITIONAL_CACHE_PREFIX))
+        .forEach(key => sessionStorage.removeItem(key));
+}
+
+/**
+ * GET com revalidação: reenvia o ETag/Last-Modified da última resposta e,
+ * se o servidor responder 304, reaproveita o JSON guardado no sessionStorage
+ * @param {string} endpoint - Endpoint da API (ex: '/user-page/public/mc')
+ * @param {object} headers - Headers adicionais (ex: Authorization)
+ * @returns {Promise<{ok: boolean, status: number, data: any}>} Status e JSON da resposta
+ */
+async function conditionalGetJson(endpoint, headers = {}) {
+    const url = endpoint.startsWith('http') ? endpoint : `${API_URL}${endpoint}`;
+    const cacheKey = `${CONDITIONAL_CACHE_PREFIX}${url}`;
+    let cached = null;
+    try {
+        cached = JSON.parse(sessionStorage.getItem(cacheKey));
+    } catch (e) {
+        sessionStorage.removeItem(cacheKey);
+    }
+
+    const requestHeaders = { ...headers };
+    if (cached && cached.etag) {
+        requestHeaders['If-None-Match'] = cached.etag;
+    }
+    if (cached && cached.lastModified) {
+        requestHeaders['If-Modified-Since'] = cached.lastModified;
+    }
+
+    const response = await fetch(url, {
+        method: 'GET',
+        headers: requestHeaders,
+        credentials: 'include'
+    });
+
+    if (response.status === 304 && cached) {
+        return { ok: true, status: 200, data: cached.data };
+    }
+    if (!response.ok) {
+        sessionStorage.removeItem(cacheKey);
+        return { ok: false, status: response.status, data: null };
+    }
+
+    const data = await response.json();
+    const etag = response.headers.get('ETag');
+    const lastModified = response.headers.get('Last-Modified');
+    if (etag || lastModified) {
+        sessionStorage.setItem(cacheKey, JSON.stringify({ etag, lastModified, data }));
+    }
+    return { ok: true, status: response.status, data };
+}
+
 /**
  * Verifica se o usuário está autenticado
  * @returns {boolean} true se autenticado, false caso contrário
  */
 function isAuthenticated() {
-    return !!localStorage.getItem('user') && !!getAuthCredentials();
+    return !!localStorage.getItem('user') && !!getAuthorizationHeader();
 }
 
 /**
@@ -28,7 +139,7 @@ function isAuthenticated() {
  * @returns {Promise<Response>} Resposta da requisição
  */
 async function authenticatedFetch(endpoint, options = {}) {
-    const authCredentials = getAuthCredentials();
+    const authorization = getAuthorizationHeader();
     
     // Configurações padrão
     const defaultHeaders = {
@@ -36,8 +147,8 @@ async function authenticatedFetch(endpoint, options = {}) {
     };
     
     // Adiciona autenticação se disponível
-    if (authCredentials) {
-        defaultHeaders['Authorization'] = `Basic ${authCredentials}`;
+    if (authorization) {
+        defaultHeaders['Authorization'] = authorization;
     }
     
     // Remove Content-Type se for FormData (será definido automaticamente)
@@ -63,8 +174,7 @@ async function authenticatedFetch(endpoint, options = {}) {
         // Se retornar 401 (Não autorizado), redireciona para login
         if (response.status === 401) {
             console.warn('Sessão expirada ou não autorizado');
-            localStorage.removeItem('user');
-            localStorage.removeItem('authCredentials');
+            clearSession();
             window.location.href = 'index.html';
             throw new Error('Não autorizado');
         }
@@ -127,6 +237,44 @@ async function apiPut(endpoint, data) {
     return response;
 }
 
+/**
+ * Requisição PATCH autenticada (JSON Merge Patch: apenas os campos alterados)
+ * @param {string} endpoint - Endpoint da API
+ * @param {object} patch - Campos alterados; null limpa o campo
+ * @returns {Promise<Response>} Resposta da requisição
+ */
+async function apiPatch(endpoint, patch) {
+    const response = await authenticatedFetch(endpoint, {
+        method: 'PATCH',
+        headers: {
+            'Content-Type': 'application/merge-patch+json'
+        },
+        body: JSON.stringify(patch)
+    });
+    
+    return response;
+}
+
+/**
+ * Monta um JSON Merge Patch com os campos de desired que diferem de current
+ * (string vazia é tratada como null)
+ * @param {object|null} current - Estado conhecido
+ * @param {object} desired - Estado desejado
+ * @returns {object} Patch; vazio quando nada mudou
+ */
+function buildMergePatch(current, desired) {
+    const normalize = value => (value === '' || value === undefined ? null : value);
+    const patch = {};
+    Object.keys(desired).forEach(key => {
+        const before = normalize(current ? current[key] : null);
+        const after = normalize(desired[key]);
+        if (JSON.stringify(before) !== JSON.stringify(after)) {
+            patch[key] = after;
+        }
+    });
+    return patch;
+}
+
 /**
  * Requisição DELETE autenticada
  * @param {string} endpoint - Endpoint da API
@@ -88,10 +88,12 @@ document.getElementById('loginForm').addEventListener('submit', async (e) => {
         if (response.ok) {
             const data = await response.json();
             // Salva os dados do usuário
-            localStorage.setItem('user', JSON.stringify(data));
-            // Salva as credenciais para autenticação
-            const credentials = btoa(`${email}:${password}`);
-            localStorage.setItem('authCredentials', credentials);
+            const { token, expiresAt, ...user } = data;
+            localStorage.setItem('user', JSON.stringify(user));
+            // Salva o token de sessão; a senha não fica mais armazenada
+            localStorage.setItem('authToken', token);
+            localStorage.setItem('authTokenExpiresAt', String(expiresAt));
+            localStorage.removeItem('authCredentials');
             window.location.href = 'dashboard.html';
         } else {
             const data = await response.json().catch(() => ({ message: 'Erro ao fazer login' }));
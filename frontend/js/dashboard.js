@@ -1,15 +1,13 @@
 // API_URL já está definido em api.js
 let currentUser = null;
 let userPage = null;
-let authCredentials = null;
 
-// Verifica se está autenticado
-if (!localStorage.getItem('user') || !localStorage.getItem('authCredentials')) {
+// Verifica se está autenticado (token de sessão ou credenciais Basic)
+if (!isAuthenticated()) {
     window.location.href = 'index.html';
 }
 
 currentUser = JSON.parse(localStorage.getItem('user'));
-authCredentials = localStorage.getItem('authCredentials');
 
 // Inicialização
 document.addEventListener('DOMContentLoaded', () => {
@@ -45,6 +43,28 @@ function setupEventListeners() {
     // Adicionar música
     document.getElementById('add-music-url').addEventListener('click', addMusicUrlInput);
 
+    // Upload de faixa de áudio
+    document.getElementById('musicFile').addEventListener('change', async (e) => {
+        const file = e.target.files[0];
+        if (!file) {
+            return;
+        }
+        const status = document.getElementById('music-upload-status');
+        e.target.disabled = true;
+        try {
+            const url = await uploadAudio(file, (sent, total) => {
+                status.textContent = `Enviando ${file.name}: ${Math.round(sent * 100 / total)}%`;
+            });
+            addMusicUrlInput(url);
+            status.textContent = `${file.name} enviado. Salve a página para publicar a faixa.`;
+        } catch (error) {
+            status.textContent = `${error.message}. Selecione o arquivo de novo para continuar de onde parou.`;
+        } finally {
+            e.target.disabled = false;
+            e.target.value = '';
+        }
+    });
+
     // Preview de imagens
     document.getElementById('profileImage').addEventListener('change', (e) => {
         previewImage(e.target, 'profileImagePreview');
@@ -61,20 +81,62 @@ function setupEventListeners() {
     });
 }
 
+// Upload direto para o armazenamento (S3): o servidor só assina o PUT e valida o arquivo no fim.
+// Retorna null quando o servidor guarda os uploads localmente (404), para cair no upload pela API
+async function uploadImageDirect(file) {
+    const sha256 = await sha256Hex(await file.arrayBuffer());
+
+    const prepare = await authenticatedFetch('/api/upload/image/direct', {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify({ sha256, size: file.size, contentType: file.type })
+    });
+    if (prepare.status === 404) {
+        return null;
+    }
+    if (!prepare.ok) {
+        const error = await prepare.json().catch(() => ({}));
+        throw new Error(error.message || 'Erro ao fazer upload da imagem');
+    }
+    const upload = await prepare.json();
+
+    // Content-Length é definido pelo navegador a partir do corpo
+    const headers = Object.fromEntries(Object.entries(upload.headers)
+        .filter(([name]) => name.toLowerCase() !== 'content-length'));
+    const put = await fetch(upload.uploadUrl, { method: upload.method, headers, body: file });
+    if (!put.ok) {
+        throw new Error('Erro ao enviar a imagem para o armazenamento');
+    }
+
+    const complete = await authenticatedFetch(`/api/upload/image/direct/${encodeURIComponent(upload.filename)}/complete`, {
+        method: 'POST'
+    });
+    const data = await complete.json().catch(() => ({}));
+    if (!complete.ok) {
+        throw new Error(data.message || 'Erro ao fazer upload da imagem');
+    }
+    return `${API_URL}${data.url}`;
+}
+
 // Upload de imagem
 async function uploadImage(file, type) {
-    const formData = new FormData();
-    formData.append('file', file);
-    formData.append('type', type);
-
     try {
-        const response = await fetch(`${API_URL}/api/upload/image`, {
+        if (window.crypto && crypto.subtle) {
+            const directUrl = await uploadImageDirect(file);
+            if (directUrl) {
+                return directUrl;
+            }
+        }
+
+        // Arquivo como corpo da requisição (sem multipart): o servidor grava direto, numa única leitura
+        const response = await fetch(`${API_URL}/api/upload/image?type=${encodeURIComponent(type)}`, {
             method: 'POST',
             headers: {
-                'Authorization': `Basic ${authCredentials}`
+                'Authorization': getAuthorizationHeader(),
+                'Content-Type': file.type || 'application/octet-stream'
             },
             credentials: 'include',
-            body: formData
+            body: file
         });
 
         if (response.ok) {
@@ -96,6 +158,80 @@ async function uploadImage(file, type) {
     }
 }
 
+async function sha256Hex(data) {
+    const digest = await crypto.subtle.digest('SHA-256', data);
+    return Array.from(new Uint8Array(digest), b => b.toString(16).padStart(2, '0')).join('');
+}
+
+// Upload de áudio em partes, cada uma com o seu SHA-256. A sessão fica salva no navegador: se a conexão
+// cair, selecionar o mesmo arquivo de novo pergunta ao servidor quais partes já chegaram e envia só as outras
+async function uploadAudio(file, onProgress) {
+    const sessionKey = `audio-upload:${file.name}:${file.size}:${file.lastModified}`;
+    let session = null;
+
+    const savedId = localStorage.getItem(sessionKey);
+    if (savedId) {
+        const resumed = await authenticatedFetch(`/api/upload/audio/${encodeURIComponent(savedId)}`);
+        if (resumed.ok) {
+            session = await resumed.json();
+        } else {
+            localStorage.removeItem(sessionKey);
+        }
+    }
+    if (!session) {
+        const start = await authenticatedFetch('/api/upload/audio', {
+            method: 'POST',
+            body: JSON.stringify({ size: file.size })
+        });
+        session = await start.json().catch(() => ({}));
+        if (!start.ok) {
+            throw new Error(session.message || 'Erro ao iniciar o upload do áudio');
+        }
+        localStorage.setItem(sessionKey, session.uploadId);
+    }
+
+    const received = new Set(session.received);
+    let sent = received.size;
+    onProgress(sent, session.chunkCount);
+    for (let index = 0; index < session.chunkCount; index++) {
+        if (received.has(index)) {
+            continue;
+        }
+        const chunk = file.slice(index * session.chunkSize, Math.min(file.size, (index + 1) * session.chunkSize));
+        const checksum = await sha256Hex(await chunk.arrayBuffer());
+        let response;
+        for (let attempt = 0; ; attempt++) {
+            response = await authenticatedFetch(`/api/upload/audio/${session.uploadId}/chunks/${index}`, {
+                method: 'PUT',
+                headers: { 'Content-Type': 'application/octet-stream', 'X-Chunk-SHA256': checksum },
+                body: chunk
+            });
+            // Servidor com muitos uploads (429/503): espera o Retry-After e tenta a mesma parte de novo
+            if ((response.status !== 429 && response.status !== 503) || attempt >= 5) {
+                break;
+            }
+            const retryAfter = Number(response.headers.get('Retry-After')) || 2;
+            await new Promise(resolve => setTimeout(resolve, retryAfter * 1000));
+        }
+        if (!response.ok) {
+            const error = await response.json().catch(() => ({}));
+            throw new Error(error.message || 'Erro ao enviar parte do áudio');
+        }
+        onProgress(++sent, session.chunkCount);
+    }
+
+    const complete = await authenticatedFetch(`/api/upload/audio/${session.uploadId}/complete`, { method: 'POST' });
+    const data = await complete.json().catch(() => ({}));
+    // Conteúdo recusado apaga a sessão no servidor; incompleto (409) ainda pode ser retomado
+    if (complete.ok || complete.status === 400) {
+        localStorage.removeItem(sessionKey);
+    }
+    if (!complete.ok) {
+        throw new Error(data.message || 'Erro ao concluir o upload do áudio');
+    }
+    return `${API_URL}${data.url}`;
+}
+
 // Alternar entre abas
 function switchTab(tabId) {
     // Remover active de todos
@@ -122,15 +258,13 @@ function loadUserInfo() {
 // Carregar página do usuário
 async function loadUserPage() {
     try {
-        const response = await fetch(`${API_URL}/user-page/me`, {
-            headers: {
-                'Authorization': `Basic ${authCredentials}`
-            },
-            credentials: 'include'
+        // Envia If-None-Match: sem alterações o servidor responde 304 e o JSON guardado é reaproveitado
+        const response = await conditionalGetJson('/user-page/me', {
+            'Authorization': getAuthorizationHeader()
         });
 
         if (response.ok) {
-            userPage = await response.json();
+            userPage = response.data;
             // Verifica se a página tem conteúdo
             if (userPage && (userPage.biography || userPage.profileImageUrl || userPage.backgroundImageUrl || userPage.musicUrls || (userPage.musicUrlsList && userPage.musicUrlsList.length > 0))) {
                 displayUserPage();
@@ -142,7 +276,7 @@ async function loadUserPage() {
             console.warn('Acesso negado: verifique suas permissões ou autenticação.');
             displayNoPage();
         } else {
-            console.error('Erro ao carregar página:', response.statusText);
+            console.error('Erro ao carregar página:', response.status);
             displayNoPage();
         }
     } catch (error) {
@@ -196,15 +330,11 @@ function displayUserPage() {
 
     // Garantir que URLs de imagem estejam completas
     const backgroundImageUrl = userPage.backgroundImageUrl 
-        ? (userPage.backgroundImageUrl.startsWith('http') 
-            ? userPage.backgroundImageUrl 
-            : `${API_URL}${userPage.backgroundImageUrl}`)
+        ? imageUrl(userPage.backgroundImageUrl, 1024)
         : '';
     
     const profileImageUrl = userPage.profileImageUrl 
-        ? (userPage.profileImageUrl.startsWith('http') 
-            ? userPage.profileImageUrl 
-            : `${API_URL}${userPage.profileImageUrl}`)
+        ? imageUrl(userPage.profileImageUrl, 256)
         : 'https://placehold.co/120';
 
     document.getElementById('user-page-preview').innerHTML = `
@@ -226,7 +356,10 @@ function displayUserPage() {
     const publicProfileLink = document.getElementById('public-profile-link');
     if (viewPublicProfile && publicProfileLink) {
         viewPublicProfile.style.display = 'block';
-        publicProfileLink.href = `profile.html?username=${currentUser.username}`;
+        // Perfil pré-renderizado pelo backend; usernames que não são nomes de arquivo seguros ficam no profile.html
+        publicProfileLink.href = /^[A-Za-z0-9_-][A-Za-z0-9._-]*$/.test(currentUser.username)
+            ? `${API_URL}/p/${currentUser.username}.html`
+            : `profile.html?username=${encodeURIComponent(currentUser.username)}`;
     }
 }
 
@@ -275,10 +408,10 @@ function populateEditForm() {
 }
 
 // Mostrar imagem existente
-function showExistingImage(previewId, imageUrl, type) {
+function showExistingImage(previewId, url, type) {
     const preview = document.getElementById(previewId);
     // Garantir que a URL esteja completa
-    const fullImageUrl = imageUrl.startsWith('http') ? imageUrl : `${API_URL}${imageUrl}`;
+    const fullImageUrl = imageUrl(url, 256);
     preview.innerHTML = `
         <img src="${fullImageUrl}" alt="Preview" onerror="this.src='https://placehold.co/300x200?text=Erro+ao+carregar'">
         <button type="button" class="remove-image" onclick="removeExistingImage('${previewId}', '${type}')">×</button>
@@ -426,24 +559,33 @@ async function savePage(e) {
 
         messageDiv.textContent = 'Salvando página...';
 
-        const endpoint = userPage && (userPage.biography || userPage.profileImageUrl || userPage.backgroundImageUrl || userPage.musicUrls) 
-            ? '/user-page/update' 
-            : '/user-page/create';
-        const method = endpoint.includes('update') ? 'PUT' : 'POST';
-        
-        const response = await fetch(`${API_URL}${endpoint}`, {
-            method: method,
-            headers: {
-                'Content-Type': 'application/json',
-                'Authorization': `Basic ${authCredentials}`
-            },
-            credentials: 'include',
-            body: JSON.stringify(pageData)
-        });
+        const pageExists = userPage && (userPage.biography || userPage.profileImageUrl || userPage.backgroundImageUrl
+            || (userPage.musicUrlsList && userPage.musicUrlsList.length > 0));
+
+        let response;
+        if (pageExists) {
+            // Envia só os campos alterados; sem alterações nenhuma requisição é feita
+            const patch = buildMergePatch(userPage, pageData);
+            if (Object.keys(patch).length === 0) {
+                messageDiv.textContent = 'Nenhuma alteração para salvar.';
+                messageDiv.className = 'form-message success';
+                return;
+            }
+            response = await apiPatch('/user-page/me', patch);
+        } else {
+            response = await fetch(`${API_URL}/user-page/create`, {
+                method: 'POST',
+                headers: {
+                    'Content-Type': 'application/json',
+                    'Authorization': getAuthorizationHeader()
+                },
+                credentials: 'include',
+                body: JSON.stringify(pageData)
+            });
+        }
 
         if (response.ok) {
-            const data = await response.json();
-            messageDiv.textContent = endpoint.includes('update') ? 'Página atualizada com sucesso!' : 'Página criada com sucesso!';
+            messageDiv.textContent = pageExists ? 'Página atualizada com sucesso!' : 'Página criada com sucesso!';
             messageDiv.className = 'form-message success';
             
             // Limpar inputs de arquivo
@@ -482,7 +624,7 @@ async function deletePage() {
         const response = await fetch(`${API_URL}/user-page/delete`, {
             method: 'DELETE',
             headers: {
-                'Authorization': `Basic ${authCredentials}`
+                'Authorization': getAuthorizationHeader()
             },
             credentials: 'include'
         });
@@ -519,8 +661,7 @@ async function deletePage() {
 // Logout
 function logout() {
     if (confirm('Deseja realmente sair?')) {
-        localStorage.removeItem('user');
-        localStorage.removeItem('authCredentials');
+        clearSession();
         window.location.href = 'index.html';
     }
 }
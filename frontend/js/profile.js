@@ -1,5 +1,4 @@
-// Profile Page Script
-const API_URL = 'http://localhost:8080';
+// Profile Page Script (API_URL e conditionalGetJson vêm de api.js)
 
 // Get username from URL parameter
 const urlParams = new URLSearchParams(window.location.search);
@@ -34,12 +33,7 @@ async function loadProfile() {
         profileContentEl.style.display = 'none';
         notFoundEl.style.display = 'none';
 
-        const response = await fetch(`${API_URL}/user-page/public/${username}`, {
-            method: 'GET',
-            headers: {
-                'Content-Type': 'application/json'
-            }
-        });
+        const response = await conditionalGetJson(`/user-page/public/${encodeURIComponent(username)}`);
 
         if (response.status === 404) {
             showNotFound();
@@ -50,8 +44,7 @@ async function loadProfile() {
             throw new Error('Erro ao carregar perfil');
         }
 
-        const data = await response.json();
-        displayProfile(data);
+        displayProfile(response.data);
 
     } catch (error) {
         console.error('Erro ao carregar perfil:', error);
@@ -65,9 +58,7 @@ async function loadProfile() {
 function displayProfile(data) {
     // Set background image
     if (data.backgroundImageUrl) {
-        const backgroundUrl = data.backgroundImageUrl.startsWith('http') 
-            ? data.backgroundImageUrl 
-            : `${API_URL}${data.backgroundImageUrl}`;
+        const backgroundUrl = imageUrl(data.backgroundImageUrl, 1024);
         backgroundImageEl.style.backgroundImage = `url('${backgroundUrl}')`;
     } else {
         backgroundImageEl.style.background = DEFAULT_BACKGROUND;
@@ -75,9 +66,7 @@ function displayProfile(data) {
 
     // Set profile avatar
     if (data.profileImageUrl) {
-        const avatarUrl = data.profileImageUrl.startsWith('http') 
-            ? data.profileImageUrl 
-            : `${API_URL}${data.profileImageUrl}`;
+        const avatarUrl = imageUrl(data.profileImageUrl, 256);
         profileAvatarEl.src = avatarUrl;
     } else {
         profileAvatarEl.src = DEFAULT_AVATAR;
@@ -127,6 +116,15 @@ function displayMusicList(musicUrls) {
         
         musicInfo.appendChild(musicTitle);
         musicInfo.appendChild(musicUrl);
+
+        // Faixa enviada como arquivo: toca aqui mesmo (o servidor atende Range, então dá para pular partes)
+        if (/\/uploads\/[^/?#]+$/.test(url)) {
+            const player = document.createElement('audio');
+            player.controls = true;
+            player.preload = 'none';
+            player.src = url;
+            musicInfo.appendChild(player);
+        }
         
         const musicLink = document.createElement('a');
         musicLink.className = 'music-link';
@@ -183,6 +183,8 @@ function validateUsername(username) {
 function secureLogout() {
     localStorage.removeItem('user');
     localStorage.removeItem('authCredentials');
+    localStorage.removeItem('authToken');
+    localStorage.removeItem('authTokenExpiresAt');
     sessionStorage.clear();
 }
 
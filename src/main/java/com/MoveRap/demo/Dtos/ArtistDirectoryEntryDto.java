@@ -0,0 +1,9 @@
+package com.MoveRap.demo.Dtos;
+
+import java.time.Instant;
+
+/**
+ * Uma linha do diretório de artistas (projeção direta da consulta, sem entidades).
+ */
+public record ArtistDirectoryEntryDto(Long id, String username, String profileImageUrl, Instant updatedAt) {
+}
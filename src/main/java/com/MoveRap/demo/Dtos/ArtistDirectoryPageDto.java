@@ -0,0 +1,9 @@
+package com.MoveRap.demo.Dtos;
+
+import java.util.List;
+
+/**
+ * Uma página do diretório de artistas; nextAfterId é null na última página.
+ */
+public record ArtistDirectoryPageDto(List<ArtistDirectoryEntryDto> entries, Long nextAfterId) {
+}
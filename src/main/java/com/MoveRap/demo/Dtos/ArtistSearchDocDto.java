@@ -0,0 +1,7 @@
+package com.MoveRap.demo.Dtos;
+
+/**
+ * O que a busca de artistas indexa de cada usuário com página.
+ */
+public record ArtistSearchDocDto(Long userId, String username, String biography, String profileImageUrl) {
+}
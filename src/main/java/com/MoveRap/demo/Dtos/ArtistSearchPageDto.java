@@ -0,0 +1,12 @@
+package com.MoveRap.demo.Dtos;
+
+import java.util.List;
+
+/**
+ * Uma página da busca de artistas; nextCursor é null na última página.
+ */
+public record ArtistSearchPageDto(List<Result> results, String nextCursor) {
+
+    public record Result(String username, String biography, String profileImageUrl, double score) {
+    }
+}
@@ -0,0 +1,19 @@
+package com.MoveRap.demo.Dtos;
+
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Início de um upload de áudio em partes: só o tamanho total, para o servidor reservar o arquivo.
+ */
+public class AudioUploadDto {
+
+    @Positive(message = "O tamanho do arquivo é obrigatório")
+    private long size;
+
+    public long getSize() {
+        return size;
+    }
+    public void setSize(long size) {
+        this.size = size;
+    }
+}
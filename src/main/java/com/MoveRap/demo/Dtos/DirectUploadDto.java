@@ -0,0 +1,36 @@
+package com.MoveRap.demo.Dtos;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Pedido de upload direto para o armazenamento: o cliente calcula o SHA-256 antes de enviar.
+ */
+public class DirectUploadDto {
+
+    @NotBlank(message = "O SHA-256 do arquivo é obrigatório")
+    private String sha256;
+    @Positive(message = "O tamanho do arquivo é obrigatório")
+    private long size;
+    @NotBlank(message = "O tipo do arquivo é obrigatório")
+    private String contentType;
+
+    public String getSha256() {
+        return sha256;
+    }
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+    public long getSize() {
+        return size;
+    }
+    public void setSize(long size) {
+        this.size = size;
+    }
+    public String getContentType() {
+        return contentType;
+    }
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+}
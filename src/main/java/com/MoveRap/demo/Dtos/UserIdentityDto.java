@@ -0,0 +1,15 @@
+package com.MoveRap.demo.Dtos;
+
+/**
+ * Projeção de uso interno com os dados necessários para autenticar um usuário.
+ * Nunca deve ser devolvida em respostas da API (contém o hash da senha).
+ */
+public record UserIdentityDto(
+    Long id,
+    String username,
+    String email,
+    String passwordHash,
+    long credentialsEpoch
+) {
+    
+}
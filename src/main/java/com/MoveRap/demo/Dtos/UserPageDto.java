@@ -19,7 +19,7 @@ public class UserPageDto {
     private String musicUrls;
     
     // Novo campo para lista de músicas
-    private List<String> musicUrlsList;
+    private List<@Size(max = 2048, message = "A URL da faixa não pode ter mais de 2048 caracteres") String> musicUrlsList;
     
     public UserPageDto() {
         this.musicUrlsList = new ArrayList<>();
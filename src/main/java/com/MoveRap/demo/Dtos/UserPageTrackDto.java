@@ -0,0 +1,18 @@
+package com.MoveRap.demo.Dtos;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public class UserPageTrackDto {
+
+    @NotBlank(message = "A URL da faixa é obrigatória")
+    @Size(max = 2048, message = "A URL da faixa não pode ter mais de 2048 caracteres")
+    private String url;
+
+    public String getUrl() {
+        return url;
+    }
+    public void setUrl(String url) {
+        this.url = url;
+    }
+}
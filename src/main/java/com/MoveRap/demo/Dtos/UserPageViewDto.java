@@ -0,0 +1,91 @@
+package com.MoveRap.demo.Dtos;
+
+import com.MoveRap.demo.model.UserPage;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Tudo o que as leituras de página precisam (página + username do dono + faixas), carregado
+ * em uma única consulta com join, sem instanciar entidades.
+ */
+public record UserPageViewDto(Long id,
+                              long version,
+                              Instant updatedAt,
+                              String username,
+                              String biography,
+                              String profileImageUrl,
+                              String backgroundImageUrl,
+                              List<String> musicUrlsList) {
+
+    /**
+     * Monta a visão a partir de uma entidade já carregada (ex.: logo após salvar).
+     */
+    public static UserPageViewDto of(UserPage page, String username, List<String> musicUrlsList) {
+        return new UserPageViewDto(page.getId(), page.getVersion(), page.getUpdatedAt(), username,
+                page.getBiography(), page.getProfileImageUrl(), page.getBackgroundImageUrl(), musicUrlsList);
+    }
+
+    /**
+     * Agrupa as linhas do join (já ordenadas por posição) em uma visão.
+     * Páginas ainda não migradas caem na coluna legada separada por vírgula.
+     */
+    public static Optional<UserPageViewDto> fromRows(List<UserPageViewRowDto> rows) {
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        UserPageViewRowDto first = rows.get(0);
+        List<String> tracks = new ArrayList<>(rows.size());
+        for (UserPageViewRowDto row : rows) {
+            if (row.trackUrl() != null) {
+                tracks.add(row.trackUrl());
+            }
+        }
+        if (tracks.isEmpty() && first.legacyMusicUrls() != null && !first.legacyMusicUrls().isEmpty()) {
+            tracks.addAll(Arrays.asList(first.legacyMusicUrls().split(",")));
+        }
+        return Optional.of(new UserPageViewDto(first.id(), first.version(), first.updatedAt(), first.username(),
+                first.biography(), first.profileImageUrl(), first.backgroundImageUrl(), tracks));
+    }
+
+    /**
+     * Agrupa as linhas de várias páginas (ordenadas por página e depois por posição), uma visão por página.
+     */
+    public static List<UserPageViewDto> groupRows(List<UserPageViewRowDto> rows) {
+        List<UserPageViewDto> views = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= rows.size(); i++) {
+            if (i == rows.size() || !rows.get(i).id().equals(rows.get(start).id())) {
+                fromRows(rows.subList(start, i)).ifPresent(views::add);
+                start = i;
+            }
+        }
+        return views;
+    }
+
+    /**
+     * ETag forte no formato {@code "<prefixo>-<id>-<versão>"}; o id distingue páginas recriadas.
+     */
+    public String etag(String prefix) {
+        return "\"" + prefix + "-" + id + "-" + version + "\"";
+    }
+
+    /**
+     * @return epoch em milissegundos, ou -1 para linhas antigas sem updated_at
+     */
+    public long lastModified() {
+        return updatedAt != null ? updatedAt.toEpochMilli() : -1;
+    }
+
+    public UserPageDto toUserPageDto() {
+        UserPageDto dto = new UserPageDto();
+        dto.setBiography(biography);
+        dto.setProfileImageUrl(profileImageUrl);
+        dto.setBackgroundImageUrl(backgroundImageUrl);
+        dto.setMusicUrlsList(musicUrlsList);
+        return dto;
+    }
+}
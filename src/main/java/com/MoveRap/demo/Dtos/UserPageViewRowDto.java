@@ -0,0 +1,18 @@
+package com.MoveRap.demo.Dtos;
+
+import java.time.Instant;
+
+/**
+ * Uma linha do join página + usuário + faixas (trackUrl nulo quando a página não tem faixas).
+ * Agrupada em {@link UserPageViewDto} por {@link UserPageViewDto#fromRows}.
+ */
+public record UserPageViewRowDto(Long id,
+                                 long version,
+                                 Instant updatedAt,
+                                 String username,
+                                 String biography,
+                                 String profileImageUrl,
+                                 String backgroundImageUrl,
+                                 String legacyMusicUrls,
+                                 String trackUrl) {
+}
@@ -0,0 +1,27 @@
+package com.MoveRap.demo.Dtos;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public class UserSenhaDto {
+
+    @NotBlank(message = "A senha atual é obrigatória")
+    private String currentPassword;
+
+    @NotBlank(message = "A nova senha é obrigatória")
+    @Size(min = 8, message = "A senha deve ter no mínimo 8 caracteres")
+    private String newPassword;
+
+    public String getCurrentPassword() {
+        return currentPassword;
+    }
+    public void setCurrentPassword(String currentPassword) {
+        this.currentPassword = currentPassword;
+    }
+    public String getNewPassword() {
+        return newPassword;
+    }
+    public void setNewPassword(String newPassword) {
+        this.newPassword = newPassword;
+    }
+}
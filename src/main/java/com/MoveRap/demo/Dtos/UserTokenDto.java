@@ -0,0 +1,11 @@
+package com.MoveRap.demo.Dtos;
+
+public record UserTokenDto(
+    Long id,
+    String username,
+    String email,
+    String token,
+    long expiresAt
+) {
+    
+}
@@ -0,0 +1,53 @@
+package com.MoveRap.demo.config;
+
+import com.MoveRap.demo.service.ProfileSnapshotService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Miss em /p/{username}.html, ou snapshot mais velho que o TTL: gera o snapshot na hora e resolve de
+ * novo, já com a variante .gz. Fica depois do EncodedResourceResolver e antes do PathResourceResolver.
+ */
+class ProfileSnapshotResolver extends AbstractResourceResolver {
+
+    private static final String SUFFIX = ".html";
+
+    private final ProfileSnapshotService profileSnapshotService;
+
+    ProfileSnapshotResolver(ProfileSnapshotService profileSnapshotService) {
+        this.profileSnapshotService = profileSnapshotService;
+    }
+
+    @Override
+    protected Resource resolveResourceInternal(HttpServletRequest request, String requestPath,
+                                               List<? extends Resource> locations, ResourceResolverChain chain) {
+        Resource resource = chain.resolveResource(request, requestPath, locations);
+        if (!requestPath.endsWith(SUFFIX) || (resource != null && isFresh(resource))) {
+            return resource;
+        }
+        String username = requestPath.substring(0, requestPath.length() - SUFFIX.length());
+        if (!profileSnapshotService.refresh(username)) {
+            return null;
+        }
+        return chain.resolveResource(request, requestPath, locations);
+    }
+
+    private boolean isFresh(Resource resource) {
+        try {
+            return profileSnapshotService.isFresh(resource.lastModified());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    protected String resolveUrlPathInternal(String resourceUrlPath, List<? extends Resource> locations,
+                                            ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourceUrlPath, locations);
+    }
+}
@@ -1,48 +1,95 @@
 package com.MoveRap.demo.config;
 
+import com.MoveRap.demo.Dtos.UserIdentityDto;
 import com.MoveRap.demo.repository.UserRepository;
-import com.MoveRap.demo.model.UserModel;
+import com.MoveRap.demo.service.BoundedPasswordEncoder;
+import com.MoveRap.demo.service.PasswordHashingUnavailableException;
+import com.MoveRap.demo.service.TokenService;
+import com.MoveRap.demo.service.UserIdentityCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.cors.CorsConfigurationSource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
     
+    @Autowired
+    private UserIdentityCache userIdentityCache;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private TokenService tokenService;
+
+    // BCrypt em executor próprio e limitado; custo calibrado no boot (auth.hashing.cost=0), com piso no
+    // maior custo já armazenado para que um host mais lento não gere hashes mais fracos
+    @Bean(destroyMethod = "shutdown")
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${auth.hashing.threads:0}") int threads,
+                                           @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                                           @Value("${auth.hashing.max-wait-ms:5000}") long maxWaitMillis,
+                                           @Value("${auth.hashing.cost:0}") int cost,
+                                           @Value("${auth.hashing.target-ms:250}") long targetMillis) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        int storedCost = cost > 0 ? 0 : storedBcryptCost();
+        return new BoundedPasswordEncoder(poolSize, queueCapacity, maxWaitMillis, cost, targetMillis, storedCost,
+                meterRegistry);
+    }
 
+    private int storedBcryptCost() {
+        try {
+            String stored = userRepository.findMaxBcryptCost();
+            return stored == null ? 0 : Integer.parseInt(stored);
+        } catch (RuntimeException e) {
+            // Banco ainda sem a tabela ou indisponível: calibra só pela latência
+            System.out.println("[SECURITY] Custo dos hashes armazenados indisponível: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // Rehash no login via HTTP Basic quando o custo do hash armazenado é menor que o atual
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public UserDetailsPasswordService userDetailsPasswordService() {
+        return (user, newPassword) -> {
+            UserIdentityDto identity = userIdentityCache.findByUsername(user.getUsername());
+            if (identity != null) {
+                userRepository.updatePasswordHash(identity.id(), identity.passwordHash(), newPassword);
+                userIdentityCache.invalidate(identity.username(), identity.email());
+            }
+            return User.withUserDetails(user).password(newPassword).build();
+        };
     }
     
     @Bean
     public UserDetailsService userDetailsService() {
         return username -> {
-            UserModel user = userRepository.findByEmail(username);
-            if (user == null) {
-                user = userRepository.findByUsername(username);
-            }
+            UserIdentityDto user = userIdentityCache.findByLogin(username);
             if (user == null) {
                 throw new UsernameNotFoundException("Usuário não encontrado: " + username);
             }
             return User.builder()
-                    .username(user.getUsername())
-                    .password(user.getPassword())
+                    .username(user.username())
+                    .password(user.passwordHash())
                     .roles("USER")
                     .build();
         };
@@ -55,6 +102,8 @@ public class SecurityConfig {
             // CSRF habilitado - desabilitado apenas para endpoints públicos de autenticação
             .csrf(csrf -> csrf
                 .ignoringRequestMatchers("/auth/**", "/user-page/public/**")
+                // Token Bearer não é enviado automaticamente pelo navegador, logo não há risco de CSRF
+                .ignoringRequestMatchers(TokenAuthenticationFilter::hasBearerToken)
             )
             // Headers de segurança
             .headers(headers -> headers
@@ -64,16 +113,23 @@ public class SecurityConfig {
                     .frameOptions(frame -> frame.deny())
                 )
             .authorizeHttpRequests(auth -> auth
+                    // Retomada de uma resposta assíncrona (uploads): a requisição original já foi autorizada,
+                    // mas o token não é lido de novo nesse dispatch
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                     // Permitir rotas públicas (ordem IMPORTANTE - regras mais específicas primeiro)
                     .requestMatchers("/", "/index", "/index.html").permitAll()
                     .requestMatchers("/css/**", "/scripts/**", "/static/**").permitAll()
                     .requestMatchers("/uploads/**").permitAll() // Permitir acesso às imagens
                     .requestMatchers("/favicon.ico").permitAll()
+                    .requestMatchers("/actuator/health").permitAll()
                     // Permitir endpoints de autenticação sem autenticação prévia
                     .requestMatchers("/auth/**").permitAll()
                     // User-page GET público para visualização
                     .requestMatchers(HttpMethod.GET, "/user-page").permitAll()
                     .requestMatchers(HttpMethod.GET, "/user-page/public/**").permitAll()
+                    .requestMatchers(HttpMethod.GET, "/user-page/search").permitAll()
+                    .requestMatchers(HttpMethod.GET, "/user-page/directory").permitAll()
+                    .requestMatchers(HttpMethod.GET, "/p/**").permitAll()
                     // Endpoints de API requerem autenticação
                     .requestMatchers("/user-page/me").authenticated()
                     .requestMatchers("/api/**").authenticated()
@@ -85,13 +141,30 @@ public class SecurityConfig {
                     // Qualquer outra requisição requer autenticação
                     .anyRequest().authenticated()
                 )
+            // Token assinado emitido em /auth/login; HTTP Basic continua disponível como fallback
+            .addFilterBefore(new TokenAuthenticationFilter(tokenService), BasicAuthenticationFilter.class)
             .httpBasic(httpBasic -> httpBasic
                 .realmName("MoveRap")
+                .authenticationEntryPoint(authenticationEntryPoint())
             );
 
         return http.build();
     }
 
+    private AuthenticationEntryPoint authenticationEntryPoint() {
+        BasicAuthenticationEntryPoint basicEntryPoint = new BasicAuthenticationEntryPoint();
+        basicEntryPoint.setRealmName("MoveRap");
+        return (request, response, authException) -> {
+            // Fila de hashing cheia: 503 em vez de pedir credenciais novamente
+            if (authException instanceof PasswordHashingUnavailableException) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, authException.getMessage());
+                return;
+            }
+            basicEntryPoint.commence(request, response, authException);
+        };
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -104,9 +177,15 @@ public class SecurityConfig {
         configuration.addAllowedMethod("GET");
         configuration.addAllowedMethod("POST");
         configuration.addAllowedMethod("PUT");
+        configuration.addAllowedMethod("PATCH");
         configuration.addAllowedMethod("DELETE");
         configuration.addAllowedMethod("OPTIONS");
         configuration.addAllowedHeader("*"); // Permite todos os headers
+        // Validadores lidos pelo api.js para enviar If-None-Match / If-Modified-Since
+        configuration.addExposedHeader("ETag");
+        configuration.addExposedHeader("Last-Modified");
+        // Uploads recusados pelo controle de admissão (429/503): quando tentar de novo
+        configuration.addExposedHeader("Retry-After");
         configuration.setAllowCredentials(true); // Permite credenciais
         configuration.setMaxAge(3600L); // Cache preflight por 1 hora
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -1,21 +1,28 @@
 package com.MoveRap.demo.config;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.MoveRap.demo.service.ProfileSnapshotService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
-
-import java.nio.file.Paths;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
-    @Value("${file.upload-dir:uploads}")
-    private String uploadDir;
+    @Autowired
+    private ProfileSnapshotService profileSnapshotService;
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        String uploadPath = Paths.get(uploadDir).toAbsolutePath().toUri().toString();
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations(uploadPath);
+        // Perfis públicos pré-renderizados: .html.gz para quem aceita gzip, revalidados por Last-Modified
+        registry.addResourceHandler("/p/**")
+                .addResourceLocations(profileSnapshotService.getDirectory().toUri().toString())
+                .setCacheControl(CacheControl.noCache())
+                .resourceChain(false)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new ProfileSnapshotResolver(profileSnapshotService))
+                .addResolver(new PathResourceResolver());
     }
 }
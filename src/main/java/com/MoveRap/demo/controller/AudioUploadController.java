@@ -0,0 +1,117 @@
+package com.MoveRap.demo.controller;
+
+import com.MoveRap.demo.Dtos.AudioUploadDto;
+import com.MoveRap.demo.service.AudioUploadService;
+import com.MoveRap.demo.service.UploadAdmission;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Upload retomável de faixas de áudio: o cliente inicia a sessão, envia as partes (em qualquer ordem,
+ * cada uma com o seu SHA-256) e conclui. Depois de uma queda, GET na sessão diz quais partes faltam.
+ * A faixa publicada é tocada por /uploads/{nome}, com Range.
+ */
+@RestController
+@RequestMapping("/api/upload/audio")
+public class AudioUploadController {
+
+    private static final String CHUNK_SHA256_HEADER = "X-Chunk-SHA256";
+
+    @Autowired
+    private AudioUploadService audioUploadService;
+    @Autowired
+    private UploadAdmission uploadAdmission;
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> start(
+            @Valid @RequestBody AudioUploadDto audioUploadDto,
+            Authentication authentication) {
+
+        String owner = owner(authentication);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(session(audioUploadService.create(owner, audioUploadDto.getSize())));
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<Map<String, Object>> status(
+            @PathVariable String uploadId,
+            Authentication authentication) {
+
+        return ResponseEntity.ok(session(audioUploadService.status(owner(authentication), uploadId)));
+    }
+
+    /**
+     * Corpo cru (sem multipart), gravado direto na posição da parte dentro do arquivo final, no executor
+     * do UploadAdmission (mesmos limites dos uploads de imagem).
+     */
+    @PutMapping(value = "/{uploadId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            @RequestHeader(value = CHUNK_SHA256_HEADER, required = false) String sha256,
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
+
+        String owner = owner(authentication);
+        InputStream body = request.getInputStream();
+        return uploadAdmission.submit(owner,
+                () -> audioUploadService.writeChunk(owner, uploadId, index, sha256, uploadAdmission.throttle(body)))
+                .thenApply(session -> ResponseEntity.ok(session(session)));
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<Map<String, Object>> complete(
+            @PathVariable String uploadId,
+            Authentication authentication) {
+
+        AudioUploadService.StoredAudio audio = audioUploadService.complete(owner(authentication), uploadId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("url", "/uploads/" + audio.filename());
+        response.put("filename", audio.filename());
+        response.put("size", audio.size());
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Map<String, String>> abort(
+            @PathVariable String uploadId,
+            Authentication authentication) {
+
+        audioUploadService.abort(owner(authentication), uploadId);
+
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Upload cancelado");
+        return ResponseEntity.ok(response);
+    }
+
+    private static String owner(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Não autenticado");
+        }
+        return authentication.getName();
+    }
+
+    private static Map<String, Object> session(AudioUploadService.UploadSession session) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("uploadId", session.id());
+        response.put("size", session.size());
+        response.put("chunkSize", session.chunkSize());
+        response.put("chunkCount", session.chunkCount());
+        response.put("received", session.received());
+        return response;
+    }
+}
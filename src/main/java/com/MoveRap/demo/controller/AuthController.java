@@ -3,12 +3,18 @@ package com.MoveRap.demo.controller;
 import com.MoveRap.demo.Dtos.UserCadastroDto;
 import com.MoveRap.demo.Dtos.UserDetalhamentoDto;
 import com.MoveRap.demo.Dtos.UserLoginDto;
+import com.MoveRap.demo.Dtos.UserSenhaDto;
+import com.MoveRap.demo.Dtos.UserTokenDto;
 import com.MoveRap.demo.service.AuthService;
+import com.MoveRap.demo.service.PasswordHashingUnavailableException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 class ErrorResponse {
     private String message;
@@ -35,7 +41,7 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> loginUser(@Valid @RequestBody UserLoginDto userLoginDto) {
+    public ResponseEntity<?> loginUser(@Valid @RequestBody UserLoginDto userLoginDto, HttpServletRequest request) {
         try {
             if (userLoginDto.getEmail() == null || userLoginDto.getEmail().isEmpty() ||
                 userLoginDto.getPassword() == null || userLoginDto.getPassword().isEmpty()) {
@@ -43,12 +49,15 @@ public class AuthController {
                     .body(new ErrorResponse("Email e senha são obrigatórios"));
             }
 
-            UserDetalhamentoDto userDetalhamentoDto = authService.loginUser(userLoginDto);
-            if (userDetalhamentoDto == null) {
+            UserTokenDto userTokenDto = authService.loginUser(userLoginDto, request.getRemoteAddr());
+            if (userTokenDto == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new ErrorResponse("Credenciais inválidas"));
             }
-            return ResponseEntity.ok(userDetalhamentoDto);
+            return ResponseEntity.ok(userTokenDto);
+        } catch (ResponseStatusException | PasswordHashingUnavailableException e) {
+            // Bloqueio (429) e fila de hashing cheia (503) são tratados pelo GlobalExceptionHandler
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -56,6 +65,18 @@ public class AuthController {
         }
     }
 
+    @PutMapping("/password")
+    public ResponseEntity<?> changePassword(@Valid @RequestBody UserSenhaDto userSenhaDto, Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(new ErrorResponse("Usuário não autenticado"));
+        }
+        authService.changePassword(authentication.getName(), userSenhaDto);
+        java.util.Map<String, String> response = new java.util.HashMap<>();
+        response.put("message", "Senha alterada com sucesso. Faça login novamente.");
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/me")
     public ResponseEntity<?> getCurrentUser() {
         try {
@@ -1,7 +1,14 @@
 package com.MoveRap.demo.controller;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.MoveRap.demo.Dtos.DirectUploadDto;
+import com.MoveRap.demo.service.ImageDerivativeWorker;
+import com.MoveRap.demo.service.ImageUploadService;
+import com.MoveRap.demo.service.UploadAdmission;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -9,26 +16,55 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.io.InputStream;
 
 @RestController
 @RequestMapping("/api/upload")
 public class FileUploadController {
 
-    @Value("${file.upload-dir:uploads}")
-    private String uploadDir;
-
-    private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
     private static final String[] ALLOWED_EXTENSIONS = {".jpg", ".jpeg", ".png", ".gif", ".webp"};
 
-    @PostMapping("/image")
-    public ResponseEntity<Map<String, String>> uploadImage(
+    @Autowired
+    private ImageUploadService imageUploadService;
+    @Autowired
+    private ImageDerivativeWorker imageDerivativeWorker;
+    @Autowired
+    private UploadAdmission uploadAdmission;
+
+    /**
+     * Upload com a imagem como corpo da requisição (sem multipart): o corpo é lido uma única vez,
+     * direto do socket para o arquivo, sem o spool em disco do multipart. A leitura e a gravação rodam
+     * no executor do UploadAdmission; a thread do Tomcat volta ao pool enquanto isso.
+     */
+    // Qualquer image/*: o formato vale pelo conteúdo (magic bytes), não pelo Content-Type declarado
+    @PostMapping(value = "/image", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public CompletableFuture<ResponseEntity<Map<String, String>>> uploadImageBody(
+            @RequestParam(value = "type", required = false, defaultValue = "general") String type,
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
+
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Não autenticado");
+        }
+        // Content-Length declarado já acima do limite: recusa sem ler o corpo
+        if (request.getContentLengthLong() > ImageUploadService.MAX_FILE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Arquivo muito grande. Máximo: 5MB");
+        }
+        InputStream body = request.getInputStream();
+        return uploadAdmission.submit(authentication.getName(),
+                () -> imageUploadService.store(uploadAdmission.throttle(body)))
+                .thenApply(this::uploaded);
+    }
+
+    /**
+     * Formulário multipart legado. O container já gravou a parte em disco; daqui em diante ela é lida
+     * uma única vez pelo mesmo pipeline do upload direto.
+     */
+    @PostMapping(value = "/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CompletableFuture<ResponseEntity<Map<String, String>>> uploadImage(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "type", required = false, defaultValue = "general") String type,
             Authentication authentication) {
@@ -42,7 +78,7 @@ public class FileUploadController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Arquivo vazio");
         }
 
-        if (file.getSize() > MAX_FILE_SIZE) {
+        if (file.getSize() > ImageUploadService.MAX_FILE_SIZE) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Arquivo muito grande. Máximo: 5MB");
         }
 
@@ -52,38 +88,68 @@ public class FileUploadController {
                 "Formato não permitido. Use: jpg, jpeg, png, gif ou webp");
         }
 
-        // SEGURANÇA: Validar conteúdo real do arquivo (magic bytes)
-        if (!isValidImageFile(file)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, 
-                "Arquivo inválido. O conteúdo não corresponde a uma imagem válida");
-        }
-
-        try {
-            // Criar diretório se não existir
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
+        // SEGURANÇA: o conteúdo real (magic bytes) é validado pelo ImageUploadService
+        return uploadAdmission.submit(authentication.getName(), () -> {
+            try (InputStream input = uploadAdmission.throttle(file.getInputStream())) {
+                return imageUploadService.store(input);
+            } catch (IOException e) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Erro ao salvar arquivo: " + e.getMessage());
             }
+        }).thenApply(this::uploaded);
+    }
 
-            // Gerar nome único
-            String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String filename = UUID.randomUUID().toString() + extension;
-            
-            // Salvar arquivo
-            Path filePath = uploadPath.resolve(filename);
-            Files.copy(file.getInputStream(), filePath);
+    /**
+     * Primeira etapa do upload direto (armazenamento S3): devolve a URL pré-assinada para o PUT, com os
+     * headers que o cliente deve enviar. 404 quando o armazenamento é local; o cliente usa POST /image.
+     */
+    @PostMapping(value = "/image/direct", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> prepareDirectUpload(
+            @Valid @RequestBody DirectUploadDto directUploadDto,
+            Authentication authentication) {
+
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Não autenticado");
+        }
 
-            // Retornar URL
-            Map<String, String> response = new HashMap<>();
-            response.put("url", "/uploads/" + filename);
-            response.put("filename", filename);
+        ImageUploadService.PendingUpload pending = imageUploadService.prepareDirectUpload(
+                directUploadDto.getSha256(), directUploadDto.getSize(), directUploadDto.getContentType())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload direto não disponível"));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("filename", pending.filename());
+        response.put("uploadUrl", pending.upload().url().toString());
+        response.put("method", "PUT");
+        response.put("headers", pending.upload().headers());
+        response.put("expiresAt", pending.upload().expiresAt().toString());
+        return ResponseEntity.ok(response);
+    }
 
-            return ResponseEntity.ok(response);
+    /**
+     * Segunda etapa: o cliente avisa que o PUT terminou. Os magic bytes são validados aqui, antes de o
+     * arquivo ganhar a URL final.
+     */
+    @PostMapping("/image/direct/{filename}/complete")
+    public ResponseEntity<Map<String, String>> completeDirectUpload(
+            @PathVariable String filename,
+            Authentication authentication) {
 
-        } catch (IOException e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, 
-                "Erro ao salvar arquivo: " + e.getMessage());
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Não autenticado");
         }
+        return uploaded(imageUploadService.completeDirectUpload(filename));
+    }
+
+    private ResponseEntity<Map<String, String>> uploaded(ImageUploadService.StoredImage image) {
+        // Miniaturas e tamanhos responsivos saem em segundo plano; até lá /uploads serve o original
+        imageDerivativeWorker.enqueue(image.filename());
+
+        // Retornar URL
+        Map<String, String> response = new HashMap<>();
+        response.put("url", "/uploads/" + image.filename());
+        response.put("filename", image.filename());
+
+        return ResponseEntity.ok(response);
     }
 
     private boolean isAllowedExtension(String filename) {
@@ -96,52 +162,6 @@ public class FileUploadController {
         return false;
     }
 
-    /**
-     * Valida se o arquivo é realmente uma imagem verificando os magic bytes (assinatura do arquivo)
-     * Previne upload de scripts maliciosos disfarçados como imagens
-     */
-    private boolean isValidImageFile(MultipartFile file) {
-        try (InputStream input = file.getInputStream()) {
-            byte[] fileSignature = new byte[12];
-            int bytesRead = input.read(fileSignature);
-            
-            if (bytesRead < 4) {
-                return false;
-            }
-            
-            // Verificar magic bytes de formatos de imagem comuns
-            // PNG: 89 50 4E 47
-            if (fileSignature[0] == (byte) 0x89 && fileSignature[1] == 0x50 && 
-                fileSignature[2] == 0x4E && fileSignature[3] == 0x47) {
-                return true;
-            }
-            
-            // JPEG: FF D8 FF
-            if (fileSignature[0] == (byte) 0xFF && fileSignature[1] == (byte) 0xD8 && 
-                fileSignature[2] == (byte) 0xFF) {
-                return true;
-            }
-            
-            // GIF: 47 49 46 38
-            if (fileSignature[0] == 0x47 && fileSignature[1] == 0x49 && 
-                fileSignature[2] == 0x46 && fileSignature[3] == 0x38) {
-                return true;
-            }
-            
-            // WebP: 52 49 46 46 ... 57 45 42 50
-            if (bytesRead >= 12 && fileSignature[0] == 0x52 && fileSignature[1] == 0x49 && 
-                fileSignature[2] == 0x46 && fileSignature[3] == 0x46 &&
-                fileSignature[8] == 0x57 && fileSignature[9] == 0x45 && 
-                fileSignature[10] == 0x42 && fileSignature[11] == 0x50) {
-                return true;
-            }
-            
-            return false;
-        } catch (IOException e) {
-            return false;
-        }
-    }
-
     @DeleteMapping("/image/{filename}")
     public ResponseEntity<Map<String, String>> deleteImage(
             @PathVariable String filename,
@@ -151,19 +171,13 @@ public class FileUploadController {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Não autenticado");
         }
 
-        try {
-            Path filePath = Paths.get(uploadDir).resolve(filename);
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
-                Map<String, String> response = new HashMap<>();
-                response.put("message", "Arquivo excluído com sucesso");
-                return ResponseEntity.ok(response);
-            } else {
-                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Arquivo não encontrado");
-            }
-        } catch (IOException e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, 
-                "Erro ao excluir arquivo: " + e.getMessage());
+        if (!imageUploadService.exists(filename)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Arquivo não encontrado");
         }
+        // O mesmo arquivo pode ser de outro usuário (mesmo conteúdo, mesmo nome) ou estar prestes a ser salvo
+        // numa página: os bytes saem pelo UploadGarbageCollector, sem referências e depois da carência
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Arquivo será removido automaticamente quando nenhuma página o usar");
+        return ResponseEntity.ok(response);
     }
 }
@@ -1,5 +1,7 @@
 package com.MoveRap.demo.controller;
 
+import com.MoveRap.demo.service.PasswordHashingUnavailableException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -10,6 +12,8 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -44,7 +48,21 @@ public class GlobalExceptionHandler {
         error.put("status", ex.getStatusCode().value());
         error.put("message", ex.getReason());
         
-        return new ResponseEntity<>(error, ex.getStatusCode());
+        // Retry-After dos uploads recusados (UploadRejectedException)
+        return new ResponseEntity<>(error, ex.getHeaders(), ex.getStatusCode());
+    }
+
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> handlePasswordHashingUnavailable(
+            PasswordHashingUnavailableException ex) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        error.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
     }
 
     @ExceptionHandler(AccessDeniedException.class)
@@ -79,6 +97,28 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.CONFLICT);
     }
     
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> handleOptimisticLockingFailure(
+            ObjectOptimisticLockingFailureException ex) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("status", HttpStatus.CONFLICT.value());
+        error.put("message", "A página foi alterada por outra requisição. Recarregue e tente novamente.");
+        
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+    
+    // Arquivo estático inexistente (/uploads, /p): 404, não erro interno
+    @ExceptionHandler(NoResourceFoundException.class)
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> handleNoResourceFound(NoResourceFoundException ex) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("status", HttpStatus.NOT_FOUND.value());
+        error.put("message", "Recurso não encontrado");
+        
+        return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
+    }
+    
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ResponseBody
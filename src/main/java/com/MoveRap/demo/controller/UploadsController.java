@@ -0,0 +1,193 @@
+package com.MoveRap.demo.controller;
+
+import com.MoveRap.demo.service.BlobStorage;
+import com.MoveRap.demo.service.ImageDerivativeService;
+import com.MoveRap.demo.service.ImageUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Serve os arquivos de /uploads (originais, variantes {@code ?size=N}, faixas de áudio e uploads antigos).
+ *
+ * Nenhum arquivo muda depois de gravado (nome = SHA-256 do conteúdo, ou UUID nos antigos), então a resposta
+ * vai com cache imutável de um ano. A exceção é {@code ?size=N} antes da variante existir: o original sai
+ * com no-cache, para o navegador trocar pela variante assim que o worker terminar.
+ *
+ * Corpos grandes vão por sendfile do Tomcat (o kernel copia do arquivo para o socket, sem passar pela heap);
+ * fora do Tomcat ou abaixo do limiar, por FileChannel. Range com um intervalo responde 206, o que permite
+ * ao player de áudio buscar qualquer ponto da faixa sem baixá-la inteira. Com armazenamento remoto (S3),
+ * a resposta é um redirect para a URL pré-assinada e os bytes não passam pela aplicação.
+ */
+@RestController
+public class UploadsController {
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+    // Abaixo disso a cópia por buffer sai mais barata que montar o sendfile (mesmo limiar do DefaultServlet)
+    private static final long SENDFILE_THRESHOLD = 48 * 1024;
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("([0-9a-f]{64})\\.[a-z0-9]+");
+    // O navegador reaproveita o redirect; bem abaixo da validade da URL assinada (storage.s3.download-url-ttl-seconds)
+    private static final CacheControl DIRECT_REDIRECT = CacheControl.maxAge(Duration.ofMinutes(10)).cachePrivate();
+
+    // Atributos de request do Tomcat para sendfile (org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private ImageUploadService imageUploadService;
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+    @Autowired
+    private BlobStorage blobStorage;
+
+    @GetMapping("/uploads/{filename}")
+    public void serve(@PathVariable String filename,
+                      @RequestParam(value = "size", required = false) String size,
+                      HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+
+        if (!ImageUploadService.isServableFilename(filename)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Arquivo não encontrado");
+        }
+        String key = filename;
+        boolean immutable = true;
+        int requested = parseSize(size);
+        if (requested > 0 && ImageUploadService.isOriginalFilename(filename)) {
+            Optional<String> variant = imageDerivativeService.variant(filename, requested);
+            key = variant.orElse(filename);
+            immutable = variant.isPresent();
+        }
+
+        Optional<URI> direct = blobStorage.downloadUrl(key);
+        if (direct.isPresent()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL,
+                    (immutable ? DIRECT_REDIRECT : CacheControl.noCache()).getHeaderValue());
+            response.setHeader(HttpHeaders.LOCATION, direct.get().toString());
+            response.setStatus(HttpStatus.FOUND.value());
+            return;
+        }
+        Path file = imageUploadService.resolve(key)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Arquivo não encontrado"));
+
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                (immutable ? IMMUTABLE : CacheControl.noCache()).getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        String etag = etag(file, length, lastModified);
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return; // 304 já escrito pelo checkNotModified
+        }
+        response.setContentType(MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Vários intervalos (multipart/byteranges) não valem o custo aqui: o RFC permite responder o corpo inteiro
+            if (ranges.size() == 1) {
+                HttpRange only = ranges.get(0);
+                start = only.getRangeStart(length);
+                end = only.getRangeEnd(length);
+                if (length == 0 || start >= length) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+        if (count >= SENDFILE_THRESHOLD && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                position += channel.transferTo(position, end + 1 - position, out);
+            }
+        }
+    }
+
+    /**
+     * ETag forte. Arquivos por hash usam o próprio hash; variantes e uploads antigos, tamanho e data de
+     * gravação (nunca são reescritos no lugar: só criados por move atômico).
+     */
+    static String etag(Path file, long length, long lastModified) {
+        var matcher = CONTENT_ADDRESSED.matcher(file.getFileName().toString());
+        if (matcher.matches()) {
+            return "\"" + matcher.group(1) + "\"";
+        }
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    // Sem If-Range o Range vale; com If-Range, só se o ETag (forte) ou a data forem os atuais
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static int parseSize(String size) {
+        if (size == null || size.isEmpty() || size.length() > 5) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(size);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
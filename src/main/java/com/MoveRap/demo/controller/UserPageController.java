@@ -1,54 +1,95 @@
 package com.MoveRap.demo.controller;
 
+import com.MoveRap.demo.Dtos.ArtistDirectoryPageDto;
+import com.MoveRap.demo.Dtos.ArtistSearchPageDto;
+import com.MoveRap.demo.Dtos.UserIdentityDto;
 import com.MoveRap.demo.Dtos.UserPageDto;
+import com.MoveRap.demo.Dtos.UserPageTrackDto;
+import com.MoveRap.demo.Dtos.UserPageViewDto;
 import com.MoveRap.demo.model.UserPage;
-import com.MoveRap.demo.model.UserModel;
 import com.MoveRap.demo.repository.UserPageRepository;
-import com.MoveRap.demo.repository.UserRepository;
+import com.MoveRap.demo.service.ArtistDirectoryService;
+import com.MoveRap.demo.service.ArtistSearchService;
+import com.MoveRap.demo.service.ProfileSnapshotService;
+import com.MoveRap.demo.service.PublicPageCache;
+import com.MoveRap.demo.service.UserPageTrackService;
+import com.MoveRap.demo.service.UserPageWriteService;
+import com.MoveRap.demo.service.UserIdentityCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.security.core.Authentication;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/user-page") 
 public class UserPageController {
+    private static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+    private static final Set<String> PATCHABLE_FIELDS =
+            Set.of("biography", "profileImageUrl", "backgroundImageUrl", "musicUrlsList");
+    private static final int MAX_BIOGRAPHY_LENGTH = 1000;
+    // Mesmo limite da coluna user_page_track.url
+    private static final int MAX_TRACK_URL_LENGTH = 2048;
+    private static final int MAX_BATCH_USERNAMES = 100;
+
     @Autowired
     private UserPageRepository userPageRepository;
     @Autowired
-    private UserRepository userRepository;
+    private UserIdentityCache userIdentityCache;
+    @Autowired
+    private PublicPageCache publicPageCache;
+    @Autowired
+    private UserPageTrackService userPageTrackService;
+    @Autowired
+    private UserPageWriteService userPageWriteService;
+    @Autowired
+    private ArtistSearchService artistSearchService;
+    @Autowired
+    private ArtistDirectoryService artistDirectoryService;
+    @Autowired
+    private ProfileSnapshotService profileSnapshotService;
+    @Autowired
+    private ObjectMapper objectMapper;
 
     @PostMapping("/create")
-    public ResponseEntity<UserPage> createUserPage(@Valid @RequestBody UserPageDto userPageDto, 
+    public ResponseEntity<UserPageDto> createUserPage(@Valid @RequestBody UserPageDto userPageDto, 
                                                    Authentication authentication) {
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Não autenticado");
         }
         String username = authentication.getName();
-        UserModel user = userRepository.findByUsername(username);
+        UserIdentityDto user = userIdentityCache.findByUsername(username);
         if (user == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuário não encontrado");
         }
         
-        Optional<UserPage> existingPage = userPageRepository.findByUser_Id(user.getId());
-        if (existingPage.isPresent()) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Usuário já possui uma página");
-        }
-        UserPage userPage = new UserPage();
-        userPage.setUser(user);
-        userPage.setBiography(userPageDto.getBiography());
-        userPage.setProfileImageUrl(userPageDto.getProfileImageUrl());
-        userPage.setBackgroundImageUrl(userPageDto.getBackgroundImageUrl());
-        if (userPageDto.getMusicUrlsList() != null && !userPageDto.getMusicUrlsList().isEmpty()) {
-            userPage.setMusicUrls(String.join(",", userPageDto.getMusicUrlsList()));
-        }
-        
-        UserPage savedPage = userPageRepository.save(userPage);
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedPage);
+        java.util.List<String> tracks = userPageDto.getMusicUrlsList() != null
+                ? userPageDto.getMusicUrlsList()
+                : java.util.List.of();
+        // INSERT ... ON CONFLICT DO NOTHING: quem perde a corrida recebe 409, não erro de constraint
+        UserPageRepository.UpsertedPage savedPage = userPageWriteService.create(user.id(), userPageDto.getBiography(),
+                        userPageDto.getProfileImageUrl(), userPageDto.getBackgroundImageUrl(), tracks)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "Usuário já possui uma página"));
+        pageChanged(username);
+        artistSearchService.indexPage(user.id(), username, savedPage.getBiography(), savedPage.getProfileImageUrl());
+        UserPageDto created = new UserPageDto();
+        created.setBiography(userPageDto.getBiography());
+        created.setProfileImageUrl(userPageDto.getProfileImageUrl());
+        created.setBackgroundImageUrl(userPageDto.getBackgroundImageUrl());
+        created.setMusicUrlsList(tracks);
+        return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
     @PutMapping("/update")
@@ -57,19 +98,14 @@ public class UserPageController {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Não autenticado");
         }
         String username = authentication.getName();
-        UserModel user = userRepository.findByUsername(username);
+        UserIdentityDto user = userIdentityCache.findByUsername(username);
         if (user == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuário não encontrado");
         }
-        UserPage userPage = userPageRepository.findByUser_Id(user.getId()).orElse(new UserPage());
-        userPage.setUser(user);
-        userPage.setBiography(userPageDto.getBiography());
-        userPage.setProfileImageUrl(userPageDto.getProfileImageUrl());
-        userPage.setBackgroundImageUrl(userPageDto.getBackgroundImageUrl());
-        if (userPageDto.getMusicUrlsList() != null && !userPageDto.getMusicUrlsList().isEmpty()) {
-            userPage.setMusicUrls(String.join(",", userPageDto.getMusicUrlsList()));
-        }
-        userPageRepository.save(userPage);
+        UserPageRepository.UpsertedPage userPage = userPageWriteService.replace(user.id(), userPageDto.getBiography(),
+                userPageDto.getProfileImageUrl(), userPageDto.getBackgroundImageUrl(), userPageDto.getMusicUrlsList());
+        pageChanged(username);
+        artistSearchService.indexPage(user.id(), username, userPage.getBiography(), userPage.getProfileImageUrl());
         java.util.Map<String, String> response = new java.util.HashMap<>();
         response.put("message", "Página do usuário atualizada com sucesso.");
         return ResponseEntity.ok(response);
@@ -81,26 +117,20 @@ public class UserPageController {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Não autenticado");
         }
         String username = authentication.getName();
-        UserModel user = userRepository.findByUsername(username);
+        UserIdentityDto user = userIdentityCache.findByUsername(username);
         if (user == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuário não encontrado");
         }
         
-        Optional<UserPage> existingPage = userPageRepository.findByUser_Id(user.getId());
+        Optional<UserPage> existingPage = userPageRepository.findByUser_Id(user.id());
         if (existingPage.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Página do usuário não encontrada");
         }
         
-        // Quebrar o relacionamento bidirecional antes de deletar
-        UserPage userPage = existingPage.get();
-        user.setUserPage(null);
-        userPage.setUser(null);
-        
-        // Salvar o usuário sem a página associada
-        userRepository.save(user);
-        
-        // Agora deletar a página
-        userPageRepository.delete(userPage);
+        // O usuário não é carregado (vem do cache de identidade), então não há lado inverso a desfazer
+        userPageRepository.delete(existingPage.get());
+        pageChanged(username);
+        artistSearchService.removePage(user.id());
         
         return ResponseEntity.ok("Página do usuário excluída com sucesso.");
     }
@@ -115,94 +145,324 @@ public class UserPageController {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Não autenticado");
         }
         String username = authentication.getName();
-        UserModel user = userRepository.findByUsername(username);
+        UserIdentityDto user = userIdentityCache.findByUsername(username);
         if (user == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuário não encontrado");
         }
-        Optional<UserPage> optionalUserPage = userPageRepository.findByUser_Id(user.getId());
-        UserPage userPage;
-        
-        if (optionalUserPage.isPresent()) {
-            userPage = optionalUserPage.get();
-        } else {
-            userPage = new UserPage();
-            userPage.setUser(user);
+        java.util.List<String> tracks = null;
+        if (musicUrls != null) {
+            // Formulário legado: lista separada por vírgula apenas na entrada
+            tracks = java.util.Arrays.stream(musicUrls.split(","))
+                    .map(String::trim)
+                    .filter(url -> !url.isEmpty())
+                    .toList();
+            if (tracks.stream().anyMatch(url -> url.length() > MAX_TRACK_URL_LENGTH)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "A URL da faixa não pode ter mais de " + MAX_TRACK_URL_LENGTH + " caracteres");
+            }
         }
-        
-        if (biography != null) {
-            userPage.setBiography(biography);
+        UserPageRepository.UpsertedPage userPage = userPageWriteService.savePresentFields(
+                user.id(), biography, profileImageUrl, backgroundImageUrl, tracks);
+        pageChanged(username);
+        artistSearchService.indexPage(user.id(), username, userPage.getBiography(), userPage.getProfileImageUrl());
+        java.util.Map<String, String> response = new java.util.HashMap<>();
+        response.put("message", "Página do usuário salva com sucesso.");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * JSON Merge Patch (RFC 7396): campos ausentes ficam como estão, null limpa o campo.
+     * Só as colunas realmente alteradas entram no UPDATE (@DynamicUpdate); patch vazio não executa SQL
+     * e valores iguais aos atuais não geram UPDATE.
+     */
+    @PatchMapping(value = "/me", consumes = {MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Object> patchMyUserPage(@RequestBody JsonNode patch, Authentication authentication) {
+        if (!(patch instanceof ObjectNode patchObject)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O patch deve ser um objeto JSON");
+        }
+        patchObject.fieldNames().forEachRemaining(field -> {
+            if (!PATCHABLE_FIELDS.contains(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Campo não suportado: " + field);
+            }
+        });
+        UserIdentityDto user = requireUser(authentication);
+        java.util.Map<String, String> response = new java.util.HashMap<>();
+        if (patchObject.isEmpty()) {
+            response.put("message", "Nenhuma alteração.");
+            return ResponseEntity.ok(response);
         }
-        if (profileImageUrl != null) {
-            userPage.setProfileImageUrl(profileImageUrl);
+        String biography = patchText(patchObject, "biography");
+        if (biography != null && biography.length() > MAX_BIOGRAPHY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A biografia não pode ter mais de 1000 caracteres");
         }
-        if (backgroundImageUrl != null) {
-            userPage.setBackgroundImageUrl(backgroundImageUrl);
+        java.util.List<String> tracks = patchTracks(patchObject);
+        // HashMap: null é um valor válido (limpa o campo) e diferente de campo ausente
+        java.util.Map<String, String> fields = new java.util.HashMap<>();
+        for (String field : java.util.List.of("biography", "profileImageUrl", "backgroundImageUrl")) {
+            if (patchObject.has(field)) {
+                fields.put(field, patchText(patchObject, field));
+            }
         }
-        if (musicUrls != null) {
-            userPage.setMusicUrls(musicUrls);
+
+        UserPage userPage = userPageWriteService.patch(user.id(), fields, tracks);
+        pageChanged(user.username());
+        if (patchObject.has("biography") || patchObject.has("profileImageUrl")) {
+            artistSearchService.indexPage(user.id(), user.username(), userPage);
         }
-        
-        userPageRepository.save(userPage);
+
+        response.put("message", "Página do usuário atualizada com sucesso.");
+        return ResponseEntity.ok(response);
+    }
+
+    private static String patchText(ObjectNode patch, String field) {
+        JsonNode value = patch.get(field);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        if (!value.isTextual()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O campo " + field + " deve ser texto");
+        }
+        return value.asText();
+    }
+
+    /**
+     * @return a nova lista de faixas, lista vazia para null (limpar), ou null se o campo não veio
+     */
+    private static java.util.List<String> patchTracks(ObjectNode patch) {
+        if (!patch.has("musicUrlsList")) {
+            return null;
+        }
+        JsonNode value = patch.get("musicUrlsList");
+        if (value.isNull()) {
+            return java.util.List.of();
+        }
+        if (!value.isArray()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O campo musicUrlsList deve ser uma lista");
+        }
+        java.util.List<String> tracks = new java.util.ArrayList<>(value.size());
+        for (JsonNode track : value) {
+            if (!track.isTextual() || track.asText().isBlank()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "URLs de faixa devem ser texto não vazio");
+            }
+            if (track.asText().length() > MAX_TRACK_URL_LENGTH) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "A URL da faixa não pode ter mais de " + MAX_TRACK_URL_LENGTH + " caracteres");
+            }
+            tracks.add(track.asText());
+        }
+        return tracks;
+    }
+
+    @PostMapping("/me/tracks")
+    public ResponseEntity<Object> addTrack(@Valid @RequestBody UserPageTrackDto trackDto, Authentication authentication) {
+        UserIdentityDto user = requireUser(authentication);
+        userPageTrackService.append(user.id(), trackDto.getUrl());
+        pageChanged(user.username());
         java.util.Map<String, String> response = new java.util.HashMap<>();
-        response.put("message", "Página do usuário salva com sucesso.");
+        response.put("message", "Faixa adicionada com sucesso.");
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @DeleteMapping("/me/tracks/{index}")
+    public ResponseEntity<Object> removeTrack(@PathVariable int index, Authentication authentication) {
+        UserIdentityDto user = requireUser(authentication);
+        userPageTrackService.remove(user.id(), index);
+        pageChanged(user.username());
+        java.util.Map<String, String> response = new java.util.HashMap<>();
+        response.put("message", "Faixa removida com sucesso.");
         return ResponseEntity.ok(response);
     }
 
-    @GetMapping("/me")
-    public ResponseEntity<UserPageDto> getMyUserPage(Authentication authentication) {
+    @PutMapping("/me/tracks/{index}/position")
+    public ResponseEntity<Object> moveTrack(@PathVariable int index, @RequestParam int toIndex,
+                                            Authentication authentication) {
+        UserIdentityDto user = requireUser(authentication);
+        userPageTrackService.move(user.id(), index, toIndex);
+        pageChanged(user.username());
+        java.util.Map<String, String> response = new java.util.HashMap<>();
+        response.put("message", "Faixa movida com sucesso.");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Depois de cada escrita já confirmada: descarta a página em cache e regrava o snapshot HTML
+     * (ou o remove, se a página não existe mais).
+     */
+    private void pageChanged(String username) {
+        publicPageCache.invalidate(username);
+        profileSnapshotService.regenerate(username);
+    }
+
+    private UserIdentityDto requireUser(Authentication authentication) {
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Não autenticado");
         }
-        String username = authentication.getName();
-        UserModel user = userRepository.findByUsername(username);
+        UserIdentityDto user = userIdentityCache.findByUsername(authentication.getName());
         if (user == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuário não encontrado");
         }
-        Optional<UserPage> userPageOpt = userPageRepository.findByUser_Id(user.getId());
-        if (userPageOpt.isEmpty()) {
+        return user;
+    }
+
+    @GetMapping("/me")
+    public ResponseEntity<UserPageDto> getMyUserPage(Authentication authentication, WebRequest request) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Não autenticado");
+        }
+        // Uma única consulta (join página + usuário) serve tanto a revalidação quanto o corpo
+        Optional<UserPageViewDto> pageOpt = userPageRepository.findViewByUsername(authentication.getName());
+        if (pageOpt.isEmpty()) {
             return ResponseEntity.ok(new UserPageDto()); // Retorna vazio se não existir
         }
-        UserPage page = userPageOpt.get();
-        UserPageDto dto = new UserPageDto();
-        dto.setBiography(page.getBiography());
-        dto.setProfileImageUrl(page.getProfileImageUrl());
-        dto.setBackgroundImageUrl(page.getBackgroundImageUrl());
-        // Converte string em lista de URLs
-        if (page.getMusicUrls() != null && !page.getMusicUrls().isEmpty()) {
-            dto.setMusicUrlsList(java.util.Arrays.asList(page.getMusicUrls().split(",")));
+        UserPageViewDto page = pageOpt.get();
+        if (request.checkNotModified(page.etag("me"), page.lastModified())) {
+            return null; // 304 já escrito pelo checkNotModified
         }
-        return ResponseEntity.ok(dto);
+        return withValidators(ResponseEntity.ok(), page.etag("me"), page.lastModified())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(page.toUserPageDto());
     }
 
     @GetMapping("/public/{username}")
-    public ResponseEntity<java.util.Map<String, Object>> getPublicUserPage(@PathVariable String username) {
-        UserModel user = userRepository.findByUsername(username);
-        if (user == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuário não encontrado");
+    public ResponseEntity<byte[]> getPublicUserPage(@PathVariable String username, WebRequest request) {
+        // JSON e validadores em cache; em caso de miss é montado a partir do banco.
+        // O cache é invalidado em toda escrita, então o ETag guardado é sempre o da versão atual.
+        PublicPageCache.Entry page = publicPageCache.get(username, this::renderPublicUserPage);
+        if (request.checkNotModified(page.etag(), page.lastModified())) {
+            return null; // 304 já escrito pelo checkNotModified
         }
-        
-        Optional<UserPage> userPageOpt = userPageRepository.findByUser_Id(user.getId());
-        if (userPageOpt.isEmpty()) {
+        return withValidators(ResponseEntity.ok(), page.etag(), page.lastModified())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(page.body());
+    }
+
+    /**
+     * Busca de artistas por username (prefixo/aproximada) e biografia, ordenada por relevância.
+     * Para a próxima página, repita a busca com o nextCursor devolvido.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<ArtistSearchPageDto> searchArtists(@RequestParam String q,
+                                                             @RequestParam(defaultValue = "20") int limit,
+                                                             @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(artistSearchService.search(q, limit, cursor));
+    }
+
+    /**
+     * Diretório público de artistas em ordem de id. Para a próxima página, repita com afterId = nextAfterId.
+     */
+    @GetMapping(value = "/directory", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ArtistDirectoryPageDto> getDirectory(@RequestParam(required = false) Long afterId,
+                                                               @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(artistDirectoryService.page(afterId, limit));
+    }
+
+    /**
+     * O diretório inteiro em NDJSON (Accept: application/x-ndjson), escrito enquanto é lido do banco.
+     */
+    @GetMapping(value = "/directory", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamDirectory() {
+        StreamingResponseBody body = artistDirectoryService::writeNdjson;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Várias páginas públicas de uma vez (ex.: ?usernames=a,b,c), no máximo {@value #MAX_BATCH_USERNAMES}.
+     * Entradas já em cache são reaproveitadas e todas as demais saem de um único SELECT com IN.
+     * Resposta: {"pages": [...na ordem pedida], "missing": [...usernames sem página]}.
+     */
+    @GetMapping("/public")
+    public ResponseEntity<byte[]> getPublicUserPages(@RequestParam java.util.List<String> usernames) {
+        java.util.Set<String> requested = new java.util.LinkedHashSet<>();
+        for (String username : usernames) {
+            if (username != null && !username.isBlank()) {
+                requested.add(username.trim());
+            }
+        }
+        if (requested.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe ao menos um username");
+        }
+        if (requested.size() > MAX_BATCH_USERNAMES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Máximo de " + MAX_BATCH_USERNAMES + " usernames por requisição");
+        }
+
+        // Pelo cache, como o GET individual: um invalidate durante a leitura descarta o resultado lido
+        java.util.Map<String, PublicPageCache.Entry> found = publicPageCache.getAll(requested, toLoad -> {
+            java.util.Map<String, PublicPageCache.Entry> loaded = new java.util.HashMap<>();
+            for (UserPageViewDto page : userPageRepository.findViewsByUsernames(toLoad)) {
+                loaded.put(page.username(), toPublicEntry(page));
+            }
+            return loaded;
+        });
+
+        // Concatena os JSONs já serializados de cada página, sem desserializar
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        java.util.List<String> missing = new java.util.ArrayList<>();
+        out.writeBytes("{\"pages\":[".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        boolean first = true;
+        for (String username : requested) {
+            PublicPageCache.Entry entry = found.get(username);
+            if (entry == null) {
+                missing.add(username);
+                continue;
+            }
+            if (!first) {
+                out.write(',');
+            }
+            out.writeBytes(entry.body());
+            first = false;
+        }
+        try {
+            out.writeBytes("],\"missing\":".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            out.writeBytes(objectMapper.writeValueAsBytes(missing));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Erro ao serializar páginas públicas", e);
+        }
+        out.write('}');
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out.toByteArray());
+    }
+
+    private static ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder,
+                                                             String etag, long lastModified) {
+        builder.eTag(etag);
+        if (lastModified > 0) {
+            builder.lastModified(lastModified);
+        }
+        return builder;
+    }
+
+    private PublicPageCache.Entry renderPublicUserPage(String username) {
+        Optional<UserPageViewDto> pageOpt = userPageRepository.findViewByUsername(username);
+        if (pageOpt.isEmpty()) {
+            // Só no caminho de erro distingue usuário inexistente de página inexistente
+            if (userIdentityCache.findByUsername(username) == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuário não encontrado");
+            }
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Página do usuário não encontrada");
         }
-        
-        UserPage page = userPageOpt.get();
-        
+        return toPublicEntry(pageOpt.get());
+    }
+
+    private PublicPageCache.Entry toPublicEntry(UserPageViewDto page) {
         // Cria response com informações públicas
         java.util.Map<String, Object> response = new java.util.HashMap<>();
-        response.put("username", user.getUsername());
-        response.put("name", user.getUsername()); // Pode adicionar campo 'name' no UserModel se desejar
-        response.put("biography", page.getBiography());
-        response.put("profileImageUrl", page.getProfileImageUrl());
-        response.put("backgroundImageUrl", page.getBackgroundImageUrl());
+        response.put("username", page.username());
+        response.put("name", page.username()); // Pode adicionar campo 'name' no UserModel se desejar
+        response.put("biography", page.biography());
+        response.put("profileImageUrl", page.profileImageUrl());
+        response.put("backgroundImageUrl", page.backgroundImageUrl());
+        response.put("musicUrlsList", page.musicUrlsList());
         
-        // Converte string em lista de URLs
-        if (page.getMusicUrls() != null && !page.getMusicUrls().isEmpty()) {
-            response.put("musicUrlsList", java.util.Arrays.asList(page.getMusicUrls().split(",")));
-        } else {
-            response.put("musicUrlsList", new java.util.ArrayList<>());
+        try {
+            return new PublicPageCache.Entry(objectMapper.writeValueAsBytes(response),
+                    page.etag("p"), page.lastModified());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Erro ao serializar página pública", e);
         }
-        
-        return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+}
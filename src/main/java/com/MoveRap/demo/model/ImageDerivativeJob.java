@@ -0,0 +1,59 @@
+package com.MoveRap.demo.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Geração pendente das variantes redimensionadas de uma imagem enviada (ver ImageDerivativeWorker).
+ * A fila vive no banco para sobreviver a reinícios; uma linha por arquivo original.
+ */
+@Entity
+@Table(name = "image_derivative_job", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_image_derivative_job_filename", columnNames = "filename")
+}, indexes = {
+    @Index(name = "idx_image_derivative_job_status", columnList = "status, id")
+})
+public class ImageDerivativeJob {
+
+    public enum Status { PENDING, RUNNING, DONE, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false, length = 128)
+    private String filename;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+    @Column(nullable = false)
+    private int attempts;
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    public Long getId() {
+        return id;
+    }
+    public String getFilename() {
+        return filename;
+    }
+    public Status getStatus() {
+        return status;
+    }
+    public int getAttempts() {
+        return attempts;
+    }
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -14,7 +14,11 @@ public class UserModel {
     private String email;
     @Column(nullable = false)
     private String password;
+    // Incrementado a cada troca de senha; tokens com epoch anterior são rejeitados
+    @Column(name = "credentials_epoch", nullable = false, columnDefinition = "bigint default 0")
+    private long credentialsEpoch;
     
+    // Lado inverso: só é LAZY de fato com o bytecode enhancement do Hibernate (ver pom.xml)
     @OneToOne(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private UserPage userPage;
     public UserModel() {
@@ -50,6 +54,12 @@ public class UserModel {
     public void setPassword(String password) {
         this.password = password;
     }
+    public long getCredentialsEpoch() {
+        return credentialsEpoch;
+    }
+    public void setCredentialsEpoch(long credentialsEpoch) {
+        this.credentialsEpoch = credentialsEpoch;
+    }
     public UserPage getUserPage() {
         return userPage;
     }
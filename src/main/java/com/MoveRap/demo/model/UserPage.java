@@ -1,10 +1,16 @@
 package com.MoveRap.demo.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
+
+import java.time.Instant;
 
 @Entity
-@Table(name = "user_page", indexes = {
-    @Index(name = "idx_user_id", columnList = "user_id")
+// UPDATE só com as colunas alteradas (PATCH de um campo não regrava a biografia inteira)
+@DynamicUpdate
+// Uma página por usuário; é a chave do INSERT ... ON CONFLICT (user_id) das escritas (e o índice das buscas por user_id)
+@Table(name = "user_page", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_user_page_user_id", columnNames = "user_id")
 })
 public class UserPage {
 
@@ -15,13 +21,35 @@ public class UserPage {
     @JoinColumn(name = "user_id", nullable = false)
     private UserModel user;
     
+    // Incrementado pelo Hibernate a cada UPDATE; compõe o ETag das leituras
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
     @PreRemove
     private void preRemove() {
         user = null;
     }
+
+    @PrePersist
+    @PreUpdate
+    private void touch() {
+        updatedAt = Instant.now();
+    }
+
+    /**
+     * Marca a página como alterada quando só as faixas (outra tabela) mudaram,
+     * para que versão e ETag também avancem.
+     */
+    public void markModified() {
+        updatedAt = Instant.now();
+    }
     private String biography;
     private String profileImageUrl;
     private String backgroundImageUrl;
+    // Legado: faixas separadas por vírgula. Migradas para UserPageTrack e então anuladas
     private String musicUrls;
     public Long getId() {
         return id;
@@ -53,6 +81,12 @@ public class UserPage {
     public void setBackgroundImageUrl(String backgroundImageUrl) {
         this.backgroundImageUrl = backgroundImageUrl;
     }
+    public long getVersion() {
+        return version;
+    }
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
     public String getMusicUrls() {
         return musicUrls;
     }
@@ -0,0 +1,55 @@
+package com.MoveRap.demo.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Uma faixa da página. A ordem vem de {@code position}, numerada com intervalos
+ * (ver UserPageTrackService) para que inserir ou mover uma faixa altere uma única linha.
+ */
+@Entity
+@Table(name = "user_page_track", indexes = {
+    @Index(name = "idx_track_page_position", columnList = "user_page_id, sort_position")
+})
+public class UserPageTrack {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    // ON DELETE CASCADE: excluir a página remove as faixas no banco, sem carregá-las
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_page_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private UserPage page;
+    @Column(nullable = false, length = 2048)
+    private String url;
+    @Column(name = "sort_position", nullable = false)
+    private long position;
+
+    public UserPageTrack() {
+    }
+    public UserPageTrack(UserPage page, String url, long position) {
+        this.page = page;
+        this.url = url;
+        this.position = position;
+    }
+    public Long getId() {
+        return id;
+    }
+    public UserPage getPage() {
+        return page;
+    }
+    public String getUrl() {
+        return url;
+    }
+    public void setUrl(String url) {
+        this.url = url;
+    }
+    public long getPosition() {
+        return position;
+    }
+    public void setPosition(long position) {
+        this.position = position;
+    }
+}
@@ -0,0 +1,84 @@
+package com.MoveRap.demo.repository;
+
+import com.MoveRap.demo.model.ImageDerivativeJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ImageDerivativeJobRepository extends JpaRepository<ImageDerivativeJob, Long> {
+
+    /**
+     * Enfileira o arquivo; reenvio do mesmo conteúdo (mesmo nome) não cria outra linha.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "insert into image_derivative_job (filename, status, attempts, created_at) " +
+                   "values (:filename, 'PENDING', 0, :now) on conflict do nothing", nativeQuery = true)
+    int enqueue(@Param("filename") String filename, @Param("now") Instant now);
+
+    @Query("select j.id from ImageDerivativeJob j where j.status = :status order by j.id")
+    List<Long> findIdsByStatus(@Param("status") ImageDerivativeJob.Status status, Pageable pageable);
+
+    /**
+     * Reserva o job para um worker: só um UPDATE encontra a linha ainda PENDING.
+     * @return 1 se reservado
+     */
+    @Modifying
+    @Transactional
+    @Query("update ImageDerivativeJob j set j.status = com.MoveRap.demo.model.ImageDerivativeJob$Status.RUNNING, " +
+           "j.attempts = j.attempts + 1, j.updatedAt = :now " +
+           "where j.id = :id and j.status = com.MoveRap.demo.model.ImageDerivativeJob$Status.PENDING")
+    int claim(@Param("id") Long id, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update ImageDerivativeJob j set j.status = :status, j.lastError = :lastError, j.updatedAt = :now where j.id = :id")
+    int finish(@Param("id") Long id,
+               @Param("status") ImageDerivativeJob.Status status,
+               @Param("lastError") String lastError,
+               @Param("now") Instant now);
+
+    /**
+     * Renova a reserva dos jobs que este processo ainda está executando.
+     */
+    @Modifying
+    @Transactional
+    @Query("update ImageDerivativeJob j set j.updatedAt = :now " +
+           "where j.id in :ids and j.status = com.MoveRap.demo.model.ImageDerivativeJob$Status.RUNNING")
+    int touch(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    /**
+     * Jobs RUNNING sem renovação desde {@code cutoff} (o processo que os reservou parou) voltam para a
+     * fila. Os que ainda estão sendo renovados por outra instância ficam onde estão.
+     */
+    @Modifying
+    @Transactional
+    @Query("update ImageDerivativeJob j set j.status = com.MoveRap.demo.model.ImageDerivativeJob$Status.PENDING, " +
+           "j.updatedAt = :now where j.status = com.MoveRap.demo.model.ImageDerivativeJob$Status.RUNNING " +
+           "and j.updatedAt < :cutoff")
+    int requeueExpired(@Param("cutoff") Instant cutoff, @Param("now") Instant now);
+
+    /**
+     * Reenvio de um conteúdo cuja geração falhou: o job volta para a fila com as tentativas zeradas.
+     */
+    @Modifying
+    @Transactional
+    @Query("update ImageDerivativeJob j set j.status = com.MoveRap.demo.model.ImageDerivativeJob$Status.PENDING, " +
+           "j.attempts = 0, j.lastError = null, j.updatedAt = :now " +
+           "where j.filename = :filename and j.status = com.MoveRap.demo.model.ImageDerivativeJob$Status.FAILED")
+    int resetFailed(@Param("filename") String filename, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("delete from ImageDerivativeJob j where j.filename = :filename")
+    int deleteByFilename(@Param("filename") String filename);
+}
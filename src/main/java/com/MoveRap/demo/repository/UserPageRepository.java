@@ -1,12 +1,172 @@
 package com.MoveRap.demo.repository;
 
+import com.MoveRap.demo.Dtos.ArtistDirectoryEntryDto;
+import com.MoveRap.demo.Dtos.ArtistSearchDocDto;
+import com.MoveRap.demo.Dtos.UserPageViewDto;
+import com.MoveRap.demo.Dtos.UserPageViewRowDto;
 import com.MoveRap.demo.model.UserPage;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserPageRepository extends JpaRepository<UserPage, Long> {
     Optional<UserPage> findByUser_Id(Long userId);
-}
\ No newline at end of file
+
+    /**
+     * Linha gravada por um dos upserts abaixo, com os valores finais dos campos indexados na busca.
+     */
+    interface UpsertedPage {
+        Long getId();
+        String getBiography();
+        String getProfileImageUrl();
+    }
+
+    /**
+     * Cria a página em um único INSERT; vazio se o usuário já tem uma (ON CONFLICT DO NOTHING).
+     */
+    @Transactional
+    @Query(value = "insert into user_page (user_id, biography, profile_image_url, background_image_url, version, updated_at) " +
+                   "values (:userId, :biography, :profileImageUrl, :backgroundImageUrl, 0, :updatedAt) " +
+                   "on conflict (user_id) do nothing " +
+                   "returning id, biography, profile_image_url as \"profileImageUrl\"", nativeQuery = true)
+    Optional<UpsertedPage> insertIfAbsent(@Param("userId") Long userId,
+                                          @Param("biography") String biography,
+                                          @Param("profileImageUrl") String profileImageUrl,
+                                          @Param("backgroundImageUrl") String backgroundImageUrl,
+                                          @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Cria ou substitui todos os campos da página em um único INSERT ... ON CONFLICT DO UPDATE.
+     * Com clearLegacyTracks a coluna legada é anulada (as faixas estão sendo substituídas).
+     */
+    @Transactional
+    @Query(value = "insert into user_page (user_id, biography, profile_image_url, background_image_url, version, updated_at) " +
+                   "values (:userId, :biography, :profileImageUrl, :backgroundImageUrl, 0, :updatedAt) " +
+                   "on conflict (user_id) do update set " +
+                   "biography = excluded.biography, " +
+                   "profile_image_url = excluded.profile_image_url, " +
+                   "background_image_url = excluded.background_image_url, " +
+                   "music_urls = case when :clearLegacyTracks then null else user_page.music_urls end, " +
+                   "version = user_page.version + 1, " +
+                   "updated_at = excluded.updated_at " +
+                   "returning id, biography, profile_image_url as \"profileImageUrl\"", nativeQuery = true)
+    UpsertedPage upsert(@Param("userId") Long userId,
+                        @Param("biography") String biography,
+                        @Param("profileImageUrl") String profileImageUrl,
+                        @Param("backgroundImageUrl") String backgroundImageUrl,
+                        @Param("clearLegacyTracks") boolean clearLegacyTracks,
+                        @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Como {@link #upsert}, mas campos null mantêm o valor atual (formulário legado /save).
+     */
+    @Transactional
+    @Query(value = "insert into user_page (user_id, biography, profile_image_url, background_image_url, version, updated_at) " +
+                   "values (:userId, :biography, :profileImageUrl, :backgroundImageUrl, 0, :updatedAt) " +
+                   "on conflict (user_id) do update set " +
+                   "biography = coalesce(excluded.biography, user_page.biography), " +
+                   "profile_image_url = coalesce(excluded.profile_image_url, user_page.profile_image_url), " +
+                   "background_image_url = coalesce(excluded.background_image_url, user_page.background_image_url), " +
+                   "music_urls = case when :clearLegacyTracks then null else user_page.music_urls end, " +
+                   "version = user_page.version + 1, " +
+                   "updated_at = excluded.updated_at " +
+                   "returning id, biography, profile_image_url as \"profileImageUrl\"", nativeQuery = true)
+    UpsertedPage upsertPresentFields(@Param("userId") Long userId,
+                                     @Param("biography") String biography,
+                                     @Param("profileImageUrl") String profileImageUrl,
+                                     @Param("backgroundImageUrl") String backgroundImageUrl,
+                                     @Param("clearLegacyTracks") boolean clearLegacyTracks,
+                                     @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Página, username do dono e faixas em ordem, em um único SELECT com join, direto para o DTO.
+     */
+    @Query("select new com.MoveRap.demo.Dtos.UserPageViewRowDto(p.id, p.version, p.updatedAt, u.username, " +
+           "p.biography, p.profileImageUrl, p.backgroundImageUrl, p.musicUrls, t.url) " +
+           "from UserPage p join p.user u left join UserPageTrack t on t.page = p " +
+           "where u.username = :username order by t.position")
+    List<UserPageViewRowDto> findViewRowsByUsername(@Param("username") String username);
+
+    default Optional<UserPageViewDto> findViewByUsername(String username) {
+        return UserPageViewDto.fromRows(findViewRowsByUsername(username));
+    }
+
+    /**
+     * Mesmo join de {@link #findViewRowsByUsername}, para vários usernames em um único SELECT com IN.
+     */
+    @Query("select new com.MoveRap.demo.Dtos.UserPageViewRowDto(p.id, p.version, p.updatedAt, u.username, " +
+           "p.biography, p.profileImageUrl, p.backgroundImageUrl, p.musicUrls, t.url) " +
+           "from UserPage p join p.user u left join UserPageTrack t on t.page = p " +
+           "where u.username in :usernames order by p.id, t.position")
+    List<UserPageViewRowDto> findViewRowsByUsernameIn(@Param("usernames") Collection<String> usernames);
+
+    default List<UserPageViewDto> findViewsByUsernames(Collection<String> usernames) {
+        return UserPageViewDto.groupRows(findViewRowsByUsernameIn(usernames));
+    }
+
+    /**
+     * Páginas que usam a imagem como foto de perfil ou de fundo. As URLs gravadas podem ser absolutas
+     * (host do backend na frente), por isso o padrão casa pelo sufixo "/uploads/{arquivo}".
+     */
+    @Query("select count(p) from UserPage p where p.profileImageUrl like :urlPattern or p.backgroundImageUrl like :urlPattern")
+    long countImageReferences(@Param("urlPattern") String urlPattern);
+
+    /**
+     * URLs de imagem de uma página, lidas pelo coletor de uploads órfãos.
+     */
+    interface ImageReferences {
+        Long getId();
+        String getProfileImageUrl();
+        String getBackgroundImageUrl();
+    }
+
+    /**
+     * URLs de imagem das páginas em ordem de id (keyset), sem carregar entidades.
+     */
+    @Query("select p.id as id, p.profileImageUrl as profileImageUrl, p.backgroundImageUrl as backgroundImageUrl " +
+            "from UserPage p where p.id > :afterId order by p.id")
+    List<ImageReferences> findImageReferences(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Ids das páginas que ainda usam a coluna legada musicUrls, em ordem (keyset por id).
+     */
+    @Query("select p.id from UserPage p where p.musicUrls is not null and p.id > :afterId order by p.id")
+    List<Long> findLegacyMusicUrlsPageIds(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Documentos da busca de artistas (dono e campos da página), em ordem de id do usuário (keyset).
+     */
+    @Query("select new com.MoveRap.demo.Dtos.ArtistSearchDocDto(u.id, u.username, p.biography, p.profileImageUrl) " +
+           "from UserPage p join p.user u where u.id > :afterId order by u.id")
+    List<ArtistSearchDocDto> findSearchDocs(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Diretório de artistas por keyset em id: cada página começa depois do último id da anterior,
+     * sem OFFSET (custo constante em qualquer profundidade).
+     */
+    @Query("select new com.MoveRap.demo.Dtos.ArtistDirectoryEntryDto(p.id, u.username, p.profileImageUrl, p.updatedAt) " +
+           "from UserPage p join p.user u where p.id > :afterId order by p.id")
+    List<ArtistDirectoryEntryDto> findDirectoryPage(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Diretório inteiro como stream, lido do cursor do banco em blocos de fetch size.
+     * Deve ser consumido dentro de uma transação e fechado ao final.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.MoveRap.demo.Dtos.ArtistDirectoryEntryDto(p.id, u.username, p.profileImageUrl, p.updatedAt) " +
+           "from UserPage p join p.user u order by p.id")
+    Stream<ArtistDirectoryEntryDto> streamDirectory();
+}
@@ -0,0 +1,45 @@
+package com.MoveRap.demo.repository;
+
+import com.MoveRap.demo.model.UserPageTrack;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UserPageTrackRepository extends JpaRepository<UserPageTrack, Long> {
+    List<UserPageTrack> findByPage_IdOrderByPositionAsc(Long pageId);
+
+    @Query("select max(t.position) from UserPageTrack t where t.page.id = :pageId")
+    Long findMaxPosition(@Param("pageId") Long pageId);
+
+    @Modifying
+    @Query("delete from UserPageTrack t where t.page.id = :pageId")
+    int deleteByPageId(@Param("pageId") Long pageId);
+
+    /**
+     * Faixas que apontam para o arquivo (áudio enviado em /api/upload/audio). Mesmo critério de sufixo de
+     * UserPageRepository.countImageReferences.
+     */
+    @Query("select count(t) from UserPageTrack t where t.url like :urlPattern")
+    long countUploadReferences(@Param("urlPattern") String urlPattern);
+
+    /**
+     * URL de uma faixa, lida pelo coletor de uploads órfãos.
+     */
+    interface UploadReference {
+        Long getId();
+        String getUrl();
+    }
+
+    /**
+     * Faixas com arquivo em /uploads, em ordem de id (keyset), sem carregar entidades.
+     */
+    @Query("select t.id as id, t.url as url from UserPageTrack t " +
+            "where t.id > :afterId and t.url like '%/uploads/%' order by t.id")
+    List<UploadReference> findUploadReferences(@Param("afterId") Long afterId, Pageable pageable);
+}
@@ -1,11 +1,40 @@
 package com.MoveRap.demo.repository;
 
+import com.MoveRap.demo.Dtos.UserIdentityDto;
 import com.MoveRap.demo.model.UserModel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Repository
 public interface UserRepository extends JpaRepository<UserModel, Long> {
     UserModel findByEmail(String email);
     UserModel findByUsername(String username);
-}
\ No newline at end of file
+
+    // Login aceita email ou username: uma única consulta em vez de findByEmail + findByUsername
+    @Query("select new com.MoveRap.demo.Dtos.UserIdentityDto(u.id, u.username, u.email, u.password, u.credentialsEpoch) "
+            + "from UserModel u where u.email = :login or u.username = :login")
+    List<UserIdentityDto> findIdentitiesByEmailOrUsername(@Param("login") String login);
+
+    @Query("select new com.MoveRap.demo.Dtos.UserIdentityDto(u.id, u.username, u.email, u.password, u.credentialsEpoch) "
+            + "from UserModel u where u.username = :username")
+    UserIdentityDto findIdentityByUsername(@Param("username") String username);
+
+    @Query("select u.credentialsEpoch from UserModel u where u.id = :id")
+    Long findCredentialsEpochById(@Param("id") Long id);
+
+    // Maior custo entre os hashes BCrypt armazenados ($2a$NN$...): piso da calibração no boot
+    @Query("select max(substring(u.password, 5, 2)) from UserModel u where u.password like '$2%'")
+    String findMaxBcryptCost();
+
+    // Rehash com novo custo: só troca se o hash ainda for o mesmo (não sobrescreve troca de senha concorrente)
+    @Modifying
+    @Transactional
+    @Query("update UserModel u set u.password = :newHash where u.id = :id and u.password = :oldHash")
+    int updatePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+}
@@ -0,0 +1,80 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.Dtos.ArtistDirectoryEntryDto;
+import com.MoveRap.demo.Dtos.ArtistDirectoryPageDto;
+import com.MoveRap.demo.repository.UserPageRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Diretório público de artistas: páginas por keyset em user_page.id ou todas as linhas em NDJSON.
+ * Nenhum dos dois carrega entidades: as linhas saem direto da consulta como DTO.
+ */
+@Service
+public class ArtistDirectoryService {
+
+    static final int MAX_PAGE_SIZE = 200;
+    // Linhas escritas entre cada flush da resposta NDJSON
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private final UserPageRepository userPageRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ArtistDirectoryService(UserPageRepository userPageRepository,
+                                  ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager) {
+        this.userPageRepository = userPageRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public ArtistDirectoryPageDto page(Long afterId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // Uma linha a mais indica se existe próxima página
+        List<ArtistDirectoryEntryDto> rows = userPageRepository.findDirectoryPage(
+                afterId != null ? afterId : 0L, PageRequest.of(0, pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new ArtistDirectoryPageDto(rows, null);
+        }
+        List<ArtistDirectoryEntryDto> entries = rows.subList(0, pageSize);
+        return new ArtistDirectoryPageDto(entries, entries.get(pageSize - 1).id());
+    }
+
+    /**
+     * Escreve o diretório inteiro, um objeto JSON por linha, à medida que as linhas chegam do cursor.
+     * A transação (somente leitura) fica aberta durante a escrita: é ela que mantém o cursor do banco.
+     */
+    public void writeNdjson(OutputStream out) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<ArtistDirectoryEntryDto> rows = userPageRepository.streamDirectory();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                // Quem fecha a resposta é o Spring
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                int written = 0;
+                Iterator<ArtistDirectoryEntryDto> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    generator.writeObject(iterator.next());
+                    generator.writeRaw('\n');
+                    if (++written % FLUSH_EVERY_ROWS == 0) {
+                        generator.flush();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,351 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.Dtos.ArtistSearchDocDto;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollectorManager;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.IOUtils;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido em processo (Lucene) da busca de artistas: username e biografia de quem tem página.
+ *
+ * Atualizado a cada escrita de página (UserPageController) e carregado do banco no boot
+ * ({@link ArtistSearchIndexer}). Fica em um diretório temporário mapeado em memória, fora do heap;
+ * como é derivado do banco, é apagado ao desligar.
+ * Texto indexado e buscado em minúsculas e sem acentos ("São Paulo" encontra "sao paulo").
+ *
+ * No modo de threads virtuais as escritas rodam numa thread de plataforma própria (artist-search-writer),
+ * e quem escreve só espera o resultado: o IndexWriter bloqueia dentro de synchronized (a espera do
+ * DocumentsWriterStallControl quando o flush atrasa, o flush do refresh) e prenderia a carrier.
+ */
+@Service
+public class ArtistSearchIndex {
+
+    /**
+     * Um resultado, já com os campos exibidos na busca.
+     */
+    public record Hit(long userId, String username, String biography, String profileImageUrl, float score) {
+    }
+
+    static final int BIOGRAPHY_SNIPPET_LENGTH = 160;
+    // Palavras mais curtas não entram na busca aproximada (expandiriam para termos demais)
+    static final int FUZZY_MIN_LENGTH = 3;
+    // Prefixos do username indexados como termos; buscas mais longas que isso usam PrefixQuery
+    static final int MAX_INDEXED_PREFIX_LENGTH = 20;
+
+    private static final String ID = "id";
+    private static final String ID_SORT = "idSort";
+    private static final String USERNAME_KEY = "usernameKey";
+    private static final String USERNAME_PREFIXES = "usernamePrefixes";
+    private static final String USERNAME_WORDS = "usernameWords";
+    private static final String BIOGRAPHY_TEXT = "biographyText";
+    private static final String USERNAME = "username";
+    private static final String BIOGRAPHY = "biography";
+    private static final String PROFILE_IMAGE_URL = "profileImageUrl";
+
+    // "mc_silva123" -> mc, silva, 123
+    private static final Pattern WORD_SEPARATOR =
+            Pattern.compile("[^\\p{L}\\p{N}]+|(?<=\\p{L})(?=\\p{N})|(?<=\\p{N})(?=\\p{L})");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    /*
+     * Texto sem normas de tamanho: username e biografia são curtos, e sem elas o limite de score por bloco
+     * do block-max WAND é exato, o que deixa pular os blocos que não entram no top-k.
+     */
+    private static final FieldType TEXT_WITHOUT_NORMS = textWithoutNorms();
+    // Empate no score pelo id do usuário, que não muda entre páginas (o doc id do Lucene muda a cada merge)
+    private static final Sort RELEVANCE_THEN_ID = new Sort(SortField.FIELD_SCORE, new SortField(ID_SORT, SortField.Type.LONG));
+    private static final CharArraySet STOP_WORDS = new CharArraySet(Arrays.asList(
+            "a", "o", "as", "os", "e", "de", "da", "do", "das", "dos", "em", "na", "no", "nas", "nos",
+            "um", "uma", "com", "por", "para", "que"), false);
+
+    private final Path path;
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    // Usuários escritos pelo tráfego durante a carga do boot: a carga não os sobrescreve com dados mais antigos
+    private final Set<Long> writtenDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading;
+    // Thread de plataforma mesmo no modo virtual; uma só, então as escritas seguem a ordem de chegada
+    private final ExecutorService writerThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "artist-search-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @FunctionalInterface
+    private interface IndexWrite {
+        void run() throws IOException;
+    }
+
+    public ArtistSearchIndex() throws IOException {
+        path = Files.createTempDirectory("artist-search");
+        directory = FSDirectory.open(path);
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer(STOP_WORDS))
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    /**
+     * Indexa (ou reindexa) a página de um usuário; visível para a próxima busca.
+     */
+    public void index(ArtistSearchDocDto doc) {
+        if (loading) {
+            writtenDuringLoad.add(doc.userId());
+        }
+        write(() -> {
+            writer.updateDocument(new Term(ID, doc.userId().toString()), toDocument(doc));
+            searcherManager.maybeRefreshBlocking();
+        });
+    }
+
+    public void delete(long userId) {
+        if (loading) {
+            writtenDuringLoad.add(userId);
+        }
+        write(() -> {
+            writer.deleteDocuments(new Term(ID, Long.toString(userId)));
+            searcherManager.maybeRefreshBlocking();
+        });
+    }
+
+    public void beginLoad() {
+        loading = true;
+    }
+
+    /**
+     * Lote da carga do boot; só fica visível no próximo {@link #refresh()}.
+     */
+    public void load(List<ArtistSearchDocDto> docs) {
+        write(() -> {
+            for (ArtistSearchDocDto doc : docs) {
+                if (!writtenDuringLoad.contains(doc.userId())) {
+                    writer.updateDocument(new Term(ID, doc.userId().toString()), toDocument(doc));
+                }
+            }
+        });
+    }
+
+    public void finishLoad() {
+        loading = false;
+        writtenDuringLoad.clear();
+        write(() -> {
+            // Um segmento só depois da carga: cada busca percorre um dicionário de termos em vez de vários
+            writer.forceMerge(1);
+            searcherManager.maybeRefreshBlocking();
+        });
+    }
+
+    public void refresh() {
+        write(searcherManager::maybeRefreshBlocking);
+    }
+
+    /*
+     * Threads de plataforma escrevem direto (o IndexWriter aceita escritas concorrentes); as virtuais
+     * passam para a artist-search-writer e estacionam no future, o que libera a carrier.
+     */
+    private void write(IndexWrite operation) {
+        try {
+            if (!Thread.currentThread().isVirtual()) {
+                operation.run();
+                return;
+            }
+            Future<?> done = writerThread.submit(() -> {
+                operation.run();
+                return null;
+            });
+            done.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw new UncheckedIOException(io);
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Escrita no índice de busca interrompida", e);
+        }
+    }
+
+    /**
+     * Resultados por relevância; empates pelo id do usuário, então (score, id) ordena tudo e serve de cursor.
+     * Com o score como primeiro critério o coletor continua subindo o score mínimo competitivo, e só os
+     * {@code size} melhores são pontuados por completo (block-max WAND): o custo não cresce com o número
+     * de documentos que casam. A paginação é exata enquanto o índice não muda; uma escrita entre as páginas
+     * pode mudar os scores (estatísticas dos termos) e deslocar resultados de uma página para a outra.
+     *
+     * @param after score e id do último resultado da página anterior, ou null na primeira página
+     */
+    public List<Hit> search(String query, int size, Hit after) {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                Query luceneQuery = buildQuery(query, searcher.getIndexReader());
+                // O doc id só desempataria (score, id) iguais, o que não acontece: o id é único
+                FieldDoc afterDoc = after == null ? null
+                        : new FieldDoc(Integer.MAX_VALUE, after.score(), new Object[] {after.score(), after.userId()});
+                TopDocs top = searcher.search(luceneQuery, new TopFieldCollectorManager(RELEVANCE_THEN_ID, size, afterDoc, size));
+                StoredFields storedFields = searcher.storedFields();
+                List<Hit> hits = new ArrayList<>(top.scoreDocs.length);
+                for (ScoreDoc scoreDoc : top.scoreDocs) {
+                    Document doc = storedFields.document(scoreDoc.doc);
+                    float score = (Float) ((FieldDoc) scoreDoc).fields[0];
+                    hits.add(new Hit(Long.parseLong(doc.get(ID)), doc.get(USERNAME), doc.get(BIOGRAPHY),
+                            doc.get(PROFILE_IMAGE_URL), score));
+                }
+                return hits;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Username inteiro igual ou com o prefixo da busca pesa mais; depois cada palavra no username
+     * (exata, prefixo se for a última palavra) e na biografia. Palavra que não existe no índice
+     * é tratada como erro de digitação e buscada com até 1-2 edições.
+     * Prefixos pontuam constante: não há como inflar o score repetindo termos.
+     */
+    static Query buildQuery(String query, IndexReader reader) throws IOException {
+        String folded = fold(query).trim();
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(new BoostQuery(new TermQuery(new Term(USERNAME_KEY, folded)), 8), BooleanClause.Occur.SHOULD);
+        Query prefix = folded.length() <= MAX_INDEXED_PREFIX_LENGTH
+                ? new ConstantScoreQuery(new TermQuery(new Term(USERNAME_PREFIXES, folded)))
+                : new PrefixQuery(new Term(USERNAME_KEY, folded));
+        builder.add(new BoostQuery(prefix, 4), BooleanClause.Occur.SHOULD);
+        List<String> words = words(folded);
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            builder.add(new BoostQuery(new TermQuery(new Term(USERNAME_WORDS, word)), 2), BooleanClause.Occur.SHOULD);
+            if (!STOP_WORDS.contains(word)) {
+                builder.add(new TermQuery(new Term(BIOGRAPHY_TEXT, word)), BooleanClause.Occur.SHOULD);
+            }
+            // Busca enquanto digita: a última palavra pode estar incompleta
+            if (i == words.size() - 1) {
+                builder.add(new BoostQuery(new PrefixQuery(new Term(USERNAME_WORDS, word)), 1.5f), BooleanClause.Occur.SHOULD);
+                builder.add(new BoostQuery(new PrefixQuery(new Term(BIOGRAPHY_TEXT, word)), 0.5f), BooleanClause.Occur.SHOULD);
+            }
+            if (word.length() >= FUZZY_MIN_LENGTH && reader.docFreq(new Term(USERNAME_WORDS, word)) == 0) {
+                int maxEdits = word.length() >= 6 ? 2 : 1;
+                builder.add(new FuzzyQuery(new Term(USERNAME_WORDS, word), maxEdits, 1), BooleanClause.Occur.SHOULD);
+            }
+        }
+        return builder.build();
+    }
+
+    private static Document toDocument(ArtistSearchDocDto source) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, source.userId().toString(), Field.Store.YES));
+        doc.add(new NumericDocValuesField(ID_SORT, source.userId()));
+        String username = fold(source.username());
+        doc.add(new StringField(USERNAME_KEY, username, Field.Store.NO));
+        // Um termo por prefixo: o prefixo curto ("mc") vira uma única lista de postings, sem expandir termos
+        for (int length = 1; length <= Math.min(username.length(), MAX_INDEXED_PREFIX_LENGTH); length++) {
+            doc.add(new StringField(USERNAME_PREFIXES, username.substring(0, length), Field.Store.NO));
+        }
+        doc.add(new Field(USERNAME_WORDS, String.join(" ", words(username)), TEXT_WITHOUT_NORMS));
+        doc.add(new StoredField(USERNAME, source.username()));
+        if (source.biography() != null) {
+            doc.add(new Field(BIOGRAPHY_TEXT, fold(source.biography()), TEXT_WITHOUT_NORMS));
+            String snippet = source.biography().length() > BIOGRAPHY_SNIPPET_LENGTH
+                    ? source.biography().substring(0, BIOGRAPHY_SNIPPET_LENGTH)
+                    : source.biography();
+            doc.add(new StoredField(BIOGRAPHY, snippet));
+        }
+        if (source.profileImageUrl() != null) {
+            doc.add(new StoredField(PROFILE_IMAGE_URL, source.profileImageUrl()));
+        }
+        return doc;
+    }
+
+    private static FieldType textWithoutNorms() {
+        FieldType type = new FieldType(TextField.TYPE_NOT_STORED);
+        type.setOmitNorms(true);
+        type.freeze();
+        return type;
+    }
+
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> words(String folded) {
+        List<String> words = new ArrayList<>();
+        for (String word : WORD_SEPARATOR.split(folded)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        // Termina a escrita em andamento antes de fechar o writer
+        writerThread.shutdown();
+        try {
+            writerThread.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IOUtils.close(searcherManager, writer, directory);
+        IOUtils.rm(path);
+    }
+}
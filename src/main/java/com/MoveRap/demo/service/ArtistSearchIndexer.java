@@ -0,0 +1,77 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.Dtos.ArtistSearchDocDto;
+import com.MoveRap.demo.repository.UserPageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Carrega o índice da busca de artistas a partir do banco, em segundo plano após o boot,
+ * em lotes por keyset de id do usuário. Enquanto carrega, a busca devolve o que já foi indexado;
+ * escritas concorrentes nas páginas prevalecem sobre os lotes lidos antes delas.
+ */
+@Component
+public class ArtistSearchIndexer {
+
+    // Lotes entre cada publicação do que já foi carregado para as buscas
+    private static final int REFRESH_EVERY_BATCHES = 50;
+
+    private final UserPageRepository userPageRepository;
+    private final ArtistSearchIndex index;
+    private final BackgroundThreads backgroundThreads;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public ArtistSearchIndexer(UserPageRepository userPageRepository,
+                               ArtistSearchIndex index,
+                               BackgroundThreads backgroundThreads,
+                               @Value("${search.index.load-on-startup:true}") boolean enabled,
+                               @Value("${search.index.batch-size:1000}") int batchSize) {
+        this.userPageRepository = userPageRepository;
+        this.index = index;
+        this.backgroundThreads = backgroundThreads;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        backgroundThreads.start("artist-search-indexer", this::loadAll);
+    }
+
+    /**
+     * @return número de páginas indexadas
+     */
+    public int loadAll() {
+        int loaded = 0;
+        int batches = 0;
+        long afterId = 0;
+        index.beginLoad();
+        try {
+            while (true) {
+                List<ArtistSearchDocDto> docs = userPageRepository.findSearchDocs(afterId, PageRequest.of(0, batchSize));
+                if (docs.isEmpty()) {
+                    break;
+                }
+                index.load(docs);
+                loaded += docs.size();
+                if (++batches % REFRESH_EVERY_BATCHES == 0) {
+                    index.refresh();
+                }
+                afterId = docs.get(docs.size() - 1).userId();
+            }
+        } finally {
+            index.finishLoad();
+        }
+        System.out.println("[SEARCH] " + loaded + " páginas indexadas para a busca de artistas");
+        return loaded;
+    }
+}
@@ -0,0 +1,93 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.Dtos.ArtistSearchDocDto;
+import com.MoveRap.demo.Dtos.ArtistSearchPageDto;
+import com.MoveRap.demo.model.UserPage;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Busca de artistas por username (exato, prefixo, aproximado) e biografia, com ranking por relevância
+ * e paginação por keyset. O índice é o {@link ArtistSearchIndex}, mantido em dia pelas escritas de página.
+ * O cursor é opaco para o cliente: {@code base64url("score:id")} do último resultado devolvido.
+ */
+@Service
+public class ArtistSearchService {
+
+    static final int MIN_QUERY_LENGTH = 2;
+    static final int MAX_QUERY_LENGTH = 64;
+    static final int MAX_PAGE_SIZE = 50;
+
+    private final ArtistSearchIndex index;
+
+    public ArtistSearchService(ArtistSearchIndex index) {
+        this.index = index;
+    }
+
+    public ArtistSearchPageDto search(String query, int limit, String cursor) {
+        String q = normalize(query);
+        if (q.length() < MIN_QUERY_LENGTH || q.length() > MAX_QUERY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A busca deve ter entre " + MIN_QUERY_LENGTH + " e " + MAX_QUERY_LENGTH + " caracteres");
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        ArtistSearchIndex.Hit after = cursor == null || cursor.isBlank() ? null : decodeCursor(cursor);
+
+        // Um resultado a mais indica se existe próxima página
+        List<ArtistSearchIndex.Hit> hits = index.search(q, pageSize + 1, after);
+        boolean hasMore = hits.size() > pageSize;
+        List<ArtistSearchIndex.Hit> page = hasMore ? hits.subList(0, pageSize) : hits;
+        List<ArtistSearchPageDto.Result> results = new ArrayList<>(page.size());
+        for (ArtistSearchIndex.Hit hit : page) {
+            results.add(new ArtistSearchPageDto.Result(hit.username(), hit.biography(), hit.profileImageUrl(), hit.score()));
+        }
+        String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1)) : null;
+        return new ArtistSearchPageDto(results, nextCursor);
+    }
+
+    /**
+     * Chamado após cada escrita na página do usuário.
+     */
+    public void indexPage(Long userId, String username, UserPage page) {
+        indexPage(userId, username, page.getBiography(), page.getProfileImageUrl());
+    }
+
+    public void indexPage(Long userId, String username, String biography, String profileImageUrl) {
+        index.index(new ArtistSearchDocDto(userId, username, biography, profileImageUrl));
+    }
+
+    public void removePage(Long userId) {
+        index.delete(userId);
+    }
+
+    static String encodeCursor(ArtistSearchIndex.Hit last) {
+        // Float.toString/parseFloat fazem ida e volta exata: o empate no score é comparado sem erro
+        String raw = Float.toString(last.score()) + ":" + last.userId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ArtistSearchIndex.Hit decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            float score = Float.parseFloat(raw.substring(0, separator));
+            long id = Long.parseLong(raw.substring(separator + 1));
+            return new ArtistSearchIndex.Hit(id, null, null, null, score);
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor inválido");
+        }
+    }
+
+    static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        return query.trim().replaceAll("\\s+", " ");
+    }
+}
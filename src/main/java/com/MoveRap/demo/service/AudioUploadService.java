@@ -0,0 +1,563 @@
+package com.MoveRap.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Upload retomável de faixas de áudio em partes, para arquivos de dezenas de MB em conexões móveis.
+ *
+ * Cada sessão é um diretório em {@code .tmp/audio/{id}} com os metadados, um único arquivo de dados e um
+ * marcador por parte recebida. Cada parte é gravada direto na sua posição do arquivo (escrita posicional),
+ * então as partes podem chegar em qualquer ordem, em paralelo ou repetidas, e não há concatenação no fim.
+ * O arquivo não é pré-alocado: fica esparso e ocupa disco conforme as partes chegam. O que cada usuário
+ * pode declarar é limitado por {@code max-sessions-per-owner} e {@code max-pending-bytes-per-owner}.
+ * O marcador só é criado depois de o SHA-256 da parte conferir e os bytes irem para o disco: após uma
+ * queda, o cliente consulta a sessão e reenvia só as partes sem marcador. Só um PUT por parte grava de cada
+ * vez (um segundo, simultâneo, recebe 409), e a conclusão confere de novo o SHA-256 de cada parte.
+ *
+ * Na conclusão, a assinatura (magic bytes) define o formato e o arquivo vai para o BlobStorage com o
+ * SHA-256 do conteúdo como nome, como as imagens. A reprodução usa /uploads (Range, sendfile).
+ * As sessões ficam no disco local da instância que as criou.
+ */
+@Service
+public class AudioUploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SIGNATURE_LENGTH = 12;
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-fA-F]{64}");
+    private static final Pattern SESSION_ID = Pattern.compile("[0-9a-f]{8}(-[0-9a-f]{4}){3}-[0-9a-f]{12}");
+    private static final String SESSIONS = "audio";
+    private static final String METADATA = "session.properties";
+    private static final String DATA = "data.part";
+    private static final String CHUNKS = "chunks";
+    // Marcas principais (ftyp) que já dizem "só áudio"; as genéricas dependem das faixas do arquivo
+    private static final Set<String> AUDIO_MPEG4_BRANDS = Set.of("M4A ", "M4B ");
+    private static final Set<String> GENERIC_MPEG4_BRANDS = Set.of("isom", "iso2", "mp41", "mp42");
+    // Caixas lidas por nível ao procurar as faixas de um MP4; um arquivo real tem poucas
+    private static final int MAX_MPEG4_BOXES = 1000;
+
+    private final UploadDirectory uploadDirectory;
+    private final BlobStorage blobStorage;
+    private final long maxBytes;
+    private final int chunkBytes;
+    private final Duration sessionTtl;
+    private final int maxSessionsPerOwner;
+    private final long maxPendingBytesPerOwner;
+    // Conferir os limites e criar a sessão juntos; lock e não synchronized, que prenderia a carrier durante o I/O
+    private final ReentrantLock creating = new ReentrantLock();
+    // Partes sendo gravadas agora ({id}/{índice}); sem bloquear: o corpo chega pela rede no ritmo do cliente
+    private final Set<String> writing = ConcurrentHashMap.newKeySet();
+
+    public record UploadSession(String id, long size, int chunkSize, int chunkCount, List<Integer> received) {
+    }
+
+    public record StoredAudio(String filename, String sha256, long size) {
+    }
+
+    private record Mpeg4Box(long contentStart, long end) {
+    }
+
+    private record Metadata(String owner, long size, int chunkSize) {
+        int chunkCount() {
+            return (int) ((size + chunkSize - 1) / chunkSize);
+        }
+
+        long chunkLength(int index) {
+            return Math.min(chunkSize, size - (long) index * chunkSize);
+        }
+    }
+
+    public AudioUploadService(UploadDirectory uploadDirectory,
+                              BlobStorage blobStorage,
+                              @Value("${audio.upload.max-bytes:104857600}") long maxBytes,
+                              @Value("${audio.upload.chunk-bytes:1048576}") int chunkBytes,
+                              @Value("${audio.upload.session-ttl-hours:24}") long sessionTtlHours,
+                              @Value("${audio.upload.max-sessions-per-owner:3}") int maxSessionsPerOwner,
+                              @Value("${audio.upload.max-pending-bytes-per-owner:314572800}") long maxPendingBytesPerOwner) {
+        this.uploadDirectory = uploadDirectory;
+        this.blobStorage = blobStorage;
+        this.maxBytes = maxBytes;
+        this.chunkBytes = chunkBytes;
+        this.sessionTtl = Duration.ofHours(sessionTtlHours);
+        this.maxSessionsPerOwner = maxSessionsPerOwner;
+        this.maxPendingBytesPerOwner = maxPendingBytesPerOwner;
+    }
+
+    public UploadSession create(String owner, long size) {
+        if (size <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Arquivo vazio");
+        }
+        if (size > maxBytes) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Arquivo muito grande. Máximo: " + maxBytes / (1024 * 1024) + "MB");
+        }
+        purgeExpired();
+        creating.lock();
+        try {
+            checkOwnerLimits(owner, size);
+            return createSession(owner, size);
+        } finally {
+            creating.unlock();
+        }
+    }
+
+    /*
+     * Sessões abertas e bytes declarados do usuário, contando a nova. Sem limite, um usuário criaria sessões
+     * de max-bytes à vontade e os arquivos esparsos cresceriam até encher o disco.
+     */
+    private void checkOwnerLimits(String owner, long size) {
+        int sessions = 0;
+        long pendingBytes = 0;
+        Path root = sessionsRoot();
+        if (Files.isDirectory(root)) {
+            try (DirectoryStream<Path> all = Files.newDirectoryStream(root, Files::isDirectory)) {
+                for (Path session : all) {
+                    Properties properties = readMetadata(session);
+                    if (properties != null && owner.equals(properties.getProperty("owner"))) {
+                        sessions++;
+                        pendingBytes += Long.parseLong(properties.getProperty("size"));
+                    }
+                }
+            } catch (IOException e) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Erro ao iniciar upload: " + e.getMessage());
+            }
+        }
+        if (sessions + 1 > maxSessionsPerOwner || pendingBytes + size > maxPendingBytesPerOwner) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                "Muitos uploads de áudio em andamento. Conclua ou cancele os anteriores.");
+        }
+    }
+
+    private UploadSession createSession(String owner, long size) {
+        String id = UUID.randomUUID().toString();
+        Metadata metadata = new Metadata(owner, size, chunkBytes);
+        try {
+            Path session = Files.createDirectories(uploadDirectory.tempDir().resolve(SESSIONS).resolve(id));
+            Files.createDirectories(session.resolve(CHUNKS));
+            Files.createFile(session.resolve(DATA));
+            Properties properties = new Properties();
+            properties.setProperty("owner", owner);
+            properties.setProperty("size", Long.toString(size));
+            properties.setProperty("chunkSize", Integer.toString(chunkBytes));
+            try (Writer writer = Files.newBufferedWriter(session.resolve(METADATA))) {
+                properties.store(writer, null);
+            }
+            return session(id, metadata, session);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Erro ao iniciar upload: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Partes já recebidas, para o cliente retomar de onde parou.
+     */
+    public UploadSession status(String owner, String id) {
+        Path session = sessionDir(id);
+        try {
+            return session(id, metadata(owner, session), session);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Erro ao ler upload: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Grava a parte {@code index} na sua posição do arquivo. Reenviar uma parte já confirmada não faz nada.
+     */
+    public UploadSession writeChunk(String owner, String id, int index, String sha256, InputStream body) {
+        Path session = sessionDir(id);
+        try {
+            Metadata metadata = metadata(owner, session);
+            if (index < 0 || index >= metadata.chunkCount()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Parte inválida");
+            }
+            if (sha256 == null || !SHA256_HEX.matcher(sha256).matches()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Checksum da parte ausente ou inválido");
+            }
+            Path marker = session.resolve(CHUNKS).resolve(Integer.toString(index));
+            String key = id + "/" + index;
+            if (!writing.add(key)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Parte " + index + " já está sendo enviada");
+            }
+            try {
+                // Conferido depois de reservar a parte: outro PUT pode ter terminado enquanto este chegava
+                if (!Files.exists(marker)) {
+                    write(session.resolve(DATA), (long) index * metadata.chunkSize(), metadata.chunkLength(index),
+                            sha256.toLowerCase(), body);
+                    // Marcador por move atômico: existe só depois dos bytes estarem no disco
+                    Path temp = Files.createTempFile(session.resolve(CHUNKS), "chunk", ".tmp");
+                    Files.writeString(temp, sha256.toLowerCase());
+                    Files.move(temp, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } finally {
+                writing.remove(key);
+            }
+            return session(id, metadata, session);
+        } catch (NoSuchFileException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload não encontrado");
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Erro ao salvar parte: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Confere que todas as partes chegaram, valida o formato e publica o arquivo com o nome do seu SHA-256.
+     */
+    public StoredAudio complete(String owner, String id) {
+        Path session = sessionDir(id);
+        try {
+            Metadata metadata = metadata(owner, session);
+            int missing = metadata.chunkCount() - received(session).size();
+            if (missing > 0) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload incompleto: faltam " + missing + " partes");
+            }
+            Path data = session.resolve(DATA);
+            byte[] signature = new byte[SIGNATURE_LENGTH];
+            String extension;
+            String sha256;
+            try (FileChannel channel = FileChannel.open(data, StandardOpenOption.READ)) {
+                int length = Math.max(channel.read(ByteBuffer.wrap(signature), 0), 0);
+                extension = audioExtension(signature, length);
+                if (extension == null && isGenericMpeg4(signature, length) && hasOnlyAudioTracks(channel)) {
+                    extension = ".m4a";
+                }
+                if (extension == null) {
+                    FileSystemUtils.deleteRecursively(session);
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Arquivo inválido. O conteúdo não corresponde a um áudio suportado (mp3, m4a, aac, ogg, flac ou wav)");
+                }
+                sha256 = digest(channel, metadata, session);
+            }
+            // Mesmo conteúdo, mesmo nome: reenviar a faixa não duplica o arquivo
+            String filename = sha256 + extension;
+            blobStorage.put(filename, data, MediaTypeFactory.getMediaType(filename)
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+            FileSystemUtils.deleteRecursively(session);
+            return new StoredAudio(filename, sha256, metadata.size());
+        } catch (NoSuchFileException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload não encontrado");
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Erro ao salvar arquivo: " + e.getMessage());
+        }
+    }
+
+    public void abort(String owner, String id) {
+        Path session = sessionDir(id);
+        try {
+            metadata(owner, session);
+            FileSystemUtils.deleteRecursively(session);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Erro ao cancelar upload: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove sessões sem atividade há mais que o TTL (uploads abandonados).
+     * @return número de sessões removidas
+     */
+    public int purgeExpired() {
+        Path root = sessionsRoot();
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        Instant cutoff = Instant.now().minus(sessionTtl);
+        int purged = 0;
+        try (DirectoryStream<Path> sessions = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path session : sessions) {
+                // O diretório de partes muda a cada parte confirmada
+                Path activity = Files.exists(session.resolve(CHUNKS)) ? session.resolve(CHUNKS) : session;
+                if (Files.getLastModifiedTime(activity).toInstant().isBefore(cutoff)) {
+                    FileSystemUtils.deleteRecursively(session);
+                    purged++;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("[AUDIO] Falha ao limpar sessões de upload: " + e.getMessage());
+        }
+        return purged;
+    }
+
+    /**
+     * Extensão correspondente à assinatura (magic bytes), ou null se não for um formato de áudio aceito.
+     */
+    static String audioExtension(byte[] signature, int length) {
+        if (length < 4) {
+            return null;
+        }
+        // MP3 com tag ID3v2: "ID3"
+        if (signature[0] == 'I' && signature[1] == 'D' && signature[2] == '3') {
+            return ".mp3";
+        }
+        // Frame sync de 11 bits: camada 00 é AAC (ADTS); as demais, MPEG áudio (MP3)
+        if (signature[0] == (byte) 0xFF && (signature[1] & 0xE0) == 0xE0) {
+            return (signature[1] & 0x06) == 0 ? ".aac" : ".mp3";
+        }
+        if (signature[0] == 'O' && signature[1] == 'g' && signature[2] == 'g' && signature[3] == 'S') {
+            return ".ogg";
+        }
+        if (signature[0] == 'f' && signature[1] == 'L' && signature[2] == 'a' && signature[3] == 'C') {
+            return ".flac";
+        }
+        // WAV: "RIFF" ... "WAVE"
+        if (length >= 12 && signature[0] == 'R' && signature[1] == 'I' && signature[2] == 'F' && signature[3] == 'F'
+                && signature[8] == 'W' && signature[9] == 'A' && signature[10] == 'V' && signature[11] == 'E') {
+            return ".wav";
+        }
+        // MPEG-4: caixa "ftyp" logo no início; só a marca principal de áudio basta (MP4 também é vídeo)
+        if (isMpeg4(signature, length) && AUDIO_MPEG4_BRANDS.contains(majorBrand(signature))) {
+            return ".m4a";
+        }
+        return null;
+    }
+
+    /**
+     * MP4 com marca genérica (isom, mp42...): pode ser áudio ou vídeo, ver {@link #hasOnlyAudioTracks}.
+     */
+    static boolean isGenericMpeg4(byte[] signature, int length) {
+        return isMpeg4(signature, length) && GENERIC_MPEG4_BRANDS.contains(majorBrand(signature));
+    }
+
+    private static boolean isMpeg4(byte[] signature, int length) {
+        return length >= 12 && signature[4] == 'f' && signature[5] == 't' && signature[6] == 'y' && signature[7] == 'p';
+    }
+
+    private static String majorBrand(byte[] signature) {
+        return new String(signature, 8, 4, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Percorre moov/trak/mdia/hdlr: ao menos uma faixa de som ("soun") e nenhuma de vídeo ("vide").
+     */
+    static boolean hasOnlyAudioTracks(FileChannel channel) throws IOException {
+        boolean sound = false;
+        for (Mpeg4Box moov : mpeg4Boxes(channel, 0, channel.size(), "moov")) {
+            for (Mpeg4Box trak : mpeg4Boxes(channel, moov.contentStart(), moov.end(), "trak")) {
+                for (Mpeg4Box mdia : mpeg4Boxes(channel, trak.contentStart(), trak.end(), "mdia")) {
+                    for (Mpeg4Box hdlr : mpeg4Boxes(channel, mdia.contentStart(), mdia.end(), "hdlr")) {
+                        // versão/flags (4 bytes) e pre_defined (4) antes do tipo
+                        ByteBuffer handler = ByteBuffer.allocate(4);
+                        if (hdlr.contentStart() + 12 > hdlr.end() || !readFully(channel, handler, hdlr.contentStart() + 8)) {
+                            return false;
+                        }
+                        String type = new String(handler.array(), StandardCharsets.ISO_8859_1);
+                        if (type.equals("vide")) {
+                            return false;
+                        }
+                        sound |= type.equals("soun");
+                    }
+                }
+            }
+        }
+        return sound;
+    }
+
+    /*
+     * Caixas do tipo pedido entre from e to. Tamanho 1: o real vem em 64 bits logo depois;
+     * 0: vai até o fim. Uma caixa malformada encerra a leitura do nível.
+     */
+    private static List<Mpeg4Box> mpeg4Boxes(FileChannel channel, long from, long to, String type) throws IOException {
+        List<Mpeg4Box> boxes = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(16);
+        long position = from;
+        for (int count = 0; count < MAX_MPEG4_BOXES && position + 8 <= to; count++) {
+            header.clear().limit(8);
+            if (!readFully(channel, header, position)) {
+                break;
+            }
+            long size = Integer.toUnsignedLong(header.getInt(0));
+            String boxType = new String(header.array(), 4, 4, StandardCharsets.ISO_8859_1);
+            long contentStart = position + 8;
+            if (size == 1) {
+                header.limit(16).position(8);
+                if (!readFully(channel, header, position + 8)) {
+                    break;
+                }
+                size = header.getLong(8);
+                contentStart += 8;
+            } else if (size == 0) {
+                size = to - position;
+            }
+            if (size < contentStart - position || size > to - position) {
+                break;
+            }
+            if (boxType.equals(type)) {
+                boxes.add(new Mpeg4Box(contentStart, position + size));
+            }
+            position += size;
+        }
+        return boxes;
+    }
+
+    // Completa o buffer lendo a partir de position; false se o arquivo acabar antes
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long next = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, next);
+            if (read < 0) {
+                return false;
+            }
+            next += read;
+        }
+        return true;
+    }
+
+    private static void write(Path data, long offset, long expected, String sha256, InputStream body) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(data, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = body.readNBytes(buffer, 0, (int) Math.min(buffer.length, expected - written + 1))) > 0) {
+                if (written + read > expected) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Parte maior que o esperado (" + expected + " bytes)");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    written += channel.write(chunk, offset + written);
+                }
+            }
+            if (written != expected) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Parte incompleta: " + written + " de " + expected + " bytes");
+            }
+            if (!HexFormat.of().formatHex(digest.digest()).equals(sha256)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Checksum da parte não confere");
+            }
+            channel.force(false);
+        }
+    }
+
+    /*
+     * SHA-256 do arquivo inteiro e, na mesma leitura, o de cada parte contra o do seu marcador. Parte que
+     * não confere perde o marcador (o cliente a reenvia) e a conclusão responde 409.
+     */
+    private static String digest(FileChannel channel, Metadata metadata, Path session) throws IOException {
+        MessageDigest digest = sha256();
+        MessageDigest chunkDigest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, metadata.chunkSize()));
+        long position = 0;
+        int index = 0;
+        long chunkEnd = metadata.chunkLength(0);
+        int read;
+        while (position < metadata.size()
+                && (read = channel.read(buffer.limit((int) Math.min(buffer.capacity(), chunkEnd - position)), position)) > 0) {
+            position += read;
+            buffer.flip();
+            digest.update(buffer.duplicate());
+            chunkDigest.update(buffer);
+            buffer.clear();
+            if (position == chunkEnd) {
+                verifyChunk(session, index, HexFormat.of().formatHex(chunkDigest.digest()));
+                index++;
+                chunkEnd += index < metadata.chunkCount() ? metadata.chunkLength(index) : 0;
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void verifyChunk(Path session, int index, String actual) throws IOException {
+        Path marker = session.resolve(CHUNKS).resolve(Integer.toString(index));
+        if (!Files.readString(marker).equals(actual)) {
+            Files.deleteIfExists(marker);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Parte " + index + " corrompida; envie-a novamente");
+        }
+    }
+
+    private UploadSession session(String id, Metadata metadata, Path session) throws IOException {
+        return new UploadSession(id, metadata.size(), metadata.chunkSize(), metadata.chunkCount(), received(session));
+    }
+
+    private static List<Integer> received(Path session) throws IOException {
+        List<Integer> received = new ArrayList<>();
+        try (Stream<Path> markers = Files.list(session.resolve(CHUNKS))) {
+            markers.map(marker -> marker.getFileName().toString())
+                    .filter(name -> !name.endsWith(".tmp"))
+                    .forEach(name -> received.add(Integer.parseInt(name)));
+        }
+        received.sort(null);
+        return received;
+    }
+
+    /**
+     * Sessão de outro usuário responde como inexistente.
+     */
+    private static Metadata metadata(String owner, Path session) throws IOException {
+        Properties properties = readMetadata(session);
+        if (properties == null || !owner.equals(properties.getProperty("owner"))) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload não encontrado");
+        }
+        return new Metadata(owner, Long.parseLong(properties.getProperty("size")),
+                Integer.parseInt(properties.getProperty("chunkSize")));
+    }
+
+    /**
+     * @return null se a sessão não existe (ou ainda está sendo criada)
+     */
+    private static Properties readMetadata(Path session) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(session.resolve(METADATA))) {
+            properties.load(reader);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return properties;
+    }
+
+    private Path sessionDir(String id) {
+        if (id == null || !SESSION_ID.matcher(id).matches()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload não encontrado");
+        }
+        return sessionsRoot().resolve(id);
+    }
+
+    private Path sessionsRoot() {
+        return uploadDirectory.root().resolve(".tmp").resolve(SESSIONS);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -2,7 +2,10 @@ package com.MoveRap.demo.service;
 
 import com.MoveRap.demo.Dtos.UserCadastroDto;
 import com.MoveRap.demo.Dtos.UserDetalhamentoDto;
+import com.MoveRap.demo.Dtos.UserIdentityDto;
 import com.MoveRap.demo.Dtos.UserLoginDto;
+import com.MoveRap.demo.Dtos.UserSenhaDto;
+import com.MoveRap.demo.Dtos.UserTokenDto;
 import com.MoveRap.demo.model.UserModel;
 import com.MoveRap.demo.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,10 +17,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import static org.springframework.http.HttpStatus.UNAUTHORIZED;
 import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class AuthService {
@@ -25,10 +24,12 @@ public class AuthService {
     private UserRepository userRepository;
     @Autowired
     private PasswordEncoder passwordEncoder;
-    private static final int MAX_LOGIN_ATTEMPTS = 5;
-    private static final int LOCKOUT_DURATION_MINUTES = 15;
-    private final Map<String, Integer> loginAttempts = new ConcurrentHashMap<>();
-    private final Map<String, LocalDateTime> lockoutTime = new ConcurrentHashMap<>();
+    @Autowired
+    private TokenService tokenService;
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+    @Autowired
+    private LoginThrottle loginThrottle;
 
     public UserDetalhamentoDto registerUser(UserCadastroDto userCadastroDto) {
         UserModel user = new UserModel();
@@ -36,43 +37,83 @@ public class AuthService {
         user.setEmail(userCadastroDto.getEmail());
         user.setPassword(passwordEncoder.encode(userCadastroDto.getPassword()));
         user = userRepository.save(user);
+        userIdentityCache.invalidate(user);
         return new UserDetalhamentoDto(user.getId(), user.getUsername(), user.getEmail());
     }
-    public UserDetalhamentoDto authenticateUser(String emailOrUsername, String password) {
+    public UserDetalhamentoDto authenticateUser(String emailOrUsername, String password, String clientIp) {
+        UserIdentityDto user = authenticate(emailOrUsername, password, clientIp);
+        if (user == null) {
+            return null;
+        }
+        return new UserDetalhamentoDto(user.id(), user.username(), user.email());
+    }
+    private UserIdentityDto authenticate(String emailOrUsername, String password, String clientIp) {
         // Remover logs de segurança que expunham dados sensíveis
         
-        // Verificar se a conta está bloqueada
-        if (isAccountLocked(emailOrUsername)) {
-            long minutesRemaining = getMinutesUntilUnlock(emailOrUsername);
+        // Verificar se a conta ou o IP estão bloqueados
+        long accountLockSeconds = loginThrottle.accountLockRemainingSeconds(emailOrUsername);
+        if (accountLockSeconds > 0) {
             throw new ResponseStatusException(TOO_MANY_REQUESTS, 
-                "Conta temporariamente bloqueada devido a múltiplas tentativas de login falhadas. Tente novamente em " + minutesRemaining + " minuto(s).");
+                "Conta temporariamente bloqueada devido a múltiplas tentativas de login falhadas. Tente novamente em " + toMinutes(accountLockSeconds) + " minuto(s).");
         }
-        UserModel user = userRepository.findByEmail(emailOrUsername);
-        if (user == null) {
-            user = userRepository.findByUsername(emailOrUsername);
+        long ipLockSeconds = clientIp != null ? loginThrottle.ipLockRemainingSeconds(clientIp) : 0;
+        if (ipLockSeconds > 0) {
+            throw new ResponseStatusException(TOO_MANY_REQUESTS, 
+                "Muitas tentativas de login falhadas a partir deste endereço. Tente novamente em " + toMinutes(ipLockSeconds) + " minuto(s).");
         }
+        UserIdentityDto user = userIdentityCache.findByLogin(emailOrUsername);
         if (user != null) {
-            if (passwordEncoder.matches(password, user.getPassword())) {
+            if (passwordEncoder.matches(password, user.passwordHash())) {
                 // Login bem-sucedido - resetar contador de tentativas
-                resetLoginAttempts(emailOrUsername);
-                return new UserDetalhamentoDto(user.getId(), user.getUsername(), user.getEmail());
+                loginThrottle.resetAccount(emailOrUsername);
+                if (passwordEncoder.upgradeEncoding(user.passwordHash())) {
+                    upgradePasswordHash(user, password);
+                }
+                return user;
             } else {
                 // Incrementar tentativas falhadas
-                recordFailedLoginAttempt(emailOrUsername);
+                recordFailedLoginAttempt(emailOrUsername, clientIp);
             }
         } else {
             // Incrementar tentativas falhadas mesmo se usuário não existir (segurança)
-            recordFailedLoginAttempt(emailOrUsername);
+            recordFailedLoginAttempt(emailOrUsername, clientIp);
         }
         return null;
     }
-    public UserDetalhamentoDto loginUser(UserLoginDto userLoginDto) {
-        return authenticateUser(userLoginDto.getEmail(), userLoginDto.getPassword());
+    public UserTokenDto loginUser(UserLoginDto userLoginDto, String clientIp) {
+        UserIdentityDto user = authenticate(userLoginDto.getEmail(), userLoginDto.getPassword(), clientIp);
+        if (user == null) {
+            return null;
+        }
+        // BCrypt roda apenas aqui; as requisições seguintes usam o token assinado
+        TokenService.IssuedToken issued = tokenService.issueToken(user.id(), user.username(), user.credentialsEpoch());
+        return new UserTokenDto(user.id(), user.username(), user.email(), issued.token(), issued.expiresAt());
     }
-    public UserDetalhamentoDto getUserDetailsByUsername(String username) {
+    public void changePassword(String username, UserSenhaDto userSenhaDto) {
         UserModel user = userRepository.findByUsername(username);
+        if (user == null || !passwordEncoder.matches(userSenhaDto.getCurrentPassword(), user.getPassword())) {
+            throw new ResponseStatusException(UNAUTHORIZED, "Senha atual inválida");
+        }
+        user.setPassword(passwordEncoder.encode(userSenhaDto.getNewPassword()));
+        // Novo epoch invalida todos os tokens emitidos com a senha anterior
+        user.setCredentialsEpoch(user.getCredentialsEpoch() + 1);
+        userRepository.save(user);
+        userIdentityCache.invalidate(user);
+        tokenService.revokeTokens(user.getId(), user.getCredentialsEpoch());
+    }
+    private void upgradePasswordHash(UserIdentityDto user, String password) {
+        try {
+            // Hash gerado com custo diferente do calibrado: refaz com a senha já validada
+            userRepository.updatePasswordHash(user.id(), user.passwordHash(), passwordEncoder.encode(password));
+            userIdentityCache.invalidate(user.username(), user.email());
+        } catch (PasswordHashingUnavailableException e) {
+            // Melhor esforço: fila cheia, tenta novamente no próximo login
+        }
+    }
+    public UserDetalhamentoDto getUserDetailsByUsername(String username) {
+        UserIdentityDto user = userIdentityCache.findByUsername(username);
         if (user != null) {
-            return new UserDetalhamentoDto(user.getId(), user.getUsername(), user.getEmail());
+            return new UserDetalhamentoDto(user.id(), user.username(), user.email());
         }
         return null;
     }
@@ -84,45 +125,20 @@ public class AuthService {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.isAuthenticated() && authentication.getPrincipal() instanceof User) {
             User user = (User) authentication.getPrincipal();
-            UserModel userModel = userRepository.findByUsername(user.getUsername());
-            if (userModel != null) {
-                return new UserDetalhamentoDto(userModel.getId(), userModel.getUsername(), userModel.getEmail());
+            UserIdentityDto identity = userIdentityCache.findByUsername(user.getUsername());
+            if (identity != null) {
+                return new UserDetalhamentoDto(identity.id(), identity.username(), identity.email());
             }
         }
         throw new ResponseStatusException(UNAUTHORIZED, "Usuário não autenticado");
     }
-    private void recordFailedLoginAttempt(String emailOrUsername) {
-        int attempts = loginAttempts.getOrDefault(emailOrUsername, 0) + 1;
-        loginAttempts.put(emailOrUsername, attempts);
-        
-        if (attempts >= MAX_LOGIN_ATTEMPTS) {
-            lockoutTime.put(emailOrUsername, LocalDateTime.now());
+    private void recordFailedLoginAttempt(String emailOrUsername, String clientIp) {
+        if (loginThrottle.recordFailure(emailOrUsername, clientIp)) {
             // Log seguro - não expõe dados completos do usuário
-            System.out.println("[SECURITY] Conta bloqueada após " + attempts + " tentativas falhadas");
+            System.out.println("[SECURITY] Conta bloqueada após múltiplas tentativas falhadas");
         }
     }
-    private void resetLoginAttempts(String emailOrUsername) {
-        loginAttempts.remove(emailOrUsername);
-        lockoutTime.remove(emailOrUsername);
-    }
-    private boolean isAccountLocked(String emailOrUsername) {
-        if (!lockoutTime.containsKey(emailOrUsername)) {
-            return false;
-        }
-        LocalDateTime lockTime = lockoutTime.get(emailOrUsername);
-        LocalDateTime unlockTime = lockTime.plusMinutes(LOCKOUT_DURATION_MINUTES);
-        if (LocalDateTime.now().isAfter(unlockTime)) {
-            resetLoginAttempts(emailOrUsername);
-            return false;
-        }
-        return true;
-    }
-    private long getMinutesUntilUnlock(String emailOrUsername) {
-        LocalDateTime lockTime = lockoutTime.get(emailOrUsername);
-        if (lockTime == null) {
-            return 0;
-        }
-        LocalDateTime unlockTime = lockTime.plusMinutes(LOCKOUT_DURATION_MINUTES);
-        return ChronoUnit.MINUTES.between(LocalDateTime.now(), unlockTime) + 1;
+    private static long toMinutes(long seconds) {
+        return (seconds + 59) / 60;
     }
 }
\ No newline at end of file
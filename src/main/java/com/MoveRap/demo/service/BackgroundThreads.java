@@ -0,0 +1,53 @@
+package com.MoveRap.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads das tarefas de segundo plano (migrações, índice de busca, coletor, I/O de uploads).
+ *
+ * Com spring.threads.virtual.enabled=true são virtuais, como as de requisição do Tomcat; senão, threads
+ * de plataforma daemon. Os pools de trabalho pesado em CPU (BCrypt, decode de imagens) não passam por
+ * aqui: o limite de threads ali é o próprio controle de carga.
+ */
+@Component
+public class BackgroundThreads {
+
+    private final boolean virtual;
+
+    public BackgroundThreads(@Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Threads nomeadas {@code {prefix}-1}, {@code {prefix}-2}, ...
+     */
+    public ThreadFactory factory(String prefix) {
+        if (virtual) {
+            return Thread.ofVirtual().name(prefix + "-", 1).factory();
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public Thread start(String name, Runnable task) {
+        if (virtual) {
+            return Thread.ofVirtual().name(name).start(task);
+        }
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,85 @@
+package com.MoveRap.demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Onde ficam os bytes dos uploads (originais e variantes), por chave = nome do arquivo em /uploads/{nome}.
+ *
+ * Implementações: {@link LocalBlobStorage} (diretório local, padrão) e {@link S3BlobStorage}
+ * (S3 ou compatível, como MinIO), escolhidas por {@code storage.backend}. Os métodos com implementação
+ * padrão são capacidades que só um dos backends tem: arquivo local para sendfile ou URLs pré-assinadas.
+ */
+public interface BlobStorage {
+
+    /**
+     * PUT que o cliente deve fazer direto no armazenamento, com exatamente esses headers.
+     */
+    record DirectUpload(URI url, Map<String, String> headers, Instant expiresAt) {
+    }
+
+    boolean exists(String key);
+
+    /**
+     * @throws java.nio.file.NoSuchFileException se a chave não existe
+     */
+    long size(String key) throws IOException;
+
+    /**
+     * @throws java.nio.file.NoSuchFileException se a chave não existe
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Até {@code length} bytes do início do objeto (assinatura), sem ler o resto.
+     */
+    default byte[] readPrefix(String key, int length) throws IOException {
+        try (InputStream input = open(key)) {
+            return input.readNBytes(length);
+        }
+    }
+
+    /**
+     * Grava o arquivo sob a chave, substituindo o que houver. O arquivo de origem pode ser consumido
+     * (movido); quem chama apaga o que sobrar.
+     */
+    void put(String key, Path source, String contentType) throws IOException;
+
+    /**
+     * Renomeia dentro do próprio armazenamento, sem trafegar os bytes pela aplicação.
+     */
+    void move(String fromKey, String toKey) throws IOException;
+
+    /**
+     * @return true se havia algo para remover
+     */
+    boolean delete(String key) throws IOException;
+
+    /**
+     * Arquivo local com o conteúdo, quando o backend é um diretório (permite sendfile).
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * URL temporária para o cliente baixar direto do armazenamento; vazio se a aplicação serve os bytes.
+     */
+    default Optional<URI> downloadUrl(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * Autoriza o cliente a enviar o objeto direto para o armazenamento. O tamanho e o SHA-256 ficam na
+     * assinatura: um corpo diferente é recusado pelo próprio armazenamento.
+     * @return vazio se o backend só recebe uploads pela aplicação
+     */
+    default Optional<DirectUpload> presignUpload(String key, String contentType, long contentLength, String sha256Hex) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,180 @@
+package com.MoveRap.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt executado em um executor próprio e limitado, fora das threads do Tomcat.
+ * Com a fila cheia a requisição falha imediatamente (503) em vez de esperar.
+ * O custo é calibrado no boot para a latência alvo do host, nunca abaixo do custo dos hashes já
+ * armazenados; hashes com custo menor são marcados para rehash via {@link #upgradeEncoding(String)}.
+ * O rehash só sobe o custo: um host mais lento não enfraquece hashes existentes.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    static final int MIN_COST = 10;
+    static final int MAX_COST = 16;
+
+    private final BCryptPasswordEncoder delegate;
+    private final int cost;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMillis;
+    private final Timer hashTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    /**
+     * @param fixedCost custo fixo do BCrypt; se menor ou igual a zero, calibra para {@code targetMillis}
+     * @param storedCost maior custo entre os hashes já armazenados (piso da calibração); 0 se não houver
+     */
+    public BoundedPasswordEncoder(int threads, int queueCapacity, long maxWaitMillis,
+                                  int fixedCost, long targetMillis, int storedCost, MeterRegistry meterRegistry) {
+        this.cost = fixedCost > 0
+                ? fixedCost
+                : Math.max(calibrateCost(targetMillis), Math.min(storedCost, MAX_COST));
+        this.delegate = new BCryptPasswordEncoder(cost);
+        this.maxWaitMillis = maxWaitMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTimer = Timer.builder("auth.hashing.duration")
+                .description("Tempo de cada encode/matches do BCrypt")
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("auth.hashing.queue.wait")
+                .description("Tempo de espera na fila do executor de hashing")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.hashing.rejected")
+                .description("Operações recusadas com a fila cheia")
+                .register(meterRegistry);
+        Gauge.builder("auth.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Operações aguardando na fila de hashing")
+                .register(meterRegistry);
+        Gauge.builder("auth.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        Gauge.builder("auth.hashing.cost", this, BoundedPasswordEncoder::getCost)
+                .description("Custo do BCrypt calibrado no boot")
+                .register(meterRegistry);
+        System.out.println("[SECURITY] BCrypt configurado com custo " + cost);
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Só hashes com custo menor que o atual são refeitos no próximo login; os de custo maior ficam.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int encodedCost = parseCost(encodedPassword);
+        return encodedCost > 0 && encodedCost < cost;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T submit(Callable<T> task) {
+        long enqueuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                return hashTimer.recordCallable(task);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new PasswordHashingUnavailableException("Servidor ocupado. Tente novamente em instantes.");
+        }
+        try {
+            return future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new PasswordHashingUnavailableException("Servidor ocupado. Tente novamente em instantes.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new PasswordHashingUnavailableException("Operação interrompida");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Maior custo cuja latência de encode fica dentro do alvo, nunca abaixo de {@link #MIN_COST}.
+     */
+    static int calibrateCost(long targetMillis) {
+        int chosen = MIN_COST;
+        for (int candidate = MIN_COST; candidate <= MAX_COST; candidate++) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(candidate);
+            encoder.encode("calibracao"); // aquecimento do JIT
+            long start = System.nanoTime();
+            encoder.encode("calibracao");
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (elapsedMillis > targetMillis) {
+                break;
+            }
+            chosen = candidate;
+            // O próximo custo leva ~2x; evita medir um custo que certamente estoura o alvo
+            if (elapsedMillis * 2 > targetMillis) {
+                break;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Extrai o custo de um hash no formato {@code $2a$NN$...}; retorna -1 se não for BCrypt.
+     */
+    static int parseCost(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$'
+                || encodedPassword.charAt(3) != '$' || encodedPassword.charAt(6) != '$') {
+            return -1;
+        }
+        char tens = encodedPassword.charAt(4);
+        char units = encodedPassword.charAt(5);
+        if (!Character.isDigit(tens) || !Character.isDigit(units)) {
+            return -1;
+        }
+        return (tens - '0') * 10 + (units - '0');
+    }
+}
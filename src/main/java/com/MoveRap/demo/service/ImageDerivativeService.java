@@ -0,0 +1,318 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.repository.ImageDerivativeJobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Variantes redimensionadas das imagens enviadas, gravadas ao lado do original como
+ * {@code {nome}-{tamanho}.jpg} (ou .png quando a imagem tem transparência).
+ *
+ * A reencodificação descarta EXIF e demais metadados; a orientação do EXIF é aplicada antes, para a
+ * variante não sair deitada. O JDK não tem encoder WebP: JPEG é o formato compacto disponível.
+ * Originais WebP não têm decoder no JDK e ficam sem variantes (as leituras servem o original).
+ */
+@Service
+public class ImageDerivativeService {
+
+    // Acima disso o decode sozinho passaria de ~160 MB de heap (bomba de descompressão)
+    static final long MAX_PIXELS = 40_000_000L;
+    private static final float JPEG_QUALITY = 0.82f;
+    private static final int EXIF_SCAN_BYTES = 128 * 1024;
+
+    private final ImageDerivativeJobRepository jobRepository;
+    private final UploadDirectory uploadDirectory;
+    private final BlobStorage blobStorage;
+    private final int[] sizes;
+
+    public ImageDerivativeService(ImageDerivativeJobRepository jobRepository,
+                                  UploadDirectory uploadDirectory,
+                                  BlobStorage blobStorage,
+                                  @Value("${image.derivatives.sizes:64,256,1024}") int[] sizes) {
+        this.jobRepository = jobRepository;
+        this.uploadDirectory = uploadDirectory;
+        this.blobStorage = blobStorage;
+        this.sizes = Arrays.stream(sizes).sorted().toArray();
+    }
+
+    public void enqueue(String filename) {
+        Instant now = Instant.now();
+        // Mesmo conteúdo enviado de novo depois de uma falha: vale outra rodada de tentativas
+        jobRepository.resetFailed(filename, now);
+        jobRepository.enqueue(filename, now);
+    }
+
+    /**
+     * Remove as variantes e o job de um original que saiu do disco.
+     * @return bytes liberados pelas variantes removidas
+     */
+    public long forget(String filename) {
+        long freed = 0;
+        for (int size : sizes) {
+            for (String extension : new String[] {".jpg", ".png"}) {
+                String variant = variantName(filename, size, extension);
+                try {
+                    Optional<Path> path = blobStorage.localPath(variant);
+                    if (path.isPresent()) {
+                        freed += Files.size(path.get());
+                    }
+                    blobStorage.delete(variant);
+                } catch (NoSuchFileException e) {
+                    // Removida entre a consulta e o delete
+                } catch (IOException e) {
+                    System.out.println("[DERIVATIVES] Falha ao remover variante de " + filename + ": " + e.getMessage());
+                }
+            }
+        }
+        jobRepository.deleteByFilename(filename);
+        return freed;
+    }
+
+    /**
+     * Nome da menor variante com pelo menos {@code requested} px (ou da maior existente), se já foi gerada.
+     */
+    public Optional<String> variant(String filename, int requested) {
+        int chosen = sizes[sizes.length - 1];
+        for (int size : sizes) {
+            if (size >= requested) {
+                chosen = size;
+                break;
+            }
+        }
+        for (String extension : new String[] {".jpg", ".png"}) {
+            String variant = variantName(filename, chosen, extension);
+            if (blobStorage.exists(variant)) {
+                return Optional.of(variant);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Gera todas as variantes do original.
+     * @return número de variantes gravadas; 0 se o formato não tem decoder no JDK
+     */
+    public int render(String filename) throws IOException {
+        Optional<Path> local = blobStorage.localPath(filename);
+        // Armazenamento remoto: o original é baixado uma vez para um temporário
+        Path original = local.isPresent() ? local.get() : download(filename);
+        try {
+            return render(filename, original);
+        } finally {
+            if (local.isEmpty()) {
+                Files.deleteIfExists(original);
+            }
+        }
+    }
+
+    private int render(String filename, Path original) throws IOException {
+        BufferedImage image = read(original);
+        if (image == null) {
+            return 0;
+        }
+        image = orient(image, exifOrientation(original));
+        boolean alpha = image.getColorModel().hasAlpha();
+        String extension = alpha ? ".png" : ".jpg";
+        for (int size : sizes) {
+            BufferedImage scaled = scale(image, size, alpha);
+            Path temp = Files.createTempFile(uploadDirectory.tempDir(), "variant", ".tmp");
+            try {
+                if (alpha) {
+                    ImageIO.write(scaled, "png", temp.toFile());
+                } else {
+                    writeJpeg(scaled, temp);
+                }
+                blobStorage.put(variantName(filename, size, extension), temp, alpha ? "image/png" : "image/jpeg");
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return sizes.length;
+    }
+
+    /**
+     * @throws NoSuchFileException se o original não existe mais
+     */
+    private Path download(String filename) throws IOException {
+        try (InputStream input = blobStorage.open(filename)) {
+            Path temp = Files.createTempFile(uploadDirectory.tempDir(), "original", ".tmp");
+            try {
+                Files.copy(input, temp, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            return temp;
+        }
+    }
+
+    static String variantName(String filename, int size, String extension) {
+        int dot = filename.lastIndexOf('.');
+        return filename.substring(0, dot) + "-" + size + extension;
+    }
+
+    /**
+     * Decodifica só depois de conferir as dimensões no cabeçalho; metadados são ignorados.
+     */
+    private static BufferedImage read(Path path) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > MAX_PIXELS) {
+                    throw new IOException("Imagem com " + pixels + " pixels, acima do limite de " + MAX_PIXELS);
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reduz para caber em {@code size} x {@code size}, metade por vez (bilinear) até o passo final:
+     * um único passo bilinear de 4000 para 64 px perderia quase todos os pixels de origem.
+     */
+    static BufferedImage scale(BufferedImage source, int size, boolean alpha) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) size / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        BufferedImage current = source;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height, alpha, null);
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, boolean alpha, AffineTransform transform) {
+        BufferedImage target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (transform != null) {
+                graphics.drawImage(source, transform, null);
+            } else {
+                graphics.drawImage(source, 0, 0, width, height, null);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path path) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(path.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Aplica a orientação EXIF (1 a 8) aos pixels.
+     */
+    static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation < 2 || orientation > 8) {
+            return image;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);
+            default -> new AffineTransform(0, -1, 1, 0, 0, w);
+        };
+        boolean swap = orientation >= 5;
+        return draw(image, swap ? h : w, swap ? w : h, image.getColorModel().hasAlpha(), transform);
+    }
+
+    /**
+     * Tag Orientation (0x0112) do IFD0 no segmento APP1/Exif de um JPEG; 1 se ausente.
+     */
+    static int exifOrientation(Path path) {
+        byte[] head;
+        try (InputStream input = Files.newInputStream(path)) {
+            head = input.readNBytes(EXIF_SCAN_BYTES);
+        } catch (IOException e) {
+            return 1;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(head);
+        if (head.length < 4 || (head[0] & 0xFF) != 0xFF || (head[1] & 0xFF) != 0xD8) {
+            return 1;
+        }
+        try {
+            int offset = 2;
+            while (offset + 4 <= head.length && (head[offset] & 0xFF) == 0xFF) {
+                int marker = head[offset + 1] & 0xFF;
+                int length = buffer.getShort(offset + 2) & 0xFFFF;
+                // SOS: dali em diante são os dados da imagem
+                if (marker == 0xDA) {
+                    return 1;
+                }
+                int segment = offset + 4;
+                if (marker == 0xE1 && segment + 6 <= head.length
+                        && new String(head, segment, 4, StandardCharsets.US_ASCII).equals("Exif")) {
+                    int tiff = segment + 6;
+                    buffer.order(head[tiff] == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+                    int ifd = tiff + buffer.getInt(tiff + 4);
+                    int entries = buffer.getShort(ifd) & 0xFFFF;
+                    for (int i = 0; i < entries; i++) {
+                        int entry = ifd + 2 + i * 12;
+                        if ((buffer.getShort(entry) & 0xFFFF) == 0x0112) {
+                            return buffer.getShort(entry + 8) & 0xFFFF;
+                        }
+                    }
+                    return 1;
+                }
+                offset += 2 + length;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // EXIF truncado ou malformado: trata como sem orientação
+        }
+        return 1;
+    }
+}
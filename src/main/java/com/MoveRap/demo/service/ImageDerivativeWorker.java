@@ -0,0 +1,215 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.model.ImageDerivativeJob;
+import com.MoveRap.demo.repository.ImageDerivativeJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executa a fila de image_derivative_job em segundo plano, com no máximo {@code workers} imagens
+ * sendo processadas ao mesmo tempo (decode e resize são pesados em CPU e memória).
+ *
+ * A fila fica no banco. Um job RUNNING tem a reserva renovada (updated_at) a cada terço de
+ * {@code lease-seconds} enquanto roda; se a renovação para por mais que isso (processo morto), qualquer
+ * instância o devolve para a fila. Jobs que outra instância ainda está executando não são tocados. Um upload acorda o despachante na hora; sem sinal ele consulta a fila a cada
+ * {@link #POLL_INTERVAL_SECONDS}s, o que também pega jobs criados por outra instância.
+ */
+@Component
+public class ImageDerivativeWorker {
+
+    static final int MAX_ATTEMPTS = 3;
+    private static final long POLL_INTERVAL_SECONDS = 30;
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final ImageDerivativeJobRepository jobRepository;
+    private final ImageDerivativeService derivativeService;
+    private final BackgroundThreads backgroundThreads;
+    private final boolean enabled;
+    private final int workers;
+    private final Duration lease;
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private final Semaphore slots;
+    private final Semaphore wakeUp = new Semaphore(0);
+    private ExecutorService executor;
+    private volatile boolean stopped;
+
+    public ImageDerivativeWorker(ImageDerivativeJobRepository jobRepository,
+                                 ImageDerivativeService derivativeService,
+                                 BackgroundThreads backgroundThreads,
+                                 @Value("${image.derivatives.enabled:true}") boolean enabled,
+                                 @Value("${image.derivatives.workers:2}") int workers,
+                                 @Value("${image.derivatives.lease-seconds:300}") long leaseSeconds) {
+        this.jobRepository = jobRepository;
+        this.derivativeService = derivativeService;
+        this.backgroundThreads = backgroundThreads;
+        this.enabled = enabled;
+        this.workers = Math.max(1, workers);
+        this.lease = Duration.ofSeconds(Math.max(3, leaseSeconds));
+        this.slots = new Semaphore(this.workers);
+    }
+
+    /**
+     * Chamado após um upload bem-sucedido.
+     */
+    public void enqueue(String filename) {
+        derivativeService.enqueue(filename);
+        wakeUp.release();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        requeueExpired();
+        // Decode e resize ocupam CPU o tempo todo: threads de plataforma mesmo no modo virtual
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "image-derivative-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        backgroundThreads.start("image-derivative-dispatcher", this::dispatch);
+        backgroundThreads.start("image-derivative-lease", this::renewLeases);
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        wakeUp.release();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void dispatch() {
+        while (!stopped) {
+            try {
+                List<Long> ids = jobRepository.findIdsByStatus(ImageDerivativeJob.Status.PENDING,
+                        PageRequest.of(0, workers * 4));
+                if (ids.isEmpty()) {
+                    wakeUp.tryAcquire(POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+                    wakeUp.drainPermits();
+                    continue;
+                }
+                for (Long id : ids) {
+                    // Bloqueia enquanto todos os workers estão ocupados: a fila em memória nunca cresce
+                    slots.acquire();
+                    if (stopped || jobRepository.claim(id, Instant.now()) == 0) {
+                        slots.release();
+                        continue;
+                    }
+                    running.add(id);
+                    executor.execute(() -> {
+                        try {
+                            process(id);
+                        } finally {
+                            running.remove(id);
+                            slots.release();
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Banco indisponível etc.: tenta de novo no próximo ciclo
+                System.out.println("[DERIVATIVES] Falha ao consultar a fila: " + e.getMessage());
+                try {
+                    TimeUnit.SECONDS.sleep(POLL_INTERVAL_SECONDS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void renewLeases() {
+        while (!stopped) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(lease.toMillis() / 3);
+                if (!running.isEmpty()) {
+                    jobRepository.touch(Set.copyOf(running), Instant.now());
+                }
+                requeueExpired();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.out.println("[DERIVATIVES] Falha ao renovar as reservas: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Devolve para a fila os jobs RUNNING cuja reserva venceu.
+     * @return número de jobs devolvidos
+     */
+    int requeueExpired() {
+        Instant now = Instant.now();
+        int requeued = jobRepository.requeueExpired(now.minus(lease), now);
+        if (requeued > 0) {
+            System.out.println("[DERIVATIVES] " + requeued + " jobs interrompidos voltaram para a fila");
+            wakeUp.release();
+        }
+        return requeued;
+    }
+
+    /**
+     * Processa na thread atual tudo o que está pendente (usado nos testes e em manutenção).
+     * @return número de jobs concluídos
+     */
+    public int processPending() {
+        int done = 0;
+        List<Long> ids;
+        while (!(ids = jobRepository.findIdsByStatus(ImageDerivativeJob.Status.PENDING, PageRequest.of(0, 100))).isEmpty()) {
+            for (Long id : ids) {
+                if (jobRepository.claim(id, Instant.now()) == 1 && process(id)) {
+                    done++;
+                }
+            }
+        }
+        return done;
+    }
+
+    /**
+     * @return true se o job terminou (com ou sem variantes)
+     */
+    private boolean process(Long id) {
+        ImageDerivativeJob job = jobRepository.findById(id).orElse(null);
+        if (job == null) {
+            return false;
+        }
+        try {
+            int variants = derivativeService.render(job.getFilename());
+            jobRepository.finish(id, ImageDerivativeJob.Status.DONE,
+                    variants == 0 ? "Formato sem decoder; servido apenas o original" : null, Instant.now());
+            return true;
+        } catch (Exception | OutOfMemoryError e) {
+            String error = String.valueOf(e.getMessage());
+            error = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+            ImageDerivativeJob.Status status = job.getAttempts() >= MAX_ATTEMPTS
+                    ? ImageDerivativeJob.Status.FAILED
+                    : ImageDerivativeJob.Status.PENDING;
+            jobRepository.finish(id, status, error, Instant.now());
+            System.out.println("[DERIVATIVES] Falha em " + job.getFilename() + " (tentativa " + job.getAttempts() + "): " + error);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.MoveRap.demo.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Grava imagens enviadas lendo o corpo uma única vez: a assinatura (magic bytes) sai do primeiro bloco,
+ * o SHA-256 e o limite de tamanho são calculados bloco a bloco e os bytes vão direto por um FileChannel
+ * para um arquivo temporário, movido atomicamente para o nome final só no fim.
+ * Nada é gravado com nome final se o conteúdo não for imagem ou passar do limite.
+ *
+ * O nome final é o próprio SHA-256 do conteúdo: reenviar a mesma imagem devolve a mesma URL e o disco
+ * guarda uma única cópia, compartilhada por todos que enviaram o mesmo conteúdo. Por isso nenhum usuário
+ * apaga os bytes: quem remove é o {@link UploadGarbageCollector}, quando nenhuma página referencia o arquivo
+ * e a carência de um upload ainda não salvo já passou.
+ *
+ * Os bytes ficam no BlobStorage configurado. Com armazenamento que aceita upload direto (S3), o cliente
+ * envia para {@code incoming/{hash}.{ext}} por URL pré-assinada e a validação da assinatura roda depois,
+ * em {@link #completeDirectUpload}, antes de a chave final existir.
+ */
+@Service
+public class ImageUploadService {
+
+    public static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SIGNATURE_LENGTH = 12;
+    // Nomes gerados aqui (hash) e os antigos (UUID); nada de separadores, ".." ou variantes ({nome}-{tamanho})
+    private static final Pattern STORED_FILENAME = Pattern.compile(
+            "([0-9a-f]{64}|[0-9a-fA-F]{8}(-[0-9a-fA-F]{4}){3}-[0-9a-fA-F]{12})\\.(png|jpe?g|gif|webp)");
+    // Servível em /uploads/{nome}: um único segmento, sem ".." nem ocultos (.tmp); inclui variantes e uploads antigos
+    private static final Pattern SERVABLE_FILENAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-fA-F]{64}");
+    // Uploads diretos ainda não validados; nunca servidos em /uploads (o nome tem "/")
+    private static final String INCOMING_PREFIX = "incoming/";
+    private static final Map<String, String> EXTENSIONS_BY_TYPE = Map.of(
+            "image/png", ".png",
+            "image/jpeg", ".jpg",
+            "image/gif", ".gif",
+            "image/webp", ".webp");
+
+    private final UploadDirectory uploadDirectory;
+    private final BlobStorage blobStorage;
+
+    public record StoredImage(String filename, String sha256, long size) {
+    }
+
+    /**
+     * Upload direto autorizado: o cliente faz o PUT e depois chama {@link #completeDirectUpload}.
+     */
+    public record PendingUpload(String filename, BlobStorage.DirectUpload upload) {
+    }
+
+    public ImageUploadService(UploadDirectory uploadDirectory,
+                              BlobStorage blobStorage) {
+        this.uploadDirectory = uploadDirectory;
+        this.blobStorage = blobStorage;
+    }
+
+    /**
+     * Nome de um original enviado (não de uma variante redimensionada).
+     */
+    public static boolean isOriginalFilename(String filename) {
+        return filename != null && STORED_FILENAME.matcher(filename).matches();
+    }
+
+    /**
+     * Nome que pode ser pedido em /uploads/{nome}: um único segmento, sem "..", ocultos ou incoming/.
+     */
+    public static boolean isServableFilename(String filename) {
+        return filename != null && SERVABLE_FILENAME.matcher(filename).matches();
+    }
+
+    /**
+     * Arquivo local com esse nome, se existir e o armazenamento for local.
+     */
+    public Optional<Path> resolve(String filename) {
+        if (!isServableFilename(filename)) {
+            return Optional.empty();
+        }
+        return blobStorage.localPath(filename);
+    }
+
+    public StoredImage store(InputStream input) {
+        try {
+            Path temp = Files.createTempFile(uploadDirectory.tempDir(), "upload", ".tmp");
+            try {
+                StoredImage image = copy(input, temp);
+                // Conteúdo já existente: mesmo nome e mesmos bytes. Gravar de novo também recria o arquivo
+                // se uma exclusão concorrente o tiver apagado depois do upload anterior
+                blobStorage.put(image.filename(), temp, contentType(image.filename()));
+                return image;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Erro ao salvar arquivo: " + e.getMessage());
+        }
+    }
+
+    private StoredImage copy(InputStream input, Path temp) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        // O primeiro bloco é completado até ter a assinatura inteira (ou o corpo acabar)
+        int first = input.readNBytes(buffer, 0, BUFFER_SIZE);
+        if (first == 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Arquivo vazio");
+        }
+        String extension = imageExtension(buffer, Math.min(first, SIGNATURE_LENGTH));
+        if (extension == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Arquivo inválido. O conteúdo não corresponde a uma imagem válida");
+        }
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int read = first;
+            while (read != -1) {
+                size += read;
+                if (size > MAX_FILE_SIZE) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Arquivo muito grande. Máximo: 5MB");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+                read = input.read(buffer);
+            }
+        }
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        return new StoredImage(sha256 + extension, sha256, size);
+    }
+
+    /**
+     * Autoriza o envio direto de uma imagem com esse SHA-256, tamanho e tipo.
+     * @return vazio se o armazenamento só aceita uploads pela aplicação
+     */
+    public Optional<PendingUpload> prepareDirectUpload(String sha256, long size, String contentType) {
+        String extension = contentType != null ? EXTENSIONS_BY_TYPE.get(contentType.toLowerCase()) : null;
+        if (extension == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Formato não permitido. Use: jpg, jpeg, png, gif ou webp");
+        }
+        if (size <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Arquivo vazio");
+        }
+        if (size > MAX_FILE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Arquivo muito grande. Máximo: 5MB");
+        }
+        if (sha256 == null || !SHA256_HEX.matcher(sha256).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "SHA-256 inválido");
+        }
+        String filename = sha256.toLowerCase() + extension;
+        return blobStorage.presignUpload(INCOMING_PREFIX + filename, contentType.toLowerCase(), size, sha256.toLowerCase())
+                .map(upload -> new PendingUpload(filename, upload));
+    }
+
+    /**
+     * Chamado pelo cliente depois do PUT direto: confere tamanho e assinatura (magic bytes) do objeto
+     * recebido e só então o move para o nome final. O hash já foi conferido pelo armazenamento no PUT.
+     * Conteúdo inválido é apagado. Repetir a chamada depois de concluída devolve o mesmo resultado.
+     * Sem upload direto nada chega em incoming/, e a resposta é 404 como para um upload desconhecido.
+     */
+    public StoredImage completeDirectUpload(String filename) {
+        String sha256 = isOriginalFilename(filename) ? filename.substring(0, filename.indexOf('.')) : "";
+        if (!SHA256_HEX.matcher(sha256).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nome de arquivo inválido");
+        }
+        String incoming = INCOMING_PREFIX + filename;
+        try {
+            long size;
+            try {
+                size = blobStorage.size(incoming);
+            } catch (NoSuchFileException e) {
+                if (blobStorage.exists(filename)) {
+                    return new StoredImage(filename, sha256, blobStorage.size(filename));
+                }
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload não encontrado");
+            }
+            if (size > MAX_FILE_SIZE) {
+                blobStorage.delete(incoming);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Arquivo muito grande. Máximo: 5MB");
+            }
+            byte[] signature = blobStorage.readPrefix(incoming, SIGNATURE_LENGTH);
+            String extension = imageExtension(signature, signature.length);
+            if (extension == null || !filename.endsWith(extension)) {
+                blobStorage.delete(incoming);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Arquivo inválido. O conteúdo não corresponde a uma imagem válida");
+            }
+            blobStorage.move(incoming, filename);
+            return new StoredImage(filename, sha256, size);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Erro ao salvar arquivo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Original enviado que ainda está no armazenamento (variantes não contam).
+     */
+    public boolean exists(String filename) {
+        return isOriginalFilename(filename) && blobStorage.exists(filename);
+    }
+
+    /**
+     * Extensão correspondente à assinatura (magic bytes), ou null se não for um formato aceito.
+     * Previne upload de scripts maliciosos disfarçados como imagens.
+     */
+    static String imageExtension(byte[] signature, int length) {
+        if (length < 4) {
+            return null;
+        }
+        // PNG: 89 50 4E 47
+        if (signature[0] == (byte) 0x89 && signature[1] == 0x50 &&
+            signature[2] == 0x4E && signature[3] == 0x47) {
+            return ".png";
+        }
+        // JPEG: FF D8 FF
+        if (signature[0] == (byte) 0xFF && signature[1] == (byte) 0xD8 &&
+            signature[2] == (byte) 0xFF) {
+            return ".jpg";
+        }
+        // GIF: 47 49 46 38
+        if (signature[0] == 0x47 && signature[1] == 0x49 &&
+            signature[2] == 0x46 && signature[3] == 0x38) {
+            return ".gif";
+        }
+        // WebP: 52 49 46 46 ... 57 45 42 50
+        if (length >= 12 && signature[0] == 0x52 && signature[1] == 0x49 &&
+            signature[2] == 0x46 && signature[3] == 0x46 &&
+            signature[8] == 0x57 && signature[9] == 0x45 &&
+            signature[10] == 0x42 && signature[11] == 0x50) {
+            return ".webp";
+        }
+        return null;
+    }
+
+    static String contentType(String filename) {
+        return switch (filename.substring(filename.lastIndexOf('.') + 1)) {
+            case "png" -> "image/png";
+            case "gif" -> "image/gif";
+            case "webp" -> "image/webp";
+            default -> "image/jpeg";
+        };
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
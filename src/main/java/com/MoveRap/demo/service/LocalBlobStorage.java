@@ -0,0 +1,79 @@
+package com.MoveRap.demo.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Uploads no diretório local (file.upload-dir), no layout do UploadDirectory. Os bytes passam pela
+ * aplicação nos dois sentidos; em troca, /uploads sai por sendfile.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local", matchIfMissing = true)
+public class LocalBlobStorage implements BlobStorage {
+
+    private final UploadDirectory uploadDirectory;
+
+    public LocalBlobStorage(UploadDirectory uploadDirectory) {
+        this.uploadDirectory = uploadDirectory;
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return uploadDirectory.find(key).isPresent();
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(require(key));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(require(key));
+    }
+
+    /**
+     * A origem deve estar no mesmo sistema de arquivos (UploadDirectory.tempDir): o move é atômico, e
+     * reenviar um conteúdo existente também recria o arquivo se uma exclusão concorrente o tiver apagado.
+     * Sob o lock do nome: o coletor não apaga o arquivo recém-gravado achando que é o antigo.
+     */
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        ReentrantLock lock = uploadDirectory.lockFor(key);
+        lock.lock();
+        try {
+            Files.move(source, uploadDirectory.prepare(key),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void move(String fromKey, String toKey) throws IOException {
+        put(toKey, require(fromKey), null);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return uploadDirectory.delete(key);
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return uploadDirectory.find(key);
+    }
+
+    private Path require(String key) throws NoSuchFileException {
+        return uploadDirectory.find(key).orElseThrow(() -> new NoSuchFileException(key));
+    }
+}
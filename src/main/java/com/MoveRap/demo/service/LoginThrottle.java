@@ -0,0 +1,232 @@
+package com.MoveRap.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Controle de tentativas de login sem locks e com memória fixa, chaveado por conta e por IP.
+ *
+ * Cada slot é um único long atualizado por CAS:
+ * {@code [fingerprint:24][falhas:8][ultimaFalhaEmSegundos:32]}. Um slot com fingerprint zero está livre;
+ * o último bit do fingerprint diz se a chave é de IP, para saber o limite de falhas do slot.
+ * A expiração é preguiçosa: slots cuja última falha saiu da janela contam como livres e são
+ * reaproveitados na próxima sondagem, então não há varredura nem alocação no caminho de falha.
+ *
+ * Com a janela de sondagem cheia, sai o slot não bloqueado com menos falhas. Slots bloqueados nunca são
+ * despejados: as sementes são públicas, e falhar com chaves calculadas para cair na janela da vítima
+ * apagaria o bloqueio dela. Se a janela inteira está bloqueada a falha não é registrada, e a chave
+ * ausente conta como bloqueada até o primeiro desses slots expirar (falha fechada).
+ */
+@Service
+public class LoginThrottle {
+
+    private static final int PROBE_LIMIT = 8;
+    private static final int MAX_CAS_RETRIES = 4;
+    private static final long FINGERPRINT_MASK = 0xFFFFFFL;
+    private static final long COUNT_MASK = 0xFFL;
+    private static final long TICK_MASK = 0xFFFFFFFFL;
+    private static final long IP_KIND = 1;
+
+    // Sementes distintas separam os espaços de chave (mesma string como conta e como IP)
+    private static final long ACCOUNT_SEED = 0x9E3779B97F4A7C15L;
+    private static final long IP_SEED = 0xC2B2AE3D27D4EB4FL;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final int maxAccountFailures;
+    private final int maxIpFailures;
+    private final long lockoutSeconds;
+    private final LongSupplier clockSeconds;
+    private final long baseSeconds;
+
+    @Autowired
+    public LoginThrottle(@Value("${auth.throttle.capacity:262144}") int capacity,
+                         @Value("${auth.throttle.max-account-failures:5}") int maxAccountFailures,
+                         @Value("${auth.throttle.max-ip-failures:20}") int maxIpFailures,
+                         @Value("${auth.throttle.lockout-minutes:15}") long lockoutMinutes) {
+        this(capacity, maxAccountFailures, maxIpFailures, lockoutMinutes * 60, () -> System.currentTimeMillis() / 1000);
+    }
+
+    LoginThrottle(int capacity, int maxAccountFailures, int maxIpFailures, long lockoutSeconds, LongSupplier clockSeconds) {
+        int size = Integer.highestOneBit(Math.max(capacity, PROBE_LIMIT) - 1) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.maxAccountFailures = Math.min(maxAccountFailures, (int) COUNT_MASK);
+        this.maxIpFailures = Math.min(maxIpFailures, (int) COUNT_MASK);
+        this.lockoutSeconds = lockoutSeconds;
+        this.clockSeconds = clockSeconds;
+        this.baseSeconds = clockSeconds.getAsLong();
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    /**
+     * @return segundos até o desbloqueio da conta, ou 0 se não estiver bloqueada
+     */
+    public long accountLockRemainingSeconds(String account) {
+        return lockRemainingSeconds(hash(ACCOUNT_SEED, account), 0);
+    }
+
+    /**
+     * @return segundos até o desbloqueio do IP, ou 0 se não estiver bloqueado
+     */
+    public long ipLockRemainingSeconds(String clientIp) {
+        return lockRemainingSeconds(hash(IP_SEED, clientIp), IP_KIND);
+    }
+
+    /**
+     * Registra uma falha para a conta e para o IP.
+     * @return true se a conta atingiu o limite com esta falha
+     */
+    public boolean recordFailure(String account, String clientIp) {
+        int accountFailures = increment(hash(ACCOUNT_SEED, account), 0);
+        if (clientIp != null) {
+            increment(hash(IP_SEED, clientIp), IP_KIND);
+        }
+        return accountFailures == maxAccountFailures;
+    }
+
+    /**
+     * Login bem-sucedido zera apenas a conta; o contador do IP segue valendo contra sprays.
+     */
+    public void resetAccount(String account) {
+        long hash = hash(ACCOUNT_SEED, account);
+        long fingerprint = fingerprint(hash, 0);
+        int start = (int) hash & mask;
+        for (int i = 0; i < PROBE_LIMIT; i++) {
+            int index = (start + i) & mask;
+            long value = slots.get(index);
+            if (fingerprintOf(value) == fingerprint) {
+                slots.compareAndSet(index, value, 0L);
+                return;
+            }
+        }
+    }
+
+    private long lockRemainingSeconds(long hash, long kind) {
+        long fingerprint = fingerprint(hash, kind);
+        long now = tick();
+        int start = (int) hash & mask;
+        // Chave ausente com a janela toda bloqueada: o menor tempo restante entre os slots da janela
+        long saturatedRemaining = Long.MAX_VALUE;
+        for (int i = 0; i < PROBE_LIMIT; i++) {
+            long value = slots.get((start + i) & mask);
+            if (fingerprintOf(value) == fingerprint) {
+                return isLocked(value, now) ? lockoutSeconds - (now - tickOf(value)) : 0;
+            }
+            if (isLocked(value, now)) {
+                saturatedRemaining = Math.min(saturatedRemaining, lockoutSeconds - (now - tickOf(value)));
+            } else {
+                saturatedRemaining = 0;
+            }
+        }
+        return saturatedRemaining;
+    }
+
+    private int increment(long hash, long kind) {
+        long fingerprint = fingerprint(hash, kind);
+        int start = (int) hash & mask;
+        for (int attempt = 0; attempt < MAX_CAS_RETRIES; attempt++) {
+            long now = tick();
+            int victim = -1;
+            long victimValue = 0;
+            long victimCount = Long.MAX_VALUE;
+            long victimTick = Long.MAX_VALUE;
+            for (int i = 0; i < PROBE_LIMIT; i++) {
+                int index = (start + i) & mask;
+                long value = slots.get(index);
+                if (fingerprintOf(value) == fingerprint) {
+                    long count = isExpired(value, now) ? 1 : Math.min(countOf(value) + 1, COUNT_MASK);
+                    if (slots.compareAndSet(index, value, pack(fingerprint, count, now))) {
+                        return (int) count;
+                    }
+                    victim = -2; // outra thread alterou o slot: sonda de novo
+                    break;
+                }
+                if (isLocked(value, now)) {
+                    continue;
+                }
+                // Slot livre ou expirado é o melhor candidato; senão, o de menos falhas (empate: o mais antigo)
+                boolean free = value == 0 || isExpired(value, now);
+                long candidateCount = free ? -1 : countOf(value);
+                long candidateTick = free ? -1 : tickOf(value);
+                if (candidateCount < victimCount || (candidateCount == victimCount && candidateTick < victimTick)) {
+                    victim = index;
+                    victimValue = value;
+                    victimCount = candidateCount;
+                    victimTick = candidateTick;
+                }
+            }
+            if (victim == -1) {
+                // Janela inteira bloqueada: não registra (lockRemainingSeconds já trata a chave como bloqueada)
+                return 0;
+            }
+            if (victim >= 0 && slots.compareAndSet(victim, victimValue, pack(fingerprint, 1, now))) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private boolean isLocked(long value, long now) {
+        if (value == 0 || isExpired(value, now)) {
+            return false;
+        }
+        int maxFailures = (fingerprintOf(value) & IP_KIND) == IP_KIND ? maxIpFailures : maxAccountFailures;
+        return countOf(value) >= maxFailures;
+    }
+
+    private boolean isExpired(long value, long now) {
+        return now - tickOf(value) >= lockoutSeconds;
+    }
+
+    private long tick() {
+        return (clockSeconds.getAsLong() - baseSeconds) & TICK_MASK;
+    }
+
+    private static long pack(long fingerprint, long count, long tick) {
+        return (fingerprint << 40) | (count << 32) | (tick & TICK_MASK);
+    }
+
+    private static long fingerprintOf(long value) {
+        return value >>> 40;
+    }
+
+    private static long countOf(long value) {
+        return (value >>> 32) & COUNT_MASK;
+    }
+
+    private static long tickOf(long value) {
+        return value & TICK_MASK;
+    }
+
+    private static long fingerprint(long hash, long kind) {
+        long fingerprint = ((hash >>> 40) & FINGERPRINT_MASK & ~IP_KIND) | kind;
+        return fingerprint == 0 ? 2 : fingerprint;
+    }
+
+    /**
+     * FNV-1a de 64 bits sobre os chars (sem alocar bytes) seguido do finalizador do MurmurHash3.
+     */
+    static long hash(long seed, String key) {
+        long h = 0xCBF29CE484222325L ^ seed;
+        if (key != null) {
+            for (int i = 0; i < key.length(); i++) {
+                h ^= key.charAt(i);
+                h *= 0x100000001B3L;
+            }
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
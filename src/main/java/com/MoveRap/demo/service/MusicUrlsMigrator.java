@@ -0,0 +1,87 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.repository.UserPageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Migração online, única, de UserPage.musicUrls (separado por vírgula) para user_page_track.
+ *
+ * Roda em segundo plano após o boot, em lotes por keyset de id e uma transação por página.
+ * Enquanto não termina, as leituras usam a coluna legada como fallback e qualquer escrita
+ * de faixas migra a página na hora. Conflito de versão com uma escrita concorrente apenas
+ * pula a página: ela já foi (ou será) migrada por quem escreveu.
+ */
+@Component
+public class MusicUrlsMigrator {
+
+    private final UserPageRepository userPageRepository;
+    private final UserPageTrackService trackService;
+    private final TransactionTemplate transactionTemplate;
+    private final BackgroundThreads backgroundThreads;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public MusicUrlsMigrator(UserPageRepository userPageRepository,
+                             UserPageTrackService trackService,
+                             PlatformTransactionManager transactionManager,
+                             BackgroundThreads backgroundThreads,
+                             @Value("${migration.music-urls.enabled:true}") boolean enabled,
+                             @Value("${migration.music-urls.batch-size:100}") int batchSize) {
+        this.userPageRepository = userPageRepository;
+        this.trackService = trackService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.backgroundThreads = backgroundThreads;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        backgroundThreads.start("music-urls-migrator", this::migrateAll);
+    }
+
+    /**
+     * @return número de páginas migradas
+     */
+    public int migrateAll() {
+        int migrated = 0;
+        long afterId = 0;
+        while (true) {
+            long cursor = afterId;
+            List<Long> ids = transactionTemplate.execute(status ->
+                    userPageRepository.findLegacyMusicUrlsPageIds(cursor, PageRequest.of(0, batchSize)));
+            if (ids == null || ids.isEmpty()) {
+                break;
+            }
+            for (Long id : ids) {
+                try {
+                    Boolean done = transactionTemplate.execute(status -> userPageRepository.findById(id)
+                            .map(trackService::migrateLegacy)
+                            .orElse(false));
+                    if (Boolean.TRUE.equals(done)) {
+                        migrated++;
+                    }
+                } catch (ObjectOptimisticLockingFailureException e) {
+                    System.out.println("[MIGRATION] Página " + id + " alterada durante a migração, ignorada");
+                }
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+        if (migrated > 0) {
+            System.out.println("[MIGRATION] " + migrated + " páginas migradas para user_page_track");
+        }
+        return migrated;
+    }
+}
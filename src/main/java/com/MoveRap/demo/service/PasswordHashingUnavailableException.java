@@ -0,0 +1,14 @@
+package com.MoveRap.demo.service;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Lançada quando a fila do executor de hashing está cheia. Estende AuthenticationException
+ * para que o HTTP Basic também responda 503 (ver SecurityConfig) em vez de 401.
+ */
+public class PasswordHashingUnavailableException extends AuthenticationServiceException {
+
+    public PasswordHashingUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,303 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.Dtos.UserPageViewDto;
+import com.MoveRap.demo.repository.UserPageRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Snapshots HTML estáticos dos perfis públicos, servidos em /p/{username}.html pelo resource handler
+ * (WebConfig), com a variante .gz ao lado para quem aceita gzip.
+ *
+ * Regravados a cada escrita na página (UserPageController); num miss são gerados na hora pelo
+ * próprio resource handler. Só usernames que já são nomes de arquivo seguros ganham snapshot;
+ * os demais continuam no profile.html.
+ *
+ * O diretório é local de cada instância: a escrita só regrava o snapshot de quem a recebeu. Por isso
+ * um snapshot mais velho que snapshot.ttl-seconds é regerado no acesso seguinte, o que limita quanto
+ * tempo as outras instâncias servem a versão anterior. Usernames sem página também ficam lembrados
+ * por snapshot.missing-ttl-seconds, para que /p/{qualquer}.html não consulte o banco a cada acesso.
+ *
+ * Leitura do banco e gravação são serializadas por username: sem isso, quem leu a versão mais antiga
+ * poderia mover o arquivo por último, e o snapshot velho ficaria até expirar.
+ * As folhas de estilo vêm de snapshot.asset-base-url; vazio, do próprio backend (frontend/css
+ * empacotado em /css).
+ */
+@Service
+public class ProfileSnapshotService {
+
+    static final Pattern SNAPSHOT_USERNAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+    static final String DEFAULT_AVATAR = "https://via.placeholder.com/180/667eea/ffffff?text=🎤";
+    // Mesmas variantes pedidas pelo profile.js (ImageDerivativeService)
+    static final int AVATAR_SIZE = 256;
+    static final int BACKGROUND_SIZE = 1024;
+    // Locks por faixa de hash do username: memória fixa, colisões só serializam a mais
+    private static final int LOCK_STRIPES = 64;
+    private static final int MISSING_MAX_ENTRIES = 10_000;
+
+    private final UserPageRepository userPageRepository;
+    private final Path directory;
+    private final String assetBaseUrl;
+    private final Duration ttl;
+    private final Cache<String, Boolean> missing;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public ProfileSnapshotService(UserPageRepository userPageRepository,
+                                  @Value("${file.snapshot-dir:snapshots}") String snapshotDir,
+                                  @Value("${snapshot.asset-base-url:}") String assetBaseUrl,
+                                  @Value("${snapshot.ttl-seconds:60}") long ttlSeconds,
+                                  @Value("${snapshot.missing-ttl-seconds:30}") long missingTtlSeconds) {
+        this.userPageRepository = userPageRepository;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(MISSING_MAX_ENTRIES)
+                .expireAfterWrite(Duration.ofSeconds(missingTtlSeconds))
+                .build();
+        this.directory = Paths.get(snapshotDir).toAbsolutePath().normalize();
+        this.assetBaseUrl = assetBaseUrl.endsWith("/") ? assetBaseUrl.substring(0, assetBaseUrl.length() - 1) : assetBaseUrl;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public static boolean hasSnapshot(String username) {
+        return username != null && SNAPSHOT_USERNAME.matcher(username).matches();
+    }
+
+    /**
+     * @param lastModified data do arquivo servido, em milissegundos
+     * @return true se ainda está dentro de snapshot.ttl-seconds
+     */
+    public boolean isFresh(long lastModified) {
+        return System.currentTimeMillis() - lastModified < ttl.toMillis();
+    }
+
+    /**
+     * Chamado pelo resource handler num miss ou com o snapshot vencido. Regera só se nenhuma outra
+     * requisição já o fez enquanto esta esperava o lock, e lembra os usernames sem página.
+     *
+     * @return true se o snapshot existe ao final
+     */
+    public boolean refresh(String username) {
+        if (!hasSnapshot(username) || missing.getIfPresent(username) != null) {
+            return false;
+        }
+        ReentrantLock lock = lockFor(username);
+        lock.lock();
+        try {
+            Path html = directory.resolve(username + ".html");
+            if (Files.exists(html) && isFresh(Files.getLastModifiedTime(html).toMillis())) {
+                return true;
+            }
+            boolean exists = regenerate(username);
+            if (!exists) {
+                missing.put(username, Boolean.TRUE);
+            }
+            return exists;
+        } catch (IOException e) {
+            return regenerate(username);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Regrava o snapshot a partir do banco; sem página, remove o snapshot.
+     * Falhas de disco não propagam: o snapshot antigo é removido e o próximo acesso gera outro.
+     *
+     * @return true se o snapshot existe ao final
+     */
+    public boolean regenerate(String username) {
+        if (!hasSnapshot(username)) {
+            return false;
+        }
+        ReentrantLock lock = lockFor(username);
+        lock.lock();
+        try {
+            // Página criada nesta instância: não espera o not-found lembrado expirar
+            missing.invalidate(username);
+            Optional<UserPageViewDto> view = userPageRepository.findViewByUsername(username);
+            if (view.isEmpty()) {
+                delete(username);
+                return false;
+            }
+            try {
+                byte[] html = render(view.get()).getBytes(StandardCharsets.UTF_8);
+                // .gz antes do .html: o handler só procura a variante depois de achar o .html
+                write(username + ".html.gz", gzip(html));
+                write(username + ".html", html);
+                return true;
+            } catch (IOException e) {
+                System.out.println("[SNAPSHOT] Falha ao gravar o perfil de " + username + ": " + e.getMessage());
+                delete(username);
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void delete(String username) {
+        if (!hasSnapshot(username)) {
+            return;
+        }
+        ReentrantLock lock = lockFor(username);
+        lock.lock();
+        try {
+            Files.deleteIfExists(directory.resolve(username + ".html"));
+            Files.deleteIfExists(directory.resolve(username + ".html.gz"));
+        } catch (IOException e) {
+            System.out.println("[SNAPSHOT] Falha ao remover o perfil de " + username + ": " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(String username) {
+        return locks[Math.floorMod(username.hashCode(), LOCK_STRIPES)];
+    }
+
+    // Mesma estrutura e classes do profile.html, já preenchida
+    String render(UserPageViewDto view) {
+        String username = escape(view.username());
+        StringBuilder html = new StringBuilder(2048);
+        html.append("<!DOCTYPE html>\n<html lang=\"pt-BR\">\n<head>\n")
+                .append("    <meta charset=\"UTF-8\">\n")
+                .append("    <meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">\n")
+                .append("    <title>").append(username).append(" - MoveRap</title>\n");
+        if (hasText(view.biography())) {
+            String description = view.biography().length() > 160 ? view.biography().substring(0, 160) : view.biography();
+            html.append("    <meta name=\"description\" content=\"").append(escape(description)).append("\">\n");
+        }
+        html.append("    <link rel=\"stylesheet\" href=\"").append(assetBaseUrl).append("/css/style.css\">\n")
+                .append("    <link rel=\"stylesheet\" href=\"").append(assetBaseUrl).append("/css/profile.css\">\n")
+                .append("    <style>.background-image { background-size: cover; background-position: center;")
+                .append(" background-repeat: no-repeat; width: 100%; height: 100%; }</style>\n")
+                .append("</head>\n<body>\n<div class=\"profile-container\">\n")
+                .append("    <div class=\"profile-content\">\n")
+                .append("        <div class=\"profile-header\">\n");
+        if (hasText(view.backgroundImageUrl())) {
+            html.append("            <div class=\"background-image\" style=\"background-image: url('")
+                    .append(escape(cssUrl(sized(view.backgroundImageUrl(), BACKGROUND_SIZE)))).append("')\"></div>\n");
+        } else {
+            html.append("            <div class=\"background-image\"")
+                    .append(" style=\"background: linear-gradient(135deg, #667eea 0%, #764ba2 100%)\"></div>\n");
+        }
+        html.append("            <div class=\"profile-overlay\"></div>\n        </div>\n")
+                .append("        <div class=\"profile-info\">\n            <div class=\"profile-avatar-container\">\n")
+                .append("                <img src=\"")
+                .append(escape(hasText(view.profileImageUrl()) ? sized(view.profileImageUrl(), AVATAR_SIZE) : DEFAULT_AVATAR))
+                .append("\" alt=\"Avatar do Artista\" class=\"profile-avatar\">\n")
+                .append("            </div>\n        </div>\n")
+                .append("        <div class=\"profile-section biography-section\">\n            <h2>Biografia</h2>\n")
+                .append("            <div class=\"biography-content\">");
+        if (hasText(view.biography())) {
+            html.append("<p>").append(escape(view.biography())).append("</p>");
+        } else {
+            html.append("<p class=\"empty-state\">Nenhuma biografia disponível.</p>");
+        }
+        html.append("</div>\n        </div>\n")
+                .append("        <div class=\"profile-section music-section\">\n            <h2>Músicas</h2>\n")
+                .append("            <div class=\"music-list\">\n");
+        appendTracks(html, view.musicUrlsList());
+        html.append("            </div>\n        </div>\n    </div>\n</div>\n</body>\n</html>\n");
+        return html.toString();
+    }
+
+    private static void appendTracks(StringBuilder html, List<String> urls) {
+        if (urls == null || urls.isEmpty()) {
+            html.append("                <p class=\"empty-state\">Nenhuma música adicionada.</p>\n");
+            return;
+        }
+        for (int i = 0; i < urls.size(); i++) {
+            String url = escape(urls.get(i));
+            html.append("                <div class=\"music-item\"><div class=\"music-icon\">🎵</div>")
+                    .append("<div class=\"music-info\"><h3 class=\"music-title\">Música ").append(i + 1).append("</h3>")
+                    .append("<p class=\"music-url\">").append(url).append("</p></div>");
+            // Só links http(s) viram <a>: nada de javascript: vindo do usuário
+            if (isHttpUrl(urls.get(i))) {
+                html.append("<a class=\"music-link\" href=\"").append(url)
+                        .append("\" target=\"_blank\" rel=\"noopener noreferrer\">Ouvir</a>");
+            }
+            html.append("</div>\n");
+        }
+    }
+
+    private void write(String fileName, byte[] content) throws IOException {
+        // Arquivo temporário + move atômico: o handler nunca serve um arquivo pela metade
+        Path temp = Files.createTempFile(directory, ".snapshot", ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 3);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    // Uploads do próprio backend apontam para a variante redimensionada
+    static String sized(String url, int size) {
+        return url.startsWith("/uploads/") && !url.contains("?") ? url + "?size=" + size : url;
+    }
+
+    // Dentro de url('...') no CSS: aspas, parênteses, barra invertida e espaços vão percent-encoded
+    static String cssUrl(String url) {
+        StringBuilder encoded = new StringBuilder(url.length());
+        for (char c : url.toCharArray()) {
+            if (c == '\'' || c == '"' || c == '(' || c == ')' || c == '\\' || Character.isWhitespace(c)) {
+                encoded.append('%').append(String.format("%02X", (int) c));
+            } else {
+                encoded.append(c);
+            }
+        }
+        return encoded.toString();
+    }
+
+    // Só os caracteres especiais do HTML: acentos seguem em UTF-8
+    private static String escape(String value) {
+        return HtmlUtils.htmlEscape(value, StandardCharsets.UTF_8.name());
+    }
+
+    private static boolean isHttpUrl(String url) {
+        String lower = url.trim().toLowerCase();
+        return lower.startsWith("http://") || lower.startsWith("https://");
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -0,0 +1,130 @@
+package com.MoveRap.demo.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Cache do JSON final (bytes UTF-8) de GET /user-page/public/{username}, junto com seus validadores.
+ * Limitado pelo total de bytes; o Caffeine despeja por frequência/recência (W-TinyLFU).
+ * Invalidado por username em toda escrita na página; hit/miss/eviction em /actuator/metrics.
+ *
+ * A renderização (consulta ao banco) roda fora do compute do mapa: o Caffeine síncrono a executaria dentro
+ * do monitor de um bin do ConcurrentHashMap, prendendo a carrier das threads virtuais durante o JDBC.
+ * Aqui o mapa guarda um futuro; quem o criou renderiza, as requisições simultâneas pelo mesmo username
+ * esperam esse futuro (uma renderização por miss, como antes). Um invalidate durante a renderização
+ * remove o futuro do mapa, então o resultado lido antes da escrita volta para quem pediu mas não fica
+ * em cache.
+ */
+@Service
+public class PublicPageCache {
+
+    /**
+     * Corpo serializado e validadores HTTP da mesma versão da página.
+     */
+    public record Entry(byte[] body, String etag, long lastModified) {
+    }
+
+    private final AsyncCache<String, Entry> cache;
+
+    public PublicPageCache(MeterRegistry meterRegistry,
+                           @Value("${cache.public-page.max-bytes:16777216}") long maxBytes,
+                           @Value("${cache.public-page.ttl-seconds:600}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String username, Entry entry) -> entry.body().length + (username.length() + entry.etag().length()) * 2)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "publicUserPage");
+    }
+
+    /**
+     * @param renderer gera o JSON em caso de miss; pode retornar null (nada é armazenado)
+     */
+    public Entry get(String username, Function<String, Entry> renderer) {
+        CompletableFuture<Entry> created = new CompletableFuture<>();
+        CompletableFuture<Entry> future = cache.get(username, (key, executor) -> created);
+        if (future != created) {
+            return join(future);
+        }
+        try {
+            // null ou exceção: o Caffeine remove a entrada ao completar o futuro
+            Entry entry = renderer.apply(username);
+            created.complete(entry);
+            return entry;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Versão em lote do {@link #get}: os misses deste chamador saem de uma única chamada ao renderer.
+     *
+     * @param renderer recebe os usernames sem entrada e devolve as entradas encontradas (os ausentes
+     *                 não são armazenados)
+     * @return as entradas encontradas, por username
+     */
+    public Map<String, Entry> getAll(Collection<String> usernames, Function<List<String>, Map<String, Entry>> renderer) {
+        Map<String, CompletableFuture<Entry>> created = new LinkedHashMap<>();
+        Map<String, CompletableFuture<Entry>> futures = new HashMap<>();
+        for (String username : usernames) {
+            CompletableFuture<Entry> mine = new CompletableFuture<>();
+            CompletableFuture<Entry> future = cache.get(username, (key, executor) -> mine);
+            futures.put(username, future);
+            if (future == mine) {
+                created.put(username, mine);
+            }
+        }
+        if (!created.isEmpty()) {
+            Map<String, Entry> rendered;
+            try {
+                rendered = renderer.apply(new ArrayList<>(created.keySet()));
+            } catch (RuntimeException e) {
+                created.values().forEach(future -> future.completeExceptionally(e));
+                throw e;
+            }
+            created.forEach((username, future) -> future.complete(rendered.get(username)));
+        }
+
+        Map<String, Entry> found = new HashMap<>();
+        futures.forEach((username, future) -> {
+            Entry entry = join(future);
+            if (entry != null) {
+                found.put(username, entry);
+            }
+        });
+        return found;
+    }
+
+    public void invalidate(String username) {
+        cache.synchronous().invalidate(username);
+    }
+
+    private static Entry join(CompletableFuture<Entry> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // A mesma exceção (ex.: 404) que a renderização lançou para quem a executou
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.MoveRap.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Uploads num bucket S3 (ou compatível: MinIO, R2...). Os navegadores enviam e baixam as imagens direto do
+ * bucket por URLs pré-assinadas; a aplicação só assina, valida a assinatura dos bytes (magic bytes) com um
+ * GET parcial e renomeia/copia dentro do bucket. Várias instâncias podem compartilhar o mesmo bucket.
+ *
+ * O bucket precisa de CORS liberando PUT e GET para a origem do frontend, e de uma regra de lifecycle
+ * que expire {@code {prefix}incoming/} (1 dia basta): uploads diretos autorizados e nunca concluídos
+ * ficam lá e a aplicação não os apaga. Exemplo (aws s3api put-bucket-lifecycle-configuration):
+ * {@code {"Rules":[{"ID":"incoming","Status":"Enabled","Filter":{"Prefix":"uploads/incoming/"},"Expiration":{"Days":1}}]}}
+ *
+ * Limitação conhecida: o {@link UploadGarbageCollector} só varre o diretório local, então com este backend
+ * os objetos finais que nenhuma página usa mais continuam no bucket.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+public class S3BlobStorage implements BlobStorage {
+
+    // Chaves não mudam de conteúdo (hash do conteúdo ou variante determinística)
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private final S3Client client;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final String prefix;
+    private final Duration uploadUrlTtl;
+    private final Duration downloadUrlTtl;
+
+    public S3BlobStorage(@Value("${storage.s3.bucket}") String bucket,
+                         @Value("${storage.s3.region:us-east-1}") String region,
+                         @Value("${storage.s3.endpoint:}") String endpoint,
+                         @Value("${storage.s3.path-style:false}") boolean pathStyle,
+                         @Value("${storage.s3.access-key:}") String accessKey,
+                         @Value("${storage.s3.secret-key:}") String secretKey,
+                         @Value("${storage.s3.prefix:uploads/}") String prefix,
+                         @Value("${storage.s3.upload-url-ttl-seconds:600}") long uploadUrlTtlSeconds,
+                         @Value("${storage.s3.download-url-ttl-seconds:3600}") long downloadUrlTtlSeconds) {
+        // Sem chaves na configuração: cadeia padrão da AWS (variáveis de ambiente, perfil, role da instância)
+        AwsCredentialsProvider credentials = accessKey.isEmpty()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        // MinIO e afins costumam exigir path-style (http://host:9000/bucket/chave)
+        S3Configuration configuration = S3Configuration.builder().pathStyleAccessEnabled(pathStyle).build();
+
+        S3ClientBuilder clientBuilder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(configuration)
+                .httpClientBuilder(UrlConnectionHttpClient.builder());
+        S3Presigner.Builder presignerBuilder = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(configuration);
+        if (!endpoint.isEmpty()) {
+            clientBuilder.endpointOverride(URI.create(endpoint));
+            presignerBuilder.endpointOverride(URI.create(endpoint));
+        }
+        this.client = clientBuilder.build();
+        this.presigner = presignerBuilder.build();
+        this.bucket = bucket;
+        this.prefix = prefix;
+        this.uploadUrlTtl = Duration.ofSeconds(uploadUrlTtlSeconds);
+        this.downloadUrlTtl = Duration.ofSeconds(downloadUrlTtlSeconds);
+    }
+
+    @PreDestroy
+    public void close() {
+        presigner.close();
+        client.close();
+    }
+
+    @Override
+    public boolean exists(String key) {
+        try {
+            size(key);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        try {
+            return client.headObject(request -> request.bucket(bucket).key(objectKey(key))).contentLength();
+        } catch (SdkException e) {
+            throw translate(key, e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return client.getObject(request -> request.bucket(bucket).key(objectKey(key)));
+        } catch (SdkException e) {
+            throw translate(key, e);
+        }
+    }
+
+    @Override
+    public byte[] readPrefix(String key, int length) throws IOException {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(objectKey(key))
+                .range("bytes=0-" + (length - 1))
+                .build();
+        try (InputStream input = client.getObject(request)) {
+            return input.readNBytes(length);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 416) {
+                return new byte[0]; // Objeto vazio: nenhum byte no intervalo
+            }
+            throw translate(key, e);
+        } catch (SdkException e) {
+            throw translate(key, e);
+        }
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        try {
+            client.putObject(request -> request.bucket(bucket).key(objectKey(key))
+                    .contentType(contentType)
+                    .cacheControl(CACHE_CONTROL), RequestBody.fromFile(source));
+        } catch (SdkException e) {
+            throw translate(key, e);
+        }
+    }
+
+    /**
+     * CopyObject seguido de DeleteObject: a cópia é feita pelo próprio S3. Metadados (Content-Type,
+     * Cache-Control) vêm do objeto de origem.
+     */
+    @Override
+    public void move(String fromKey, String toKey) throws IOException {
+        try {
+            client.copyObject(request -> request
+                    .sourceBucket(bucket).sourceKey(objectKey(fromKey))
+                    .destinationBucket(bucket).destinationKey(objectKey(toKey)));
+            client.deleteObject(request -> request.bucket(bucket).key(objectKey(fromKey)));
+        } catch (SdkException e) {
+            throw translate(fromKey, e);
+        }
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        // DeleteObject não diz se a chave existia
+        boolean existed = exists(key);
+        try {
+            client.deleteObject(request -> request.bucket(bucket).key(objectKey(key)));
+        } catch (SdkException e) {
+            throw translate(key, e);
+        }
+        return existed;
+    }
+
+    @Override
+    public Optional<URI> downloadUrl(String key) {
+        return Optional.of(toUri(presigner.presignGetObject(request -> request
+                .signatureDuration(downloadUrlTtl)
+                .getObjectRequest(get -> get.bucket(bucket).key(objectKey(key)))).url()));
+    }
+
+    /**
+     * Content-Length e x-amz-checksum-sha256 entram na assinatura: o S3 recusa um corpo de outro tamanho
+     * ou com outro hash, então a chave (o hash) corresponde ao conteúdo sem a aplicação ler os bytes.
+     */
+    @Override
+    public Optional<DirectUpload> presignUpload(String key, String contentType, long contentLength, String sha256Hex) {
+        PutObjectRequest put = PutObjectRequest.builder()
+                .bucket(bucket)
+                .key(objectKey(key))
+                .contentType(contentType)
+                .contentLength(contentLength)
+                .cacheControl(CACHE_CONTROL)
+                .checksumSHA256(Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256Hex)))
+                .build();
+        PresignedPutObjectRequest presigned = presigner.presignPutObject(request -> request
+                .signatureDuration(uploadUrlTtl)
+                .putObjectRequest(put));
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> header : presigned.signedHeaders().entrySet()) {
+            // Host sai da própria URL
+            if (!header.getKey().equalsIgnoreCase("host")) {
+                headers.put(header.getKey(), String.join(",", header.getValue()));
+            }
+        }
+        return Optional.of(new DirectUpload(toUri(presigned.url()), headers, presigned.expiration()));
+    }
+
+    private String objectKey(String key) {
+        return prefix + key;
+    }
+
+    private static IOException translate(String key, SdkException e) {
+        if (e instanceof NoSuchKeyException || (e instanceof S3Exception s3 && s3.statusCode() == 404)) {
+            return new NoSuchFileException(key);
+        }
+        return new IOException("Falha no armazenamento S3 (" + key + "): " + e.getMessage(), e);
+    }
+
+    private static URI toUri(URL url) {
+        try {
+            return url.toURI();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Emite e valida tokens de sessão assinados com HMAC-SHA256.
+ * Formato: {@code <kid>.<payload>.<assinatura>}, onde o payload (Base64 URL) contém
+ * {@code userId:epoch:expiraEm:username}. A validação não consulta o banco nem executa BCrypt;
+ * apenas o epoch de credenciais de cada usuário é lido uma vez e mantido em memória.
+ */
+@Service
+public class TokenService {
+
+    public record TokenClaims(Long userId, String username, long credentialsEpoch, long expiresAt) {
+    }
+
+    public record IssuedToken(String token, long expiresAt) {
+    }
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final UserRepository userRepository;
+    private final Clock clock;
+    private final long ttlSeconds;
+    // kid -> Mac já inicializado; a primeira chave é a ativa, as demais só validam tokens antigos
+    private final Map<String, Mac> keys = new LinkedHashMap<>();
+    private final String activeKeyId;
+    private final Map<Long, Long> credentialsEpochs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TokenService(UserRepository userRepository,
+                        @Value("${auth.token.keys:}") String configuredKeys,
+                        @Value("${auth.token.ttl-minutes:720}") long ttlMinutes) {
+        this(userRepository, configuredKeys, ttlMinutes, Clock.systemUTC());
+    }
+
+    TokenService(UserRepository userRepository, String configuredKeys, long ttlMinutes, Clock clock) {
+        this.userRepository = userRepository;
+        this.clock = clock;
+        this.ttlSeconds = ttlMinutes * 60;
+        if (configuredKeys == null || configuredKeys.isBlank()) {
+            byte[] secret = new byte[MIN_KEY_BYTES];
+            new SecureRandom().nextBytes(secret);
+            keys.put("local", createMac(secret));
+            // Log seguro - não expõe a chave
+            System.out.println("[SECURITY] auth.token.keys não configurado; usando chave temporária (tokens invalidados ao reiniciar)");
+        } else {
+            // Formato: kid:segredoBase64,kid2:segredoBase64 (a primeira é usada para assinar)
+            for (String entry : configuredKeys.split(",")) {
+                String[] parts = entry.trim().split(":", 2);
+                if (parts.length != 2 || parts[0].isBlank() || parts[0].contains(".")) {
+                    throw new IllegalStateException("Chave de token inválida em auth.token.keys");
+                }
+                byte[] secret = Base64.getDecoder().decode(parts[1].trim());
+                if (secret.length < MIN_KEY_BYTES) {
+                    throw new IllegalStateException("Chave de token '" + parts[0] + "' deve ter no mínimo " + MIN_KEY_BYTES + " bytes");
+                }
+                keys.put(parts[0].trim(), createMac(secret));
+            }
+        }
+        this.activeKeyId = keys.keySet().iterator().next();
+    }
+
+    public IssuedToken issueToken(Long userId, String username, long credentialsEpoch) {
+        long expiresAt = clock.instant().getEpochSecond() + ttlSeconds;
+        String payload = userId + ":" + credentialsEpoch + ":" + expiresAt + ":" + username;
+        String signingInput = activeKeyId + "." + ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        credentialsEpochs.putIfAbsent(userId, credentialsEpoch);
+        return new IssuedToken(signingInput + "." + ENCODER.encodeToString(sign(activeKeyId, signingInput)), expiresAt);
+    }
+
+    /**
+     * Valida assinatura, expiração e epoch de credenciais.
+     * @return as claims do token, ou null se o token for inválido
+     */
+    public TokenClaims verify(String token) {
+        TokenClaims claims = parse(token);
+        if (claims == null || claims.expiresAt() <= clock.instant().getEpochSecond()) {
+            return null;
+        }
+        Long currentEpoch = credentialsEpochs.get(claims.userId());
+        if (currentEpoch == null) {
+            // Primeiro token visto para o usuário desde o boot: uma única consulta por chave primária
+            currentEpoch = userRepository.findCredentialsEpochById(claims.userId());
+            if (currentEpoch == null) {
+                return null;
+            }
+            Long previous = credentialsEpochs.putIfAbsent(claims.userId(), currentEpoch);
+            if (previous != null) {
+                currentEpoch = previous;
+            }
+        }
+        return currentEpoch == claims.credentialsEpoch() ? claims : null;
+    }
+
+    /**
+     * Revoga todos os tokens emitidos antes da troca de senha do usuário.
+     */
+    public void revokeTokens(Long userId, long newCredentialsEpoch) {
+        credentialsEpochs.put(userId, newCredentialsEpoch);
+    }
+
+    private TokenClaims parse(String token) {
+        if (token == null) {
+            return null;
+        }
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot == firstDot) {
+            return null;
+        }
+        String keyId = token.substring(0, firstDot);
+        if (!keys.containsKey(keyId)) {
+            return null;
+        }
+        try {
+            String signingInput = token.substring(0, lastDot);
+            byte[] signature = DECODER.decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(signature, sign(keyId, signingInput))) {
+                return null;
+            }
+            String payload = new String(DECODER.decode(token.substring(firstDot + 1, lastDot)), StandardCharsets.UTF_8);
+            String[] parts = payload.split(":", 4);
+            if (parts.length != 4 || parts[3].isEmpty()) {
+                return null;
+            }
+            return new TokenClaims(Long.parseLong(parts[0]), parts[3], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String keyId, String signingInput) {
+        try {
+            // Mac não é thread-safe: cada assinatura usa um clone da instância inicializada
+            Mac mac = (Mac) keys.get(keyId).clone();
+            return mac.doFinal(signingInput.getBytes(StandardCharsets.UTF_8));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HMAC indisponível", e);
+        }
+    }
+
+    private static Mac createMac(byte[] secret) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC indisponível", e);
+        }
+    }
+}
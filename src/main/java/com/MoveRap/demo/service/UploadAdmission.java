@@ -0,0 +1,251 @@
+package com.MoveRap.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controle de admissão dos uploads: a gravação roda num executor de I/O próprio e limitado, e a thread do
+ * Tomcat é liberada enquanto isso (o controller devolve o CompletableFuture). Assim uma rajada de uploads
+ * não ocupa as threads nem o disco das leituras de páginas.
+ *
+ * Limites: {@code threads} gravações simultâneas no total, {@code per-user} por usuário (em execução ou na
+ * fila; acima disso 429) e uma fila de {@code queue-capacity} (cheia: 503 na hora, sem esperar). Quem passa
+ * mais de {@code max-wait-ms} na fila também recebe 503: o cliente provavelmente já desistiu.
+ * {@link #throttle} limita os bytes por segundo somados de todos os uploads (token bucket com um segundo
+ * de rajada), o que também limita a escrita em disco.
+ *
+ * Os uploads de corpo cru leem o socket dentro do worker: um cliente que envia devagar ocupa uma das
+ * {@code threads} vagas de disco. Por isso {@link #throttle} também aborta (408) quem, passado
+ * {@code min-rate-grace-ms}, enviou em média menos que {@code min-bytes-per-second} (as esperas do
+ * próprio limite global não contam). Um cliente que para de vez é cortado pelo timeout de leitura do Tomcat.
+ */
+@Component
+public class UploadAdmission {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final ThreadPoolExecutor executor;
+    private final int perUserLimit;
+    private final long maxWaitNanos;
+    private final long retryAfterSeconds;
+    private final long bytesPerSecond;
+    private final long minBytesPerSecond;
+    private final long minRateGraceNanos;
+    private final ConcurrentHashMap<String, Integer> inFlight = new ConcurrentHashMap<>();
+    private final Timer queueWaitTimer;
+    private final Timer throttleTimer;
+    private final Counter rejectedPerUser;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+    private final Counter rejectedSlowClient;
+    // Momento (nanoTime) em que o bucket estaria vazio de novo; protegido por synchronized
+    private long bucketEmptyAt;
+
+    public UploadAdmission(MeterRegistry meterRegistry,
+                           BackgroundThreads backgroundThreads,
+                           @Value("${uploads.admission.threads:4}") int threads,
+                           @Value("${uploads.admission.per-user:2}") int perUserLimit,
+                           @Value("${uploads.admission.queue-capacity:32}") int queueCapacity,
+                           @Value("${uploads.admission.max-wait-ms:10000}") long maxWaitMillis,
+                           @Value("${uploads.admission.bytes-per-second:33554432}") long bytesPerSecond,
+                           @Value("${uploads.admission.min-bytes-per-second:8192}") long minBytesPerSecond,
+                           @Value("${uploads.admission.min-rate-grace-ms:10000}") long minRateGraceMillis,
+                           @Value("${uploads.admission.retry-after-seconds:2}") long retryAfterSeconds) {
+        // No modo virtual o pool continua com {@code threads} workers: o limite é de disco, não de threads
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                backgroundThreads.factory("upload-io"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.perUserLimit = perUserLimit;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.bytesPerSecond = bytesPerSecond;
+        this.minBytesPerSecond = minBytesPerSecond;
+        this.minRateGraceNanos = TimeUnit.MILLISECONDS.toNanos(minRateGraceMillis);
+        this.bucketEmptyAt = System.nanoTime() - NANOS_PER_SECOND;
+
+        this.queueWaitTimer = Timer.builder("uploads.admission.queue.wait")
+                .description("Tempo de espera na fila do executor de uploads")
+                .register(meterRegistry);
+        this.throttleTimer = Timer.builder("uploads.admission.throttle.wait")
+                .description("Tempo parado pelo limite de bytes por segundo")
+                .register(meterRegistry);
+        this.rejectedPerUser = rejected(meterRegistry, "per-user");
+        this.rejectedQueueFull = rejected(meterRegistry, "queue-full");
+        this.rejectedTimeout = rejected(meterRegistry, "timeout");
+        this.rejectedSlowClient = rejected(meterRegistry, "slow-client");
+        Gauge.builder("uploads.admission.queue.depth", executor, e -> e.getQueue().size())
+                .description("Uploads aguardando na fila")
+                .register(meterRegistry);
+        Gauge.builder("uploads.admission.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    private static Counter rejected(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("uploads.admission.rejected")
+                .description("Uploads recusados pelo controle de admissão")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Agenda a gravação no executor de I/O. As recusas imediatas (limite do usuário, fila cheia) são
+     * lançadas aqui; a da espera longa demais vem pelo future.
+     */
+    public <T> CompletableFuture<T> submit(String user, Callable<T> task) {
+        // merge/computeIfPresent são atômicos por chave: contar e liberar não disputam com a remoção da entrada zerada
+        if (inFlight.merge(user, 1, Integer::sum) > perUserLimit) {
+            release(user);
+            rejectedPerUser.increment();
+            throw new UploadRejectedException(HttpStatus.TOO_MANY_REQUESTS,
+                "Muitos uploads simultâneos. Aguarde os anteriores terminarem.", retryAfterSeconds);
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                T result = null;
+                Throwable failure = null;
+                try {
+                    long waited = System.nanoTime() - enqueuedAt;
+                    queueWaitTimer.record(waited, TimeUnit.NANOSECONDS);
+                    if (waited > maxWaitNanos) {
+                        rejectedTimeout.increment();
+                        throw new UploadRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                            "Servidor ocupado. Tente novamente em instantes.", retryAfterSeconds);
+                    }
+                    result = task.call();
+                } catch (Throwable e) {
+                    failure = e;
+                } finally {
+                    // Antes de completar: quem recebe a resposta já pode enviar o próximo upload
+                    release(user);
+                }
+                if (failure != null) {
+                    future.completeExceptionally(failure);
+                } else {
+                    future.complete(result);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release(user);
+            rejectedQueueFull.increment();
+            throw new UploadRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Servidor ocupado. Tente novamente em instantes.", retryAfterSeconds);
+        }
+        return future;
+    }
+
+    /**
+     * Leitura limitada ao orçamento global de bytes por segundo e à taxa mínima do cliente (0 desativa cada um).
+     * Deve ser chamado dentro da tarefa: a taxa mínima conta a partir daí.
+     */
+    public InputStream throttle(InputStream input) {
+        if (bytesPerSecond <= 0 && minBytesPerSecond <= 0) {
+            return input;
+        }
+        long startedAt = System.nanoTime();
+        return new FilterInputStream(input) {
+            private long received;
+            private long throttledNanos;
+
+            @Override
+            public int read() throws IOException {
+                int value = super.read();
+                if (value >= 0) {
+                    account(1);
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    account(read);
+                }
+                return read;
+            }
+
+            private void account(int bytes) throws InterruptedIOException {
+                received += bytes;
+                checkMinimumRate(received, System.nanoTime() - startedAt - throttledNanos);
+                throttledNanos += acquire(bytes);
+            }
+        };
+    }
+
+    private void checkMinimumRate(long received, long clientNanos) {
+        if (minBytesPerSecond <= 0 || clientNanos <= minRateGraceNanos) {
+            return;
+        }
+        if (received * NANOS_PER_SECOND / clientNanos < minBytesPerSecond) {
+            rejectedSlowClient.increment();
+            throw new UploadRejectedException(HttpStatus.REQUEST_TIMEOUT,
+                "Envio lento demais. Verifique sua conexão e tente novamente.", retryAfterSeconds);
+        }
+    }
+
+    /**
+     * Espera a vez dos bytes no limite global; devolve quanto esperou (nanossegundos).
+     */
+    private long acquire(int bytes) throws InterruptedIOException {
+        if (bytesPerSecond <= 0) {
+            return 0;
+        }
+        long wait = reserve(bytes);
+        if (wait <= 0) {
+            return 0;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+            throttleTimer.record(wait, TimeUnit.NANOSECONDS);
+            return wait;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload interrompido");
+        }
+    }
+
+    /**
+     * Debita os bytes do bucket e devolve quanto esperar (nanossegundos) até eles caberem no limite.
+     * Um bucket parado acumula no máximo um segundo de crédito.
+     */
+    synchronized long reserve(int bytes) {
+        long now = System.nanoTime();
+        bucketEmptyAt = Math.max(bucketEmptyAt, now - NANOS_PER_SECOND) + bytes * NANOS_PER_SECOND / bytesPerSecond;
+        return bucketEmptyAt - now;
+    }
+
+    private void release(String user) {
+        inFlight.computeIfPresent(user, (key, count) -> count > 1 ? count - 1 : null);
+    }
+}
@@ -0,0 +1,132 @@
+package com.MoveRap.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Layout do diretório de uploads: cada arquivo fica em {@code ab/cd/{nome}}, com ab e cd tirados do início
+ * do nome (hash ou UUID, ambos hexadecimais). Variantes ({@code {nome}-{tamanho}.jpg}) caem no mesmo
+ * diretório do original. Com dois níveis de 256 entradas nenhum diretório passa de alguns milhares de
+ * arquivos, mesmo com milhões de uploads.
+ *
+ * Uploads antigos ainda podem estar na raiz até o UploadShardMigrator movê-los; {@link #find} procura
+ * nos dois lugares. As URLs públicas (/uploads/{nome}) não mudam.
+ */
+@Component
+public class UploadDirectory {
+
+    // Temporários ficam dentro do diretório de uploads: o move final é no mesmo sistema de arquivos
+    private static final String TEMP_DIR = ".tmp";
+    // Locks por faixa de hash do nome: memória fixa, colisões só serializam a mais
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path root;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public UploadDirectory(@Value("${file.upload-dir:uploads}") String uploadDir) {
+        this.root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Lock do nome de arquivo: o {@link LocalBlobStorage#put} o segura ao gravar e o
+     * {@link UploadGarbageCollector} entre a última conferência do mtime e a remoção.
+     */
+    public ReentrantLock lockFor(String filename) {
+        return locks[Math.floorMod(filename.hashCode(), LOCK_STRIPES)];
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public Path tempDir() throws IOException {
+        return Files.createDirectories(root.resolve(TEMP_DIR));
+    }
+
+    /**
+     * Onde o arquivo deve ficar (o diretório pode ainda não existir; ver {@link #prepare}).
+     */
+    public Path pathFor(String filename) {
+        String shard = shard(filename);
+        return root.resolve(shard.substring(0, 2)).resolve(shard.substring(2, 4)).resolve(filename);
+    }
+
+    /**
+     * {@link #pathFor} com os diretórios do shard já criados.
+     */
+    public Path prepare(String filename) throws IOException {
+        Path path = pathFor(filename);
+        Files.createDirectories(path.getParent());
+        return path;
+    }
+
+    /**
+     * Caminho no diretório plano antigo.
+     */
+    public Path legacyPathFor(String filename) {
+        return root.resolve(filename);
+    }
+
+    /**
+     * Arquivo existente com esse nome. O shard é consultado de novo depois da raiz: se o migrador
+     * mover o arquivo entre as duas primeiras consultas, a terceira o encontra.
+     */
+    public Optional<Path> find(String filename) {
+        Path sharded = pathFor(filename);
+        if (Files.isRegularFile(sharded)) {
+            return Optional.of(sharded);
+        }
+        Path legacy = legacyPathFor(filename);
+        if (Files.isRegularFile(legacy)) {
+            return Optional.of(legacy);
+        }
+        return Files.isRegularFile(sharded) ? Optional.of(sharded) : Optional.empty();
+    }
+
+    /**
+     * Remove o arquivo do shard e da raiz.
+     * @return true se alguma cópia foi removida
+     */
+    public boolean delete(String filename) throws IOException {
+        boolean deleted = Files.deleteIfExists(pathFor(filename));
+        return Files.deleteIfExists(legacyPathFor(filename)) || deleted;
+    }
+
+    /**
+     * Quatro primeiros caracteres hexadecimais do nome; nomes fora desse padrão usam o SHA-256 do próprio nome.
+     */
+    static String shard(String filename) {
+        if (filename.length() >= 4 && isHex(filename, 4)) {
+            return filename.substring(0, 4).toLowerCase();
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(filename.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 2);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isHex(String value, int length) {
+        for (int i = 0; i < length; i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
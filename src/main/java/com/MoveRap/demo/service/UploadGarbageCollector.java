@@ -0,0 +1,332 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.repository.UserPageRepository;
+import com.MoveRap.demo.repository.UserPageTrackRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Coletor (mark-and-sweep) dos uploads que nenhuma página usa: imagens e faixas de áudio enviadas e nunca
+ * salvas no perfil, trocadas por outras ou de páginas excluídas.
+ *
+ * Marcação: lê as URLs de user_page e de user_page_track em lotes por id (keyset) e guarda só os nomes-base
+ * referenciados.
+ * Varredura: percorre o diretório de uploads em streaming, num ritmo limitado de arquivos por segundo, e
+ * remove o que não foi marcado e está há mais que o período de carência sem ser gravado (um upload ainda
+ * não salvo no perfil, ou reenviado, tem mtime recente). Antes de cada remoção o banco é consultado de novo,
+ * porque a página pode ter sido salva depois da marcação, e o mtime é conferido outra vez sob o lock do nome
+ * ({@link UploadDirectory#lockFor}), o mesmo do put: um reenvio do mesmo conteúdo no meio não é apagado.
+ * Temporários esquecidos em .tmp também saem.
+ * As sessões de upload de áudio (.tmp/audio) têm TTL próprio: cada passada chama
+ * {@link AudioUploadService#purgeExpired}, também em dry-run, como já acontece a cada sessão criada.
+ *
+ * Roda numa thread própria, nunca nas de requisição. Em dry-run só registra o que removeria.
+ * Varre o diretório local: com storage.backend=s3 ali só há temporários.
+ */
+@Component
+public class UploadGarbageCollector {
+
+    // Nome do arquivo numa URL /uploads/{nome}, absoluta ou não, com ou sem ?size=
+    private static final Pattern UPLOAD_URL = Pattern.compile("/uploads/([^/?#]+)");
+    // {base}-{tamanho}.{jpg|png} (ImageDerivativeService.variantName)
+    private static final Pattern VARIANT = Pattern.compile("(.+)-\\d+\\.(jpg|png)");
+    // Dá tempo ao migrador de shards e ao aquecimento depois do boot
+    private static final long INITIAL_DELAY_MINUTES = 15;
+
+    private final UploadDirectory uploadDirectory;
+    private final UserPageRepository userPageRepository;
+    private final UserPageTrackRepository trackRepository;
+    private final ImageDerivativeService imageDerivativeService;
+    private final AudioUploadService audioUploadService;
+    private final BackgroundThreads backgroundThreads;
+    private final boolean enabled;
+    private final boolean dryRun;
+    private final Duration gracePeriod;
+    private final long intervalHours;
+    private final int batchSize;
+    private final long nanosPerFile;
+    private final Counter reclaimedBytes;
+    private final Counter removedFiles;
+    // Não synchronized: a passada consulta o banco, lê o disco e dorme, o que prenderia a carrier de uma thread virtual
+    private final ReentrantLock collecting = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+
+    public record Result(int scanned, int removed, long reclaimedBytes) {
+    }
+
+    public UploadGarbageCollector(UploadDirectory uploadDirectory,
+                                  UserPageRepository userPageRepository,
+                                  UserPageTrackRepository trackRepository,
+                                  ImageDerivativeService imageDerivativeService,
+                                  AudioUploadService audioUploadService,
+                                  BackgroundThreads backgroundThreads,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${gc.uploads.enabled:true}") boolean enabled,
+                                  @Value("${gc.uploads.dry-run:false}") boolean dryRun,
+                                  @Value("${gc.uploads.grace-hours:24}") long graceHours,
+                                  @Value("${gc.uploads.interval-hours:6}") long intervalHours,
+                                  @Value("${gc.uploads.batch-size:500}") int batchSize,
+                                  @Value("${gc.uploads.max-files-per-second:200}") int maxFilesPerSecond) {
+        this.uploadDirectory = uploadDirectory;
+        this.userPageRepository = userPageRepository;
+        this.trackRepository = trackRepository;
+        this.imageDerivativeService = imageDerivativeService;
+        this.audioUploadService = audioUploadService;
+        this.backgroundThreads = backgroundThreads;
+        this.enabled = enabled;
+        this.dryRun = dryRun;
+        this.gracePeriod = Duration.ofHours(graceHours);
+        this.intervalHours = Math.max(1, intervalHours);
+        this.batchSize = Math.max(1, batchSize);
+        this.nanosPerFile = maxFilesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxFilesPerSecond : 0;
+        String mode = Boolean.toString(dryRun);
+        this.reclaimedBytes = Counter.builder("uploads.gc.reclaimed")
+                .description("Bytes de uploads órfãos removidos (ou que seriam, em dry-run)")
+                .baseUnit("bytes")
+                .tag("dry.run", mode)
+                .register(meterRegistry);
+        this.removedFiles = Counter.builder("uploads.gc.removed")
+                .description("Uploads órfãos removidos (ou que seriam, em dry-run)")
+                .tag("dry.run", mode)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        ThreadFactory threads = backgroundThreads.factory("upload-gc");
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = threads.newThread(runnable);
+            // Threads virtuais não têm prioridade; ali o ritmo fica só com max-files-per-second
+            if (!thread.isVirtual()) {
+                thread.setPriority(Thread.MIN_PRIORITY);
+            }
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::collectQuietly,
+                INITIAL_DELAY_MINUTES, TimeUnit.HOURS.toMinutes(intervalHours), TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void collectQuietly() {
+        try {
+            collect();
+        } catch (RuntimeException e) {
+            // Uma exceção aqui cancelaria as próximas execuções agendadas
+            System.out.println("[GC] Falha na coleta de uploads: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Uma passada completa de marcação e varredura.
+     */
+    public Result collect() {
+        collecting.lock();
+        try {
+            // Sem isso uma sessão abandonada só sairia quando alguém criasse outra
+            int purged = audioUploadService.purgeExpired();
+            if (purged > 0) {
+                System.out.println("[GC] " + purged + " sessões de upload de áudio expiradas removidas");
+            }
+            return collectLocked();
+        } finally {
+            collecting.unlock();
+        }
+    }
+
+    private Result collectLocked() {
+        Path root = uploadDirectory.root();
+        if (!Files.isDirectory(root)) {
+            return new Result(0, 0, 0);
+        }
+        long started = System.nanoTime();
+        Set<String> referenced = markReferenced();
+        // Só é candidato o que já não era gravado antes da marcação começar
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        Path tempDir = root.resolve(".tmp");
+
+        int scanned = 0;
+        int removed = 0;
+        long bytes = 0;
+        long nextSlot = System.nanoTime();
+        // uploads/ab/cd/{nome}, uploads/{nome} (antigos) e uploads/.tmp/{temporário}
+        try (Stream<Path> files = Files.walk(root, 3)) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                Path file = iterator.next();
+                if (file.equals(root) || Files.isDirectory(file)) {
+                    continue;
+                }
+                if (nanosPerFile > 0) {
+                    long wait = nextSlot - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    nextSlot = Math.max(nextSlot, System.nanoTime()) + nanosPerFile;
+                }
+                scanned++;
+                long freed = sweep(file, file.getParent().equals(tempDir), referenced, cutoff);
+                if (freed >= 0) {
+                    removed++;
+                    bytes += freed;
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // Diretório removido ou movido no meio da varredura; a próxima execução continua
+            System.out.println("[GC] Varredura interrompida: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        reclaimedBytes.increment(bytes);
+        removedFiles.increment(removed);
+        System.out.println("[GC] " + (dryRun ? "(dry-run) " : "") + scanned + " arquivos verificados, "
+                + removed + " órfãos " + (dryRun ? "seriam removidos" : "removidos") + ", " + bytes + " bytes em "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+        return new Result(scanned, removed, bytes);
+    }
+
+    /**
+     * Nomes-base (sem extensão) de todos os uploads citados nas páginas e nas faixas.
+     */
+    private Set<String> markReferenced() {
+        Set<String> referenced = new HashSet<>();
+        long afterId = 0;
+        List<UserPageRepository.ImageReferences> batch;
+        do {
+            batch = userPageRepository.findImageReferences(afterId, PageRequest.of(0, batchSize));
+            for (UserPageRepository.ImageReferences page : batch) {
+                mark(referenced, page.getProfileImageUrl());
+                mark(referenced, page.getBackgroundImageUrl());
+                afterId = page.getId();
+            }
+        } while (batch.size() == batchSize);
+
+        afterId = 0;
+        List<UserPageTrackRepository.UploadReference> tracks;
+        do {
+            tracks = trackRepository.findUploadReferences(afterId, PageRequest.of(0, batchSize));
+            for (UserPageTrackRepository.UploadReference track : tracks) {
+                mark(referenced, track.getUrl());
+                afterId = track.getId();
+            }
+        } while (tracks.size() == batchSize);
+        return referenced;
+    }
+
+    private static void mark(Set<String> referenced, String url) {
+        if (url == null) {
+            return;
+        }
+        Matcher matcher = UPLOAD_URL.matcher(url);
+        if (matcher.find()) {
+            String filename = matcher.group(1);
+            referenced.add(baseName(filename));
+            // URL apontando direto para uma variante também mantém o original
+            Matcher variant = VARIANT.matcher(filename);
+            if (variant.matches()) {
+                referenced.add(variant.group(1));
+            }
+        }
+    }
+
+    /**
+     * @return bytes liberados, ou -1 se o arquivo fica
+     */
+    private long sweep(Path file, boolean temporary, Set<String> referenced, Instant cutoff) throws IOException {
+        String filename = file.getFileName().toString();
+        String base = baseName(filename);
+        if (!temporary) {
+            if (filename.startsWith(".") || referenced.contains(base)) {
+                return -1;
+            }
+            Matcher variant = VARIANT.matcher(filename);
+            if (variant.matches()) {
+                base = variant.group(1);
+                if (referenced.contains(base)) {
+                    return -1;
+                }
+            }
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            // Já removido (variantes saem junto com o original) ou movido pelo migrador
+            return -1;
+        }
+        if (attributes.lastModifiedTime().toInstant().isAfter(cutoff)) {
+            return -1;
+        }
+        // A página pode ter sido salva depois da marcação; '_' no padrão casa a mais, o que só preserva
+        if (!temporary && isStillReferenced("%/uploads/" + base + "%")) {
+            return -1;
+        }
+        if (dryRun) {
+            System.out.println("[GC] (dry-run) removeria " + filename + " (" + attributes.size() + " bytes)");
+            return attributes.size();
+        }
+        ReentrantLock lock = uploadDirectory.lockFor(filename);
+        lock.lock();
+        try {
+            // Reenviado depois da leitura acima: o put trocou o arquivo e o mtime é novo
+            if (Files.getLastModifiedTime(file).toInstant().isAfter(cutoff) || !Files.deleteIfExists(file)) {
+                return -1;
+            }
+        } catch (NoSuchFileException e) {
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+        long freed = attributes.size();
+        if (!temporary && ImageUploadService.isOriginalFilename(filename)) {
+            freed += imageDerivativeService.forget(filename);
+        }
+        return freed;
+    }
+
+    private boolean isStillReferenced(String urlPattern) {
+        return userPageRepository.countImageReferences(urlPattern) > 0
+                || trackRepository.countUploadReferences(urlPattern) > 0;
+    }
+
+    private static String baseName(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot > 0 ? filename.substring(0, dot) : filename;
+    }
+}
@@ -0,0 +1,26 @@
+package com.MoveRap.demo.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Upload recusado pelo controle de admissão (429 por usuário, 503 com o servidor cheio), com Retry-After
+ * para o cliente saber quando tentar de novo.
+ */
+public class UploadRejectedException extends ResponseStatusException {
+
+    private final long retryAfterSeconds;
+
+    public UploadRejectedException(HttpStatus status, String reason, long retryAfterSeconds) {
+        super(status, reason);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return headers;
+    }
+}
@@ -0,0 +1,106 @@
+package com.MoveRap.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Migração online, única, dos uploads da raiz plana para o layout {@code ab/cd/{nome}} (UploadDirectory).
+ *
+ * Roda em segundo plano após o boot, lendo a raiz em streaming (sem listar tudo em memória) e movendo um
+ * arquivo por vez com move atômico, com uma pausa a cada lote para não disputar disco com as requisições.
+ * Enquanto não termina, UploadDirectory.find procura no shard e na raiz, então as URLs continuam válidas.
+ * Se o shard já tem o arquivo (mesmo nome = mesmo conteúdo), a cópia da raiz só é apagada.
+ */
+@Component
+public class UploadShardMigrator {
+
+    private final UploadDirectory uploadDirectory;
+    private final BackgroundThreads backgroundThreads;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pauseMillis;
+
+    public UploadShardMigrator(UploadDirectory uploadDirectory,
+                               BackgroundThreads backgroundThreads,
+                               @Value("${migration.upload-shards.enabled:true}") boolean enabled,
+                               @Value("${migration.upload-shards.batch-size:500}") int batchSize,
+                               @Value("${migration.upload-shards.pause-ms:100}") long pauseMillis) {
+        this.uploadDirectory = uploadDirectory;
+        this.backgroundThreads = backgroundThreads;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.pauseMillis = pauseMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        backgroundThreads.start("upload-shard-migrator", this::migrateAll);
+    }
+
+    /**
+     * @return número de arquivos movidos para o shard
+     */
+    public int migrateAll() {
+        Path root = uploadDirectory.root();
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        int migrated = 0;
+        int inBatch = 0;
+        // Só arquivos regulares visíveis: shards, .tmp e afins são diretórios ou ocultos
+        DirectoryStream.Filter<Path> flatFiles = path -> Files.isRegularFile(path)
+                && !path.getFileName().toString().startsWith(".");
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root, flatFiles)) {
+            for (Path file : files) {
+                if (migrate(file)) {
+                    migrated++;
+                }
+                if (++inBatch == batchSize) {
+                    inBatch = 0;
+                    TimeUnit.MILLISECONDS.sleep(pauseMillis);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("[MIGRATION] Falha ao listar " + root + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (migrated > 0) {
+            System.out.println("[MIGRATION] " + migrated + " uploads movidos para o layout ab/cd");
+        }
+        return migrated;
+    }
+
+    private boolean migrate(Path file) {
+        String filename = file.getFileName().toString();
+        try {
+            Path target = uploadDirectory.prepare(filename);
+            if (Files.exists(target)) {
+                Files.deleteIfExists(file);
+                return false;
+            }
+            // rename(2): a URL nunca fica sem arquivo, só muda de diretório
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (NoSuchFileException e) {
+            // Excluído entre a listagem e o move
+            return false;
+        } catch (IOException e) {
+            System.out.println("[MIGRATION] Falha ao mover " + filename + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.Dtos.UserIdentityDto;
+import com.MoveRap.demo.model.UserModel;
+import com.MoveRap.demo.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache read-through de identidades (username/email -> id, hash da senha, epoch).
+ * Limitado por tamanho e TTL; estatísticas publicadas em /actuator/metrics (cache.gets, cache.evictions...).
+ * Deve ser invalidado sempre que um usuário for salvo.
+ *
+ * Misses carregam dentro de {@code cache.get(chave, loader)}: um invalidate da mesma chave espera a carga
+ * terminar e então a remove, então um hash lido antes de uma troca de senha não volta para o cache. A
+ * chave secundária (username, preenchida pelo login) é gravada fora da carga e descartada se houve
+ * invalidação no meio. Dentro de uma transação, o invalidate se repete depois do commit.
+ */
+@Service
+public class UserIdentityCache {
+
+    // Prefixos separam a semântica "email ou username" (login) da busca exata por username
+    private static final String LOGIN_KEY = "login:";
+    private static final String USERNAME_KEY = "username:";
+
+    private final UserRepository userRepository;
+    private final Cache<String, UserIdentityDto> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserIdentityCache(UserRepository userRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${cache.user-identity.max-size:10000}") long maxSize,
+                             @Value("${cache.user-identity.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userIdentity");
+    }
+
+    /**
+     * Resolve um login (email tem prioridade sobre username). Em caso de miss custa uma única consulta.
+     * @return a identidade, ou null se não existir
+     */
+    public UserIdentityDto findByLogin(String emailOrUsername) {
+        if (emailOrUsername == null) {
+            return null;
+        }
+        long generation = invalidations.get();
+        boolean[] loaded = new boolean[1];
+        UserIdentityDto identity = cache.get(LOGIN_KEY + emailOrUsername, key -> {
+            loaded[0] = true;
+            return loadByLogin(emailOrUsername);
+        });
+        if (identity != null && loaded[0]) {
+            String usernameKey = USERNAME_KEY + identity.username();
+            cache.put(usernameKey, identity);
+            // Um invalidate entre a consulta e o put já passou por esta chave: descarta o que foi lido antes
+            if (invalidations.get() != generation) {
+                cache.invalidate(usernameKey);
+            }
+        }
+        return identity;
+    }
+
+    private UserIdentityDto loadByLogin(String emailOrUsername) {
+        List<UserIdentityDto> matches = userRepository.findIdentitiesByEmailOrUsername(emailOrUsername);
+        UserIdentityDto identity = null;
+        for (UserIdentityDto match : matches) {
+            if (emailOrUsername.equals(match.email())) {
+                return match;
+            }
+            identity = match;
+        }
+        return identity;
+    }
+
+    /**
+     * Resolve o usuário autenticado pelo username (valor de Authentication.getName()).
+     * @return a identidade, ou null se não existir
+     */
+    public UserIdentityDto findByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+        // Loader que retorna null não grava nada: usuários inexistentes não ficam em cache
+        return cache.get(USERNAME_KEY + username, key -> userRepository.findIdentityByUsername(username));
+    }
+
+    public void invalidate(UserModel user) {
+        invalidate(user.getUsername(), user.getEmail());
+    }
+
+    public void invalidate(String username, String email) {
+        evict(username, email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Antes do commit outra requisição ainda lê o valor antigo do banco e o recarregaria
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(username, email);
+                }
+            });
+        }
+    }
+
+    private void evict(String username, String email) {
+        invalidations.incrementAndGet();
+        cache.invalidate(USERNAME_KEY + username);
+        cache.invalidate(LOGIN_KEY + username);
+        cache.invalidate(LOGIN_KEY + email);
+    }
+}
@@ -0,0 +1,161 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.model.UserPage;
+import com.MoveRap.demo.model.UserPageTrack;
+import com.MoveRap.demo.repository.UserPageRepository;
+import com.MoveRap.demo.repository.UserPageTrackRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Operações sobre as faixas de uma página.
+ *
+ * As posições são numeradas com intervalo {@link #POSITION_STEP}: adicionar grava uma linha no fim,
+ * remover apaga uma linha e mover grava apenas a faixa movida no ponto médio entre as vizinhas.
+ * Só quando o intervalo entre duas vizinhas se esgota a lista é renumerada.
+ * Toda alteração chama {@link UserPage#markModified()} para avançar versão/ETag da página.
+ */
+@Service
+public class UserPageTrackService {
+
+    static final long POSITION_STEP = 1024;
+
+    private final UserPageRepository userPageRepository;
+    private final UserPageTrackRepository trackRepository;
+
+    public UserPageTrackService(UserPageRepository userPageRepository, UserPageTrackRepository trackRepository) {
+        this.userPageRepository = userPageRepository;
+        this.trackRepository = trackRepository;
+    }
+
+    /**
+     * Substitui todas as faixas (PUT completo da página). A página já deve estar persistida;
+     * quem chama salva a página em seguida.
+     */
+    @Transactional
+    public void replaceTracks(UserPage page, List<String> urls) {
+        trackRepository.deleteByPageId(page.getId());
+        page.setMusicUrls(null);
+        long position = 0;
+        for (String url : urls) {
+            position += POSITION_STEP;
+            trackRepository.save(new UserPageTrack(page, url, position));
+        }
+        page.markModified();
+    }
+
+    /**
+     * Substitui as faixas de uma página gravada por upsert, sem carregá-la: o próprio upsert já
+     * limpou a coluna legada e avançou versão/updated_at.
+     */
+    @Transactional
+    public void replaceTracks(Long pageId, List<String> urls) {
+        trackRepository.deleteByPageId(pageId);
+        UserPage page = userPageRepository.getReferenceById(pageId);
+        long position = 0;
+        for (String url : urls) {
+            position += POSITION_STEP;
+            trackRepository.save(new UserPageTrack(page, url, position));
+        }
+    }
+
+    /**
+     * Substitui as faixas apenas se a lista for diferente da atual.
+     * @return true se houve alteração
+     */
+    @Transactional
+    public boolean replaceTracksIfChanged(UserPage page, List<String> urls) {
+        migrateLegacy(page);
+        List<String> current = trackRepository.findByPage_IdOrderByPositionAsc(page.getId()).stream()
+                .map(UserPageTrack::getUrl)
+                .toList();
+        if (current.equals(urls)) {
+            return false;
+        }
+        replaceTracks(page, urls);
+        return true;
+    }
+
+    @Transactional
+    public void append(Long userId, String url) {
+        UserPage page = findPage(userId);
+        migrateLegacy(page);
+        Long max = trackRepository.findMaxPosition(page.getId());
+        trackRepository.save(new UserPageTrack(page, url, (max != null ? max : 0) + POSITION_STEP));
+        page.markModified();
+    }
+
+    @Transactional
+    public void remove(Long userId, int index) {
+        UserPage page = findPage(userId);
+        migrateLegacy(page);
+        List<UserPageTrack> tracks = trackRepository.findByPage_IdOrderByPositionAsc(page.getId());
+        if (index < 0 || index >= tracks.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Faixa não encontrada");
+        }
+        trackRepository.delete(tracks.get(index));
+        page.markModified();
+    }
+
+    /**
+     * Move a faixa do índice {@code from} para o índice {@code to} (índices da lista final).
+     */
+    @Transactional
+    public void move(Long userId, int from, int to) {
+        UserPage page = findPage(userId);
+        migrateLegacy(page);
+        List<UserPageTrack> tracks = trackRepository.findByPage_IdOrderByPositionAsc(page.getId());
+        if (from < 0 || from >= tracks.size() || to < 0 || to >= tracks.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Faixa não encontrada");
+        }
+        if (from == to) {
+            return;
+        }
+        UserPageTrack track = tracks.remove(from);
+        // Vizinhas na posição de destino; nas pontas usa um intervalo inteiro além da vizinha
+        long after = to < tracks.size() ? tracks.get(to).getPosition() : tracks.get(to - 1).getPosition() + 2 * POSITION_STEP;
+        long before = to > 0 ? tracks.get(to - 1).getPosition() : after - 2 * POSITION_STEP;
+        if (after - before >= 2) {
+            track.setPosition(before + (after - before) / 2);
+        } else {
+            tracks.add(to, track);
+            for (int i = 0; i < tracks.size(); i++) {
+                tracks.get(i).setPosition((i + 1) * POSITION_STEP);
+            }
+        }
+        page.markModified();
+    }
+
+    /**
+     * Move a coluna legada separada por vírgula para a tabela de faixas, se ainda não migrada.
+     * @return true se havia dados legados
+     */
+    @Transactional
+    public boolean migrateLegacy(UserPage page) {
+        String legacy = page.getMusicUrls();
+        if (legacy == null) {
+            return false;
+        }
+        if (!legacy.isEmpty()) {
+            Long max = trackRepository.findMaxPosition(page.getId());
+            long position = max != null ? max : 0;
+            for (String url : legacy.split(",")) {
+                if (!url.isBlank()) {
+                    position += POSITION_STEP;
+                    trackRepository.save(new UserPageTrack(page, url.trim(), position));
+                }
+            }
+        }
+        page.setMusicUrls(null);
+        return true;
+    }
+
+    private UserPage findPage(Long userId) {
+        return userPageRepository.findByUser_Id(userId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Página do usuário não encontrada"));
+    }
+}
@@ -0,0 +1,103 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.model.UserPage;
+import com.MoveRap.demo.repository.UserPageRepository;
+import com.MoveRap.demo.repository.UserPageRepository.UpsertedPage;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Escritas da página (create, update, o formulário /save e o PATCH /me).
+ *
+ * A linha de user_page é gravada em um único INSERT ... ON CONFLICT (user_id): sem SELECT antes,
+ * e duas requisições simultâneas do mesmo usuário não disputam o "ainda não existe" até um erro de
+ * constraint. As faixas, quando vêm, são substituídas na mesma transação.
+ */
+@Service
+public class UserPageWriteService {
+
+    private final UserPageRepository userPageRepository;
+    private final UserPageTrackService userPageTrackService;
+
+    public UserPageWriteService(UserPageRepository userPageRepository, UserPageTrackService userPageTrackService) {
+        this.userPageRepository = userPageRepository;
+        this.userPageTrackService = userPageTrackService;
+    }
+
+    /**
+     * @return vazio se o usuário já tem página
+     */
+    @Transactional
+    public Optional<UpsertedPage> create(Long userId, String biography, String profileImageUrl,
+                                         String backgroundImageUrl, List<String> tracks) {
+        Optional<UpsertedPage> page = userPageRepository.insertIfAbsent(
+                userId, biography, profileImageUrl, backgroundImageUrl, Instant.now());
+        if (page.isPresent() && !tracks.isEmpty()) {
+            userPageTrackService.replaceTracks(page.get().getId(), tracks);
+        }
+        return page;
+    }
+
+    /**
+     * Substitui todos os campos; as faixas só quando {@code tracks} não é vazio.
+     */
+    @Transactional
+    public UpsertedPage replace(Long userId, String biography, String profileImageUrl,
+                                String backgroundImageUrl, List<String> tracks) {
+        boolean replaceTracks = tracks != null && !tracks.isEmpty();
+        UpsertedPage page = userPageRepository.upsert(
+                userId, biography, profileImageUrl, backgroundImageUrl, replaceTracks, Instant.now());
+        if (replaceTracks) {
+            userPageTrackService.replaceTracks(page.getId(), tracks);
+        }
+        return page;
+    }
+
+    /**
+     * Grava só os campos não nulos; as faixas sempre que {@code tracks} não é null (lista vazia limpa).
+     */
+    @Transactional
+    public UpsertedPage savePresentFields(Long userId, String biography, String profileImageUrl,
+                                          String backgroundImageUrl, List<String> tracks) {
+        UpsertedPage page = userPageRepository.upsertPresentFields(
+                userId, biography, profileImageUrl, backgroundImageUrl, tracks != null, Instant.now());
+        if (tracks != null) {
+            userPageTrackService.replaceTracks(page.getId(), tracks);
+        }
+        return page;
+    }
+
+    /**
+     * Merge patch: {@code fields} traz só os campos enviados (valor null limpa); {@code tracks} null
+     * mantém as faixas. Faixas e página são confirmadas juntas: um conflito de versão no commit (409/412)
+     * desfaz também a troca das faixas.
+     * Setters só com valores diferentes: o dirty checking não vê alteração e não há UPDATE.
+     */
+    @Transactional
+    public UserPage patch(Long userId, Map<String, String> fields, List<String> tracks) {
+        UserPage page = userPageRepository.findByUser_Id(userId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Página do usuário não encontrada"));
+        if (fields.containsKey("biography") && !Objects.equals(page.getBiography(), fields.get("biography"))) {
+            page.setBiography(fields.get("biography"));
+        }
+        if (fields.containsKey("profileImageUrl") && !Objects.equals(page.getProfileImageUrl(), fields.get("profileImageUrl"))) {
+            page.setProfileImageUrl(fields.get("profileImageUrl"));
+        }
+        if (fields.containsKey("backgroundImageUrl")
+                && !Objects.equals(page.getBackgroundImageUrl(), fields.get("backgroundImageUrl"))) {
+            page.setBackgroundImageUrl(fields.get("backgroundImageUrl"));
+        }
+        if (tracks != null) {
+            userPageTrackService.replaceTracksIfChanged(page, tracks);
+        }
+        return userPageRepository.save(page);
+    }
+}
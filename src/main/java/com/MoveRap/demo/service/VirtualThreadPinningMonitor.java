@@ -0,0 +1,96 @@
+package com.MoveRap.demo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diagnóstico de pinning no modo de threads virtuais: uma thread virtual que bloqueia dentro de um
+ * synchronized (ou de código nativo) prende a carrier, e com poucas carriers o servidor inteiro para.
+ *
+ * Lê o evento jdk.VirtualThreadPinned do JFR em streaming, sem gravar arquivo: cada ocorrência acima do
+ * limite entra no timer jvm.threads.virtual.pinned, e cada pilha nova é registrada uma vez no log.
+ * No lugar de -Djdk.tracePinnedThreads, que imprime a cada ocorrência dentro da própria thread presa.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_FRAMES = 8;
+    // Limita o log (e a memória) se o pinning vier de muitos lugares diferentes
+    private static final int MAX_REPORTED_STACKS = 100;
+
+    private final Duration threshold;
+    private final Timer pinned;
+    private final Set<String> reported = ConcurrentHashMap.newKeySet();
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${threads.pinning.threshold-ms:20}") long thresholdMillis) {
+        this.threshold = Duration.ofMillis(thresholdMillis);
+        this.pinned = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Tempo em que uma thread virtual bloqueou presa à carrier (acima do limite)")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::onPinned);
+        stream.startAsync();
+        System.out.println("[THREADS] Threads virtuais ativas; pinning acima de " + threshold.toMillis()
+                + " ms em jvm.threads.virtual.pinned");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        String stack = describe(event.getStackTrace());
+        if (reported.size() < MAX_REPORTED_STACKS && reported.add(stack)) {
+            System.out.println("[THREADS] Thread virtual presa à carrier por " + event.getDuration().toMillis()
+                    + " ms em " + stack);
+        }
+    }
+
+    private static String describe(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "(sem pilha)";
+        }
+        StringJoiner frames = new StringJoiner(" <- ");
+        int count = 0;
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            // Os frames de cima são sempre do próprio park da thread virtual
+            if (type.startsWith("java.lang.VirtualThread") || type.startsWith("jdk.internal.")) {
+                continue;
+            }
+            frames.add(type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber());
+            if (++count == MAX_FRAMES) {
+                break;
+            }
+        }
+        return frames.toString();
+    }
+}
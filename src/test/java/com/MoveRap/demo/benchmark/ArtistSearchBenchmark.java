@@ -0,0 +1,105 @@
+package com.MoveRap.demo.benchmark;
+
+import com.MoveRap.demo.Dtos.ArtistSearchDocDto;
+import com.MoveRap.demo.Dtos.ArtistSearchPageDto;
+import com.MoveRap.demo.service.ArtistSearchIndex;
+import com.MoveRap.demo.service.ArtistSearchService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latência da busca de artistas com 1M de páginas indexadas.
+ * Rodar com: {@code mvn test -Dtest=ArtistSearchBenchmark -Dbenchmarks=true}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ArtistSearchBenchmark {
+
+    private static final int USERS = 1_000_000;
+    private static final int WARMUP_QUERIES = 2_000;
+    private static final int MEASURED_QUERIES = 5_000;
+    private static final long P99_BUDGET_MICROS = 20_000;
+
+    // Poucas palavras repetidas em 1M de usernames: o pior caso para listas de postings longas
+    private static final String[] PREFIXES = {"mc", "dj", "lil", "big", "young", "kid", "king", "queen", "rap",
+            "flow", "beat", "rima", "verso", "favela", "quebrada"};
+    private static final String[] SEPARATORS = {"_", ".", ""};
+    private static final String[] SURNAMES = {"silva", "santos", "souza", "oliveira", "costa", "pereira", "lima",
+            "gomes", "ribeiro", "almeida", "nunes", "rocha", "dias", "moura", "barros"};
+    private static final String[] STYLES = {"boom bap", "trap", "drill", "rap nacional", "grime", "lo-fi"};
+    private static final String[] CITIES = {"São Paulo", "Recife", "Salvador", "Belo Horizonte", "Porto Alegre",
+            "Manaus", "Curitiba"};
+    private static final String[] ROLES = {"produtor", "MC", "beatmaker", "DJ", "compositor"};
+
+    private static final String[] QUERIES = {
+            "mc", "dj", "king", "quebrada", "mc_silva", "kidsantos", "flow", "lil.rocha",
+            "queen", "rima", "verso", "bigg", "youngg", "favela", "trap", "boom bap",
+            "drill", "sao paulo", "recife", "produtor", "mc so", "kng", "rapp", "beat dias"
+    };
+
+    @Test
+    void p99UnderBudgetWithOneMillionUsers() throws Exception {
+        ArtistSearchIndex index = new ArtistSearchIndex();
+        try {
+            ArtistSearchService service = new ArtistSearchService(index);
+            long loadStart = System.nanoTime();
+            seed(index);
+            System.out.printf("[BENCHMARK] %d páginas indexadas em %ds%n",
+                    USERS, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - loadStart));
+
+            for (int i = 0; i < WARMUP_QUERIES; i++) {
+                service.search(QUERIES[i % QUERIES.length], 20, null);
+            }
+
+            long[] latencies = new long[MEASURED_QUERIES];
+            for (int i = 0; i < MEASURED_QUERIES; i++) {
+                String query = QUERIES[i % QUERIES.length];
+                long start = System.nanoTime();
+                ArtistSearchPageDto page = service.search(query, 20, null);
+                // Metade das buscas também pede a segunda página (keyset)
+                if (i % 2 == 0 && page.nextCursor() != null) {
+                    assertNotNull(service.search(query, 20, page.nextCursor()));
+                }
+                latencies[i] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            }
+
+            Arrays.sort(latencies);
+            long p50 = latencies[MEASURED_QUERIES / 2];
+            long p99 = latencies[(int) (MEASURED_QUERIES * 0.99)];
+            System.out.printf("[BENCHMARK] busca de artistas (%d páginas): p50=%dus p99=%dus max=%dus%n",
+                    USERS, p50, p99, latencies[MEASURED_QUERIES - 1]);
+            assertTrue(p99 < P99_BUDGET_MICROS, "p99 de " + p99 + "us acima de " + P99_BUDGET_MICROS + "us");
+        } finally {
+            index.close();
+        }
+    }
+
+    private static void seed(ArtistSearchIndex index) {
+        index.beginLoad();
+        List<ArtistSearchDocDto> batch = new ArrayList<>();
+        for (long id = 1; id <= USERS; id++) {
+            String username = PREFIXES[(int) (id % PREFIXES.length)]
+                    + SEPARATORS[(int) (id / 15 % SEPARATORS.length)]
+                    + SURNAMES[(int) (id / 45 % SURNAMES.length)]
+                    + id;
+            String biography = "Artista de " + STYLES[(int) (id % STYLES.length)]
+                    + " de " + CITIES[(int) (id / 6 % CITIES.length)]
+                    + ", " + ROLES[(int) (id / 42 % ROLES.length)]
+                    + " desde " + (1990 + id % 35);
+            batch.add(new ArtistSearchDocDto(id, username, biography, null));
+            if (batch.size() == 1000) {
+                index.load(batch);
+                batch.clear();
+            }
+        }
+        index.load(batch);
+        index.finishLoad();
+    }
+}
@@ -0,0 +1,91 @@
+package com.MoveRap.demo.benchmark;
+
+import com.MoveRap.demo.service.LoginThrottle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Falhas de login com milhões de chaves distintas (spray de emails aleatórios).
+ * Rodar com: {@code mvn test -Dtest=LoginThrottleBenchmark -Dbenchmarks=true}
+ * O perfil "gc" do JMH mostra a alocação por operação (esperado: ~0 B/op no throttle).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class LoginThrottleBenchmark {
+
+    private static final int DISTINCT_KEYS = 4_000_000;
+
+    private LoginThrottle throttle;
+    private String[] accounts;
+    private String[] ips;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        throttle = new LoginThrottle(1 << 18, 5, 20, 15);
+        accounts = new String[DISTINCT_KEYS];
+        ips = new String[DISTINCT_KEYS];
+        for (int i = 0; i < DISTINCT_KEYS; i++) {
+            accounts[i] = "spray-" + Integer.toHexString(i * 0x9E3779B1) + "@example.com";
+            ips[i] = "10." + ((i >>> 16) & 0xFF) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = (int) (Thread.currentThread().threadId() * 7919) % DISTINCT_KEYS;
+        }
+
+        int advance() {
+            next = next + 1 == DISTINCT_KEYS ? 0 : next + 1;
+            return next;
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean recordFailureDistinctKeys(Cursor cursor) {
+        int i = cursor.advance();
+        return throttle.recordFailure(accounts[i], ips[i]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long checkLockDistinctKeys(Cursor cursor) {
+        int i = cursor.advance();
+        return throttle.accountLockRemainingSeconds(accounts[i]) + throttle.ipLockRemainingSeconds(ips[i]);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void run() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(LoginThrottleBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .jvmArgsAppend("-Xmx2g")
+                .build()).run();
+    }
+}
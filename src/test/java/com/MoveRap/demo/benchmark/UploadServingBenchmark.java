@@ -0,0 +1,132 @@
+package com.MoveRap.demo.benchmark;
+
+import com.MoveRap.demo.MoveRapApplication;
+import com.MoveRap.demo.service.ImageUploadService;
+import com.MoveRap.demo.service.UploadDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /uploads servido pelo UploadsController (sendfile, cache imutável) contra o resource handler que
+ * existia antes, registrado aqui em /uploads/legacy/**, ambos num Tomcat real na mesma JVM.
+ * Rodar com: {@code mvn test -Dtest=UploadServingBenchmark -Dbenchmarks=true}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class UploadServingBenchmark {
+
+    @Param({"16384", "1048576"})
+    public int bytes;
+
+    private ConfigurableApplicationContext context;
+    private Path uploadDir;
+    private HttpRequest controllerRequest;
+    private HttpRequest legacyRequest;
+    private HttpClient client;
+
+    /**
+     * O handler antigo: ResourceHttpRequestHandler sem cache nem resolvers.
+     */
+    public static class LegacyUploadHandler implements WebMvcConfigurer {
+        @Override
+        public void addResourceHandlers(ResourceHandlerRegistry registry) {
+            registry.addResourceHandler("/uploads/legacy/**")
+                    .addResourceLocations(Path.of(System.getProperty("benchmark.upload-dir")).toUri().toString());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        uploadDir = Files.createTempDirectory("uploads-benchmark");
+        System.setProperty("benchmark.upload-dir", uploadDir.toString());
+        context = new SpringApplicationBuilder(MoveRapApplication.class, LegacyUploadHandler.class)
+                .profiles("test")
+                // Como argumentos: properties() seriam defaults, abaixo do application-test.yaml
+                .run("--server.port=0",
+                        "--file.upload-dir=" + uploadDir,
+                        "--file.snapshot-dir=" + uploadDir.resolve("snapshots"),
+                        "--logging.level.root=WARN");
+        String port = context.getEnvironment().getProperty("local.server.port");
+
+        byte[] content = new byte[bytes];
+        new Random(42).nextBytes(content);
+        content[0] = (byte) 0x89;
+        content[1] = 0x50;
+        content[2] = 0x4E;
+        content[3] = 0x47;
+        String filename = context.getBean(ImageUploadService.class).store(new ByteArrayInputStream(content)).filename();
+        // O handler antigo não conhece o layout ab/cd: recebe o caminho relativo completo
+        String legacyPath = uploadDir.relativize(context.getBean(UploadDirectory.class).pathFor(filename)).toString();
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        controllerRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/uploads/" + filename)).build();
+        legacyRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/uploads/legacy/" + legacyPath)).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long controller() throws Exception {
+        return fetch(controllerRequest);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long legacyResourceHandler() throws Exception {
+        return fetch(legacyRequest);
+    }
+
+    private long fetch(HttpRequest request) throws Exception {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200 || response.body().length != bytes) {
+            throw new IllegalStateException("Resposta inesperada: " + response.statusCode());
+        }
+        return response.body().length;
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void run() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(UploadServingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
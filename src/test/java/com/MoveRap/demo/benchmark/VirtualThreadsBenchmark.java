@@ -0,0 +1,195 @@
+package com.MoveRap.demo.benchmark;
+
+import com.MoveRap.demo.MoveRapApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vazão e p99 de GET /user-page/public/{username} com threads de plataforma (Tomcat, 200 threads) e com
+ * spring.threads.virtual.enabled=true, de 1k a 10k conexões simultâneas. PostgreSQL embutido (o H2 dos
+ * testes sincroniza cada sessão e distorceria o modo virtual) e cache de página pública desligado: toda
+ * requisição passa pelo JDBC e pelo pool do Hikari.
+ *
+ * Carga em malha fechada: cada conexão é uma thread virtual do cliente, que envia a próxima requisição
+ * assim que recebe a resposta. Cliente e servidor dividem a mesma JVM e as mesmas CPUs.
+ * Rodar com: {@code mvn test -Dtest=VirtualThreadsBenchmark -Dbenchmarks=true}
+ * Opcionais: {@code -Dbenchmark.connections=1000,5000,10000 -Dbenchmark.seconds=20 -Dbenchmark.pool-size=20}
+ * (10k conexões pedem {@code ulimit -n} acima de 20k: cada uma ocupa um descritor no cliente e outro no servidor).
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class VirtualThreadsBenchmark {
+
+    private static final String USERNAME = "mcbenchmark";
+    private static final int[] CONNECTIONS = Arrays.stream(
+            System.getProperty("benchmark.connections", "1000,5000,10000").split(","))
+            .mapToInt(value -> Integer.parseInt(value.trim())).toArray();
+    private static final long MEASURED_SECONDS = Long.getLong("benchmark.seconds", 20);
+    private static final long WARMUP_SECONDS = 5;
+    private static final String POOL_SIZE = System.getProperty("benchmark.pool-size", "20");
+
+    private static EmbeddedPostgres postgres;
+    private static Path uploadDir;
+
+    private record Result(long requests, long errors, double seconds, long p50Micros, long p99Micros) {
+    }
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        uploadDir = Files.createTempDirectory("virtual-threads-benchmark");
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        postgres.close();
+    }
+
+    @Test
+    void compareModes() throws Exception {
+        List<String> report = new ArrayList<>();
+        for (boolean virtual : new boolean[] {false, true}) {
+            String mode = virtual ? "virtual" : "plataforma";
+            try (ConfigurableApplicationContext context = start(virtual)) {
+                URI base = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+                seed(base);
+                for (int connections : CONNECTIONS) {
+                    Result result = load(base.resolve("/user-page/public/" + USERNAME), connections);
+                    String line = String.format("[BENCHMARK] %-10s %6d conexões: %8.0f req/s, p50 %6.1f ms, p99 %7.1f ms, %d erros",
+                            mode, connections, result.requests() / result.seconds(),
+                            result.p50Micros() / 1000.0, result.p99Micros() / 1000.0, result.errors());
+                    System.out.println(line);
+                    report.add(line);
+                    assertTrue(result.requests() > 0, "Nenhuma requisição concluída em modo " + mode);
+                }
+            }
+        }
+        System.out.println(String.join(System.lineSeparator(), report));
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtual) {
+        return new SpringApplicationBuilder(MoveRapApplication.class)
+                // Como argumentos: properties() seriam defaults, abaixo do application.yaml
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                        "--server.tomcat.max-connections=" + (Arrays.stream(CONNECTIONS).max().orElse(0) + 1000),
+                        "--server.tomcat.accept-count=" + 4096,
+                        "--cache.public-page.max-bytes=0",
+                        "--file.upload-dir=" + uploadDir,
+                        "--file.snapshot-dir=" + uploadDir.resolve("snapshots"),
+                        "--migration.music-urls.enabled=false",
+                        "--migration.upload-shards.enabled=false",
+                        "--search.index.load-on-startup=false",
+                        "--image.derivatives.enabled=false",
+                        "--gc.uploads.enabled=false",
+                        "--logging.level.root=WARN");
+    }
+
+    /**
+     * Usuário com página e duas faixas; no segundo modo o banco já tem tudo e as respostas de erro são ignoradas.
+     */
+    private static void seed(URI base) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        send(client, base.resolve("/auth/register"), null,
+                "{\"username\":\"" + USERNAME + "\",\"email\":\"" + USERNAME + "@benchmark.com\",\"password\":\"Senha@Forte123\"}");
+        String login = send(client, base.resolve("/auth/login"), null,
+                "{\"email\":\"" + USERNAME + "@benchmark.com\",\"password\":\"Senha@Forte123\"}");
+        String token = login.replaceAll(".*\"token\":\"([^\"]+)\".*", "$1");
+        send(client, base.resolve("/user-page/create"), token,
+                "{\"biography\":\"Benchmark\",\"musicUrlsList\":[\"https://example.com/a\",\"https://example.com/b\"]}");
+    }
+
+    private static String send(HttpClient client, URI uri, String token, String json) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private static Result load(URI uri, int connections) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).build();
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(MEASURED_SECONDS);
+        AtomicLong errors = new AtomicLong();
+        long[][] latencies = new long[connections][];
+
+        List<Thread> clients = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            int slot = i;
+            clients.add(Thread.ofVirtual().start(() -> {
+                long[] samples = new long[1024];
+                int count = 0;
+                try {
+                    // Abre as conexões ao longo do aquecimento, sem estourar o backlog do accept
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(TimeUnit.SECONDS.toMillis(WARMUP_SECONDS) / 2));
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (true) {
+                    long started = System.nanoTime();
+                    if (started >= measureUntil) {
+                        break;
+                    }
+                    boolean ok;
+                    try {
+                        ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                    } catch (Exception e) {
+                        ok = false;
+                    }
+                    long finished = System.nanoTime();
+                    if (started < measureFrom || finished > measureUntil) {
+                        continue;
+                    }
+                    if (!ok) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    if (count == samples.length) {
+                        samples = Arrays.copyOf(samples, count * 2);
+                    }
+                    samples[count++] = finished - started;
+                }
+                latencies[slot] = Arrays.copyOf(samples, count);
+            }));
+        }
+        for (Thread thread : clients) {
+            thread.join();
+        }
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        if (all.length == 0) {
+            return new Result(0, errors.get(), MEASURED_SECONDS, 0, 0);
+        }
+        return new Result(all.length, errors.get(), MEASURED_SECONDS,
+                TimeUnit.NANOSECONDS.toMicros(all[all.length / 2]),
+                TimeUnit.NANOSECONDS.toMicros(all[(int) Math.min(all.length - 1, Math.ceil(all.length * 0.99) - 1)]));
+    }
+}
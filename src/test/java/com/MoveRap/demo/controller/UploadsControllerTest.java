@@ -0,0 +1,169 @@
+package com.MoveRap.demo.controller;
+
+import com.MoveRap.demo.service.BlobStorage;
+import com.MoveRap.demo.service.ImageDerivativeService;
+import com.MoveRap.demo.service.ImageUploadService;
+import com.MoveRap.demo.service.LocalBlobStorage;
+import com.MoveRap.demo.service.UploadDirectory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class UploadsControllerTest {
+
+    private static final String IMMUTABLE = "max-age=31536000, public, immutable";
+
+    @TempDir
+    Path uploadDir;
+
+    private UploadDirectory uploadDirectory;
+    private ImageDerivativeService derivativeService;
+    private UploadsController controller;
+    private MockMvc mockMvc;
+    private byte[] content;
+    private String filename;
+
+    @BeforeEach
+    void setUp() {
+        derivativeService = mock(ImageDerivativeService.class);
+        when(derivativeService.variant(any(), anyInt())).thenReturn(Optional.empty());
+        uploadDirectory = new UploadDirectory(uploadDir.toString());
+        LocalBlobStorage blobStorage = new LocalBlobStorage(uploadDirectory);
+        ImageUploadService uploadService = new ImageUploadService(uploadDirectory, blobStorage);
+        controller = new UploadsController();
+        ReflectionTestUtils.setField(controller, "imageUploadService", uploadService);
+        ReflectionTestUtils.setField(controller, "imageDerivativeService", derivativeService);
+        ReflectionTestUtils.setField(controller, "blobStorage", blobStorage);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        content = new byte[100_000];
+        content[0] = (byte) 0x89;
+        content[1] = 0x50;
+        content[2] = 0x4E;
+        content[3] = 0x47;
+        for (int i = 4; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        filename = uploadService.store(new ByteArrayInputStream(content)).filename();
+    }
+
+    @Test
+    void servesImmutableBodyWithStrongEtag() throws Exception {
+        String sha = filename.substring(0, filename.indexOf('.'));
+        mockMvc.perform(get("/uploads/" + filename))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", IMMUTABLE))
+                .andExpect(header().string("ETag", "\"" + sha + "\""))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().longValue("Content-Length", content.length))
+                .andExpect(content().contentType("image/png"))
+                .andExpect(content().bytes(content));
+
+        mockMvc.perform(get("/uploads/" + filename).header("If-None-Match", "\"" + sha + "\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(head("/uploads/" + filename))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", content.length))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void servesSingleByteRanges() throws Exception {
+        mockMvc.perform(get("/uploads/" + filename).header("Range", "bytes=10-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 10-19/" + content.length))
+                .andExpect(content().bytes(Arrays.copyOfRange(content, 10, 20)));
+        mockMvc.perform(get("/uploads/" + filename).header("Range", "bytes=-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(Arrays.copyOfRange(content, content.length - 5, content.length)));
+        mockMvc.perform(get("/uploads/" + filename).header("Range", "bytes=" + content.length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */" + content.length));
+
+        // If-Range com outro ETag: o arquivo mudou para o cliente, vai o corpo inteiro
+        mockMvc.perform(get("/uploads/" + filename).header("Range", "bytes=10-19").header("If-Range", "\"outro\""))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", content.length));
+    }
+
+    @Test
+    void sizeFallsBackToRevalidatedOriginalUntilTheVariantExists() throws Exception {
+        mockMvc.perform(get("/uploads/" + filename).param("size", "256"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(content().bytes(content));
+
+        String variant = filename.replace(".png", "-256.jpg");
+        Files.write(uploadDirectory.prepare(variant), new byte[] {1, 2, 3});
+        when(derivativeService.variant(eq(filename), eq(256))).thenReturn(Optional.of(variant));
+        mockMvc.perform(get("/uploads/" + filename).param("size", "256"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", IMMUTABLE))
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(content().bytes(new byte[] {1, 2, 3}));
+    }
+
+    @Test
+    void handsLargeBodiesToTomcatSendfile() throws Exception {
+        MvcResult result = mockMvc.perform(get("/uploads/" + filename).header("Range", "bytes=0-59999")
+                        .requestAttr("org.apache.tomcat.sendfile.support", Boolean.TRUE))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().longValue("Content-Length", 60_000))
+                .andExpect(content().bytes(new byte[0]))
+                .andReturn();
+
+        assertEquals(uploadDirectory.pathFor(filename).toString(),
+                result.getRequest().getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(0L, result.getRequest().getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(60_000L, result.getRequest().getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    @Test
+    void refusesNamesOutsideTheUploadDirectory() throws Exception {
+        Files.createDirectories(uploadDir.resolve(".tmp"));
+        Files.write(uploadDir.resolve(".tmp").resolve("upload1.tmp"), new byte[] {1});
+
+        mockMvc.perform(get("/uploads/.tmp")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/uploads/..%2F" + filename)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/uploads/nada.png")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void redirectsToRemoteStorage() throws Exception {
+        BlobStorage remote = mock(BlobStorage.class);
+        when(remote.downloadUrl(any())).thenAnswer(invocation ->
+                Optional.of(URI.create("https://bucket.s3/uploads/" + invocation.getArgument(0) + "?X-Amz-Signature=x")));
+        ReflectionTestUtils.setField(controller, "blobStorage", remote);
+        when(derivativeService.variant(eq(filename), eq(64))).thenReturn(Optional.of(filename.replace(".png", "-64.jpg")));
+
+        mockMvc.perform(get("/uploads/" + filename).param("size", "64"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", "https://bucket.s3/uploads/" + filename.replace(".png", "-64.jpg") + "?X-Amz-Signature=x"))
+                .andExpect(header().string("Cache-Control", "max-age=600, private"));
+        // Variante ainda não gerada: o redirect para o original não pode ficar em cache
+        mockMvc.perform(get("/uploads/" + filename).param("size", "256"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Cache-Control", "no-cache"));
+        mockMvc.perform(get("/uploads/.tmp")).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,101 @@
+package com.MoveRap.demo.controller;
+
+import com.MoveRap.demo.Dtos.UserIdentityDto;
+import com.MoveRap.demo.Dtos.UserPageViewDto;
+import com.MoveRap.demo.repository.UserPageRepository;
+import com.MoveRap.demo.service.PublicPageCache;
+import com.MoveRap.demo.service.UserIdentityCache;
+import com.MoveRap.demo.service.UserPageWriteService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class UserPageControllerTest {
+
+    private UserPageRepository userPageRepository;
+    private PublicPageCache publicPageCache;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        userPageRepository = mock(UserPageRepository.class);
+        publicPageCache = new PublicPageCache(new SimpleMeterRegistry(), 1 << 20, 600);
+        UserPageController controller = new UserPageController();
+        ReflectionTestUtils.setField(controller, "userPageRepository", userPageRepository);
+        ReflectionTestUtils.setField(controller, "publicPageCache", publicPageCache);
+        ReflectionTestUtils.setField(controller, "objectMapper", new ObjectMapper());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void batchKeepsRequestedOrderAndServesHitsFromTheCache() throws Exception {
+        when(userPageRepository.findViewsByUsernames(anyCollection()))
+                .thenReturn(List.of(view("b", 1, "Bio b"), view("a", 1, "Bio a")));
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/user-page/public").param("usernames", "a,ninguem,b"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.pages[0].username").value("a"))
+                    .andExpect(jsonPath("$.pages[1].username").value("b"))
+                    .andExpect(jsonPath("$.missing[0]").value("ninguem"));
+        }
+
+        // Segunda requisição: só o ausente volta ao banco
+        verify(userPageRepository).findViewsByUsernames(List.of("a", "ninguem", "b"));
+        verify(userPageRepository).findViewsByUsernames(List.of("ninguem"));
+    }
+
+    @Test
+    void invalidationDuringTheBatchReadIsNotLost() throws Exception {
+        when(userPageRepository.findViewsByUsernames(anyCollection()))
+                .thenAnswer(invocation -> {
+                    // A escrita confirma (e invalida) depois da leitura da versão antiga
+                    publicPageCache.invalidate("mc");
+                    return List.of(view("mc", 1, "Bio antiga"));
+                })
+                .thenReturn(List.of(view("mc", 2, "Bio nova")));
+
+        mockMvc.perform(get("/user-page/public").param("usernames", "mc"))
+                .andExpect(jsonPath("$.pages[0].biography").value("Bio antiga"));
+        mockMvc.perform(get("/user-page/public").param("usernames", "mc"))
+                .andExpect(jsonPath("$.pages[0].biography").value("Bio nova"));
+    }
+
+    @Test
+    void patchRejectsTrackUrlsLongerThanTheColumn() throws Exception {
+        UserIdentityCache userIdentityCache = mock(UserIdentityCache.class);
+        UserPageWriteService userPageWriteService = mock(UserPageWriteService.class);
+        when(userIdentityCache.findByUsername("mc")).thenReturn(new UserIdentityDto(1L, "mc", "mc@rap.com", "$2a$10$hash", 0L));
+        UserPageController controller = new UserPageController();
+        ReflectionTestUtils.setField(controller, "userIdentityCache", userIdentityCache);
+        ReflectionTestUtils.setField(controller, "userPageWriteService", userPageWriteService);
+        MockMvc patchMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        patchMvc.perform(patch("/user-page/me")
+                        .principal(new TestingAuthenticationToken("mc", null, "ROLE_USER"))
+                        .contentType("application/merge-patch+json")
+                        .content("{\"musicUrlsList\": [\"https://x.com/" + "a".repeat(2048) + "\"]}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(userPageWriteService);
+    }
+
+    private static UserPageViewDto view(String username, long version, String biography) {
+        return new UserPageViewDto(1L, version, Instant.ofEpochSecond(1_700_000_000L), username, biography,
+                null, null, List.of());
+    }
+}
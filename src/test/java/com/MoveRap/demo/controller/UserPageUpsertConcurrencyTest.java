@@ -0,0 +1,160 @@
+package com.MoveRap.demo.controller;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Escritas simultâneas da mesma página contra um PostgreSQL real (o H2 não tem ON CONFLICT DO UPDATE).
+ *
+ * O contexto é descartado ao fim da classe e o banco embutido é parado no @AfterAll. O JUnit roda o
+ * @AfterAll antes de o Spring fechar o contexto, então o schema é só criado (ddl-auto=create): com
+ * create-drop o DROP no fechamento esperaria por um banco que já parou.
+ */
+@SpringBootTest(properties = "spring.jpa.hibernate.ddl-auto=create")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class UserPageUpsertConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final EmbeddedPostgres POSTGRES = startPostgres();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String auth;
+    private long userId;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        POSTGRES.close();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String username = "mc" + System.nanoTime();
+        mockMvc.perform(post("/auth/register").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + username + "\",\"email\":\"" + username + "@rap.com\",\"password\":\"Senha@Forte123\"}"));
+        String login = mockMvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + username + "@rap.com\",\"password\":\"Senha@Forte123\"}"))
+                .andReturn().getResponse().getContentAsString();
+        auth = "Bearer " + login.replaceAll(".*\"token\":\"([^\"]+)\".*", "$1");
+        userId = jdbcTemplate.queryForObject("select id from users where username = ?", Long.class, username);
+    }
+
+    @Test
+    void concurrentCreatesMakeOnePageAndConflictTheRest() throws Exception {
+        List<Integer> statuses = hammer(i -> post("/user-page/create").header("Authorization", auth)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"biography\":\"Bio " + i + "\",\"musicUrlsList\":[\"https://a.com/" + i + "\"]}"));
+
+        assertEquals(1, statuses.stream().filter(status -> status == 201).count());
+        assertEquals(THREADS - 1, statuses.stream().filter(status -> status == 409).count());
+        assertEquals(1, pageCount());
+        assertEquals(1, trackCount());
+    }
+
+    @Test
+    void concurrentUpdatesAndSavesNeverFailOrLoseAVersion() throws Exception {
+        List<Integer> statuses = hammer(i -> i % 2 == 0
+                ? put("/user-page/update").header("Authorization", auth).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"biography\":\"Bio " + i + "\",\"musicUrlsList\":[\"https://a.com/" + i + "\",\"https://b.com/" + i + "\"]}")
+                : post("/user-page/save").header("Authorization", auth)
+                        .param("biography", "Bio " + i)
+                        .param("musicUrls", "https://a.com/" + i + ",https://b.com/" + i));
+
+        assertTrue(statuses.stream().allMatch(status -> status == 200), statuses.toString());
+        assertEquals(1, pageCount());
+        // Uma linha inserida e THREADS - 1 atualizações, cada uma avançando a versão no próprio UPDATE
+        Map<String, Object> page = jdbcTemplate.queryForMap(
+                "select version, biography from user_page where user_id = ?", userId);
+        assertEquals((long) THREADS - 1, ((Number) page.get("version")).longValue());
+        // O lock da linha tomado pelo upsert serializa a troca de faixas: sobra a lista de uma única escrita
+        String suffix = ((String) page.get("biography")).substring("Bio ".length());
+        assertEquals(List.of("https://a.com/" + suffix, "https://b.com/" + suffix), jdbcTemplate.queryForList(
+                "select t.url from user_page_track t join user_page p on p.id = t.user_page_id " +
+                "where p.user_id = ? order by t.sort_position", String.class, userId));
+    }
+
+    private List<Integer> hammer(Request request) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                RequestBuilder builder = request.build(i);
+                Callable<Integer> call = () -> {
+                    start.await();
+                    return mockMvc.perform(builder).andReturn().getResponse().getStatus();
+                };
+                results.add(executor.submit(call));
+            }
+            start.countDown();
+            List<Integer> statuses = new ArrayList<>();
+            for (Future<Integer> result : results) {
+                statuses.add(result.get());
+            }
+            return statuses;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long pageCount() {
+        return jdbcTemplate.queryForObject("select count(*) from user_page where user_id = ?", Long.class, userId);
+    }
+
+    private long trackCount() {
+        return jdbcTemplate.queryForObject("select count(*) from user_page_track t join user_page p on p.id = t.user_page_id " +
+                "where p.user_id = ?", Long.class, userId);
+    }
+
+    private interface Request {
+        RequestBuilder build(int i);
+    }
+}
@@ -0,0 +1,169 @@
+package com.MoveRap.demo.repository;
+
+import com.MoveRap.demo.Dtos.UserPageViewDto;
+import com.MoveRap.demo.model.UserModel;
+import com.MoveRap.demo.model.UserPage;
+import com.MoveRap.demo.model.UserPageTrack;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserPageRepositoryTest {
+
+    @Autowired
+    private UserPageRepository userPageRepository;
+    @Autowired
+    private UserPageTrackRepository trackRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        UserModel user = new UserModel(null, "mc", "mc@rap.com", "$2a$10$hash");
+        entityManager.persist(user);
+        UserPage page = new UserPage();
+        page.setUser(user);
+        page.setBiography("Bio");
+        entityManager.persist(page);
+        // Posições fora da ordem de inserção: a leitura deve ordenar por posição
+        entityManager.persist(new UserPageTrack(page, "https://x.com/b,1", 2048));
+        entityManager.persist(new UserPageTrack(page, "https://x.com/a", 1024));
+        entityManager.flush();
+        entityManager.clear();
+        userId = user.getId();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void viewByUsernameIsSingleJoinedQueryWithoutEntities() {
+        UserPageViewDto view = userPageRepository.findViewByUsername("mc").orElseThrow();
+
+        assertEquals("mc", view.username());
+        assertEquals("Bio", view.biography());
+        assertEquals(List.of("https://x.com/a", "https://x.com/b,1"), view.musicUrlsList());
+        assertEquals(0, view.version());
+        assertNotNull(view.updatedAt());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void batchViewsLoadAllPagesInOneQuery() {
+        UserModel other = new UserModel(null, "dj", "dj@rap.com", "$2a$10$hash");
+        entityManager.persist(other);
+        UserPage otherPage = new UserPage();
+        otherPage.setUser(other);
+        otherPage.setBiography("DJ");
+        entityManager.persist(otherPage);
+        entityManager.persist(new UserPageTrack(otherPage, "https://x.com/dj", 1024));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<UserPageViewDto> views = userPageRepository.findViewsByUsernames(List.of("dj", "mc", "ninguem"));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(2, views.size());
+        UserPageViewDto mc = views.stream().filter(v -> v.username().equals("mc")).findFirst().orElseThrow();
+        UserPageViewDto dj = views.stream().filter(v -> v.username().equals("dj")).findFirst().orElseThrow();
+        assertEquals(List.of("https://x.com/a", "https://x.com/b,1"), mc.musicUrlsList());
+        assertEquals(List.of("https://x.com/dj"), dj.musicUrlsList());
+    }
+
+    @Test
+    void missingPageIsSingleQuery() {
+        assertTrue(userPageRepository.findViewByUsername("ninguem").isEmpty());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void writesBumpVersionAndEtag() {
+        UserPageViewDto before = userPageRepository.findViewByUsername("mc").orElseThrow();
+
+        UserPage page = userPageRepository.findByUser_Id(userId).orElseThrow();
+        page.setBiography("Nova bio");
+        entityManager.flush();
+        entityManager.clear();
+
+        UserPageViewDto after = userPageRepository.findViewByUsername("mc").orElseThrow();
+        assertEquals(before.version() + 1, after.version());
+        assertNotEquals(before.etag("me"), after.etag("me"));
+        assertFalse(after.updatedAt().isBefore(before.updatedAt()));
+    }
+
+    @Test
+    void unchangedPageKeepsVersion() {
+        UserPage page = userPageRepository.findByUser_Id(userId).orElseThrow();
+        page.setBiography("Bio");
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(0, userPageRepository.findViewByUsername("mc").orElseThrow().version());
+    }
+
+    @Test
+    void countsImageReferencesByUploadSuffix() {
+        UserPage page = userPageRepository.findByUser_Id(userId).orElseThrow();
+        page.setProfileImageUrl("http://localhost:8080/uploads/abc.png");
+        page.setBackgroundImageUrl("/uploads/abc.png");
+        userPageRepository.saveAndFlush(page);
+
+        assertEquals(1, userPageRepository.countImageReferences("%/uploads/abc.png"));
+        assertEquals(0, userPageRepository.countImageReferences("%/uploads/bc.png"));
+    }
+
+    @Test
+    void imageReferencesFollowTheIdCursor() {
+        UserPage page = userPageRepository.findByUser_Id(userId).orElseThrow();
+        page.setBackgroundImageUrl("/uploads/abc.png");
+        userPageRepository.saveAndFlush(page);
+
+        List<UserPageRepository.ImageReferences> first = userPageRepository.findImageReferences(0L, PageRequest.of(0, 10));
+
+        assertEquals(1, first.size());
+        assertEquals(page.getId(), first.get(0).getId());
+        assertNull(first.get(0).getProfileImageUrl());
+        assertEquals("/uploads/abc.png", first.get(0).getBackgroundImageUrl());
+        assertTrue(userPageRepository.findImageReferences(page.getId(), PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    void uploadedTracksFollowTheIdCursor() {
+        UserPage page = userPageRepository.findByUser_Id(userId).orElseThrow();
+        UserPageTrack uploaded = trackRepository.saveAndFlush(
+                new UserPageTrack(page, "http://localhost:8080/uploads/abc.mp3", 4096));
+
+        List<UserPageTrackRepository.UploadReference> first = trackRepository.findUploadReferences(0L, PageRequest.of(0, 10));
+
+        // As faixas externas (https://x.com/...) não entram
+        assertEquals(1, first.size());
+        assertEquals(uploaded.getId(), first.get(0).getId());
+        assertEquals("http://localhost:8080/uploads/abc.mp3", first.get(0).getUrl());
+        assertTrue(trackRepository.findUploadReferences(uploaded.getId(), PageRequest.of(0, 10)).isEmpty());
+        assertEquals(1, trackRepository.countUploadReferences("%/uploads/abc%"));
+        assertEquals(0, trackRepository.countUploadReferences("%/uploads/bc.mp3"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.MoveRap.demo.repository;
+
+import com.MoveRap.demo.model.UserModel;
+import com.MoveRap.demo.model.UserPage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        UserModel user = new UserModel(null, "mc", "mc@rap.com", "$2a$10$hash");
+        entityManager.persist(user);
+        UserPage page = new UserPage();
+        page.setUser(user);
+        page.setBiography("Bio");
+        entityManager.persist(page);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void loadingUserDoesNotTouchUserPage() {
+        UserModel user = userRepository.findByUsername("mc");
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertFalse(Hibernate.isPropertyInitialized(user, "userPage"));
+
+        UserModel byEmail = userRepository.findByEmail("mc@rap.com");
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertFalse(Hibernate.isPropertyInitialized(byEmail, "userPage"));
+    }
+
+    @Test
+    void authenticationLookupIsASingleStatement() {
+        assertEquals(1, userRepository.findIdentitiesByEmailOrUsername("mc@rap.com").size());
+        assertNotNull(userRepository.findIdentityByUsername("mc"));
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void maxBcryptCostIgnoresOtherFormats() {
+        entityManager.persist(new UserModel(null, "dj", "dj@rap.com", "$2b$12$hash"));
+        entityManager.persist(new UserModel(null, "beat", "beat@rap.com", "{noop}texto"));
+        entityManager.flush();
+
+        assertEquals("12", userRepository.findMaxBcryptCost());
+    }
+
+    @Test
+    void userPageIsLoadedOnlyWhenAccessed() {
+        UserModel user = userRepository.findByUsername("mc");
+
+        assertEquals("Bio", user.getUserPage().getBiography());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,112 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.Dtos.ArtistDirectoryEntryDto;
+import com.MoveRap.demo.Dtos.ArtistDirectoryPageDto;
+import com.MoveRap.demo.model.UserModel;
+import com.MoveRap.demo.model.UserPage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(ArtistDirectoryService.class)
+class ArtistDirectoryServiceTest {
+
+    @Autowired
+    private ArtistDirectoryService directoryService;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (String username : List.of("mc", "dj", "lil", "king", "queen")) {
+            UserModel user = new UserModel(null, username, username + "@rap.com", "$2a$10$hash");
+            entityManager.persist(user);
+            UserPage page = new UserPage();
+            page.setUser(user);
+            page.setProfileImageUrl("/uploads/images/" + username + ".png");
+            entityManager.persist(page);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void pagesByKeysetUntilTheEnd() {
+        List<String> usernames = new ArrayList<>();
+        Long afterId = null;
+        int pages = 0;
+        do {
+            ArtistDirectoryPageDto page = directoryService.page(afterId, 2);
+            page.entries().forEach(entry -> usernames.add(entry.username()));
+            afterId = page.nextAfterId();
+            pages++;
+        } while (afterId != null);
+
+        assertEquals(List.of("mc", "dj", "lil", "king", "queen"), usernames);
+        assertEquals(3, pages);
+        // Uma consulta por página, nenhuma entidade carregada
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void exactPageSizeHasNoNextPage() {
+        ArtistDirectoryPageDto page = directoryService.page(null, 5);
+
+        assertEquals(5, page.entries().size());
+        assertNull(page.nextAfterId());
+    }
+
+    @Test
+    void writesOneJsonObjectPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        directoryService.writeNdjson(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(5, lines.length);
+        assertTrue(lines[0].contains("\"username\":\"mc\""));
+        assertTrue(lines[0].contains("\"profileImageUrl\":\"/uploads/images/mc.png\""));
+        assertTrue(lines[4].contains("\"username\":\"queen\""));
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void emptyDirectoryWritesNothing() {
+        entityManager.createQuery("delete from UserPage").executeUpdate();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        directoryService.writeNdjson(out);
+
+        assertEquals(0, out.size());
+        assertEquals(List.<ArtistDirectoryEntryDto>of(), directoryService.page(null, 10).entries());
+    }
+}
@@ -0,0 +1,136 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.Dtos.ArtistSearchDocDto;
+import com.MoveRap.demo.Dtos.ArtistSearchPageDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArtistSearchServiceTest {
+
+    private ArtistSearchIndex index;
+    private ArtistSearchService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        index = new ArtistSearchIndex();
+        service = new ArtistSearchService(index);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Test
+    void ranksUsernamePrefixAboveBiographyMatches() {
+        index.index(new ArtistSearchDocDto(1L, "djmarcos", "Parceiro do MC Kevin", null));
+        index.index(new ArtistSearchDocDto(2L, "MC_Silva", "Rap de Recife", "/uploads/images/a.png"));
+        index.index(new ArtistSearchDocDto(3L, "lilrocha", "Trap de Salvador", null));
+
+        ArtistSearchPageDto page = service.search("  mc  ", 20, null);
+
+        assertEquals(List.of("MC_Silva", "djmarcos"), usernames(page));
+        assertEquals("/uploads/images/a.png", page.results().get(0).profileImageUrl());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void matchesTyposAccentsAndPartialWords() {
+        index.index(new ArtistSearchDocDto(1L, "king_rocha1", null, null));
+        index.index(new ArtistSearchDocDto(2L, "quebrada", "Boom bap de São Paulo", null));
+
+        assertEquals(List.of("king_rocha1"), usernames(service.search("kng", 20, null)));
+        assertEquals(List.of("quebrada"), usernames(service.search("sao paulo", 20, null)));
+        assertEquals(List.of("quebrada"), usernames(service.search("boom ba", 20, null)));
+    }
+
+    @Test
+    void pagesWithCursorWithoutRepeatingOrSkipping() {
+        for (long id = 1; id <= 7; id++) {
+            index.index(new ArtistSearchDocDto(id, "flow" + id, null, null));
+        }
+
+        Set<String> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ArtistSearchPageDto page = service.search("flow", 3, cursor);
+            for (String username : usernames(page)) {
+                assertTrue(seen.add(username), "repetido: " + username);
+            }
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(7, seen.size());
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void tiesAreOrderedByUserIdAcrossRewrites() {
+        for (long id = 7; id >= 1; id--) {
+            index.index(new ArtistSearchDocDto(id, "flow" + id, null, null));
+        }
+
+        ArtistSearchPageDto first = service.search("flow", 3, null);
+        assertEquals(List.of("flow1", "flow2", "flow3"), usernames(first));
+        // Reescrever muda o doc id interno do Lucene, não a posição no ranking
+        index.index(new ArtistSearchDocDto(2L, "flow2", null, null));
+        ArtistSearchPageDto second = service.search("flow", 3, first.nextCursor());
+        assertEquals(List.of("flow4", "flow5", "flow6"), usernames(second));
+    }
+
+    @Test
+    void writesAreVisibleToTheNextSearch() {
+        index.index(new ArtistSearchDocDto(1L, "verso", "Rap de Manaus", null));
+        assertEquals(1, service.search("manaus", 20, null).results().size());
+
+        index.index(new ArtistSearchDocDto(1L, "verso", "Rap de Curitiba", null));
+        assertTrue(service.search("manaus", 20, null).results().isEmpty());
+        assertEquals(1, service.search("curitiba", 20, null).results().size());
+
+        index.delete(1L);
+        assertTrue(service.search("verso", 20, null).results().isEmpty());
+    }
+
+    @Test
+    void writesFromVirtualThreadsAreVisibleToTheNextSearch() throws Exception {
+        Thread.ofVirtual().start(() -> index.index(new ArtistSearchDocDto(1L, "verso", "Rap de Manaus", null))).join();
+        assertEquals(1, service.search("manaus", 20, null).results().size());
+
+        Thread.ofVirtual().start(() -> index.delete(1L)).join();
+        assertTrue(service.search("verso", 20, null).results().isEmpty());
+    }
+
+    @Test
+    void loadDoesNotOverwriteWritesMadeWhileLoading() {
+        index.beginLoad();
+        index.index(new ArtistSearchDocDto(1L, "rima", "Bio nova", null));
+        index.load(List.of(new ArtistSearchDocDto(1L, "rima", "Bio antiga", null)));
+        index.finishLoad();
+
+        assertEquals("Bio nova", service.search("rima", 20, null).results().get(0).biography());
+    }
+
+    @Test
+    void rejectsShortQueriesAndInvalidCursors() {
+        assertThrows(ResponseStatusException.class, () -> service.search(" a ", 20, null));
+        assertThrows(ResponseStatusException.class, () -> service.search("mc", 20, "nao-e-cursor"));
+    }
+
+    private static List<String> usernames(ArtistSearchPageDto page) {
+        List<String> usernames = new ArrayList<>();
+        page.results().forEach(result -> usernames.add(result.username()));
+        return usernames;
+    }
+}
@@ -0,0 +1,247 @@
+package com.MoveRap.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioUploadServiceTest {
+
+    private static final byte[] ID3 = {'I', 'D', '3', 4, 0, 0};
+    private static final int CHUNK = 1024;
+
+    @TempDir
+    Path uploadDir;
+
+    private UploadDirectory uploadDirectory;
+    private AudioUploadService audioUploadService;
+
+    @BeforeEach
+    void setUp() {
+        uploadDirectory = new UploadDirectory(uploadDir.toString());
+        audioUploadService = new AudioUploadService(uploadDirectory, new LocalBlobStorage(uploadDirectory),
+                10 * CHUNK, CHUNK, 24, 3, 15 * CHUNK);
+    }
+
+    @Test
+    void assemblesChunksReceivedOutOfOrderAndResumes() throws Exception {
+        byte[] content = audio(ID3, 3 * CHUNK + 100);
+        AudioUploadService.UploadSession session = audioUploadService.create("mc", content.length);
+        assertEquals(4, session.chunkCount());
+
+        // A última parte (menor) e a primeira chegam antes; a conexão cai
+        send(session.id(), content, 3);
+        send(session.id(), content, 0);
+        assertEquals(List.of(0, 3), audioUploadService.status("mc", session.id()).received());
+
+        // Retomada: reenviar uma parte confirmada não muda nada
+        send(session.id(), content, 0);
+        send(session.id(), content, 2);
+        send(session.id(), content, 1);
+        AudioUploadService.StoredAudio stored = audioUploadService.complete("mc", session.id());
+
+        assertEquals(sha256(content) + ".mp3", stored.filename());
+        assertEquals(content.length, stored.size());
+        assertArrayEquals(content, Files.readAllBytes(uploadDirectory.pathFor(stored.filename())));
+        assertStatus(HttpStatus.NOT_FOUND, () -> audioUploadService.status("mc", session.id()));
+    }
+
+    @Test
+    void rejectsChunksWithAnotherChecksum() {
+        byte[] content = audio(ID3, 2 * CHUNK);
+        AudioUploadService.UploadSession session = audioUploadService.create("mc", content.length);
+        byte[] chunk = Arrays.copyOfRange(content, 0, CHUNK);
+        byte[] corrupted = chunk.clone();
+        corrupted[CHUNK - 1] ^= 1;
+
+        assertStatus(HttpStatus.BAD_REQUEST, () -> audioUploadService.writeChunk("mc", session.id(), 0,
+                sha256(chunk), new ByteArrayInputStream(corrupted)));
+        // Tamanho diferente do da parte
+        assertStatus(HttpStatus.BAD_REQUEST, () -> audioUploadService.writeChunk("mc", session.id(), 1,
+                sha256(chunk), new ByteArrayInputStream(Arrays.copyOf(chunk, CHUNK + 1))));
+
+        assertTrue(audioUploadService.status("mc", session.id()).received().isEmpty());
+        assertStatus(HttpStatus.CONFLICT, () -> audioUploadService.complete("mc", session.id()));
+    }
+
+    @Test
+    void aConcurrentPutOfTheSameChunkIsRejected() throws Exception {
+        byte[] content = audio(ID3, 2 * CHUNK);
+        AudioUploadService.UploadSession session = audioUploadService.create("mc", content.length);
+        byte[] chunk = Arrays.copyOfRange(content, 0, CHUNK);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Conexão lenta: o corpo só chega depois que o segundo PUT tentar gravar
+        InputStream slow = new SequenceInputStream(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return -1;
+            }
+        }, new ByteArrayInputStream(chunk));
+        Thread first = Thread.ofPlatform().start(() -> audioUploadService.writeChunk("mc", session.id(), 0, sha256(chunk), slow));
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        assertStatus(HttpStatus.CONFLICT, () -> audioUploadService.writeChunk("mc", session.id(), 0,
+                sha256(chunk), new ByteArrayInputStream(chunk)));
+        release.countDown();
+        first.join();
+
+        assertEquals(List.of(0), audioUploadService.status("mc", session.id()).received());
+    }
+
+    @Test
+    void completeResendsChunksWhoseBytesNoLongerMatch() throws Exception {
+        byte[] content = audio(ID3, 2 * CHUNK);
+        AudioUploadService.UploadSession session = audioUploadService.create("mc", content.length);
+        send(session.id(), content, 0);
+        send(session.id(), content, 1);
+        Path data = uploadDir.resolve(".tmp/audio").resolve(session.id()).resolve("data.part");
+        byte[] stored = Files.readAllBytes(data);
+        stored[CHUNK + 10] ^= 1;
+        Files.write(data, stored);
+
+        assertStatus(HttpStatus.CONFLICT, () -> audioUploadService.complete("mc", session.id()));
+        assertEquals(List.of(0), audioUploadService.status("mc", session.id()).received());
+
+        send(session.id(), content, 1);
+        assertEquals(sha256(content) + ".mp3", audioUploadService.complete("mc", session.id()).filename());
+    }
+
+    @Test
+    void rejectsContentThatIsNotAudio() {
+        byte[] content = audio("<script>".getBytes(), CHUNK);
+        AudioUploadService.UploadSession session = audioUploadService.create("mc", content.length);
+        send(session.id(), content, 0);
+
+        assertStatus(HttpStatus.BAD_REQUEST, () -> audioUploadService.complete("mc", session.id()));
+        assertStatus(HttpStatus.NOT_FOUND, () -> audioUploadService.status("mc", session.id()));
+    }
+
+    @Test
+    void sessionsBelongToTheirOwner() {
+        AudioUploadService.UploadSession session = audioUploadService.create("mc", CHUNK);
+
+        assertStatus(HttpStatus.NOT_FOUND, () -> audioUploadService.status("outro", session.id()));
+        assertStatus(HttpStatus.NOT_FOUND, () -> audioUploadService.abort("outro", session.id()));
+        assertStatus(HttpStatus.NOT_FOUND, () -> audioUploadService.status("mc", "../../etc"));
+        assertStatus(HttpStatus.BAD_REQUEST, () -> audioUploadService.create("mc", 10 * CHUNK + 1));
+    }
+
+    @Test
+    void recognizesAudioSignatures() {
+        assertEquals(".mp3", AudioUploadService.audioExtension(new byte[] {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0}, 4));
+        assertEquals(".aac", AudioUploadService.audioExtension(new byte[] {(byte) 0xFF, (byte) 0xF1, 0x50, (byte) 0x80}, 4));
+        assertEquals(".ogg", AudioUploadService.audioExtension("OggS\0\2".getBytes(), 6));
+        assertEquals(".flac", AudioUploadService.audioExtension("fLaC\0\0".getBytes(), 6));
+        assertEquals(".wav", AudioUploadService.audioExtension("RIFF\0\0\0\0WAVE".getBytes(), 12));
+        assertEquals(".m4a", AudioUploadService.audioExtension("\0\0\0 ftypM4A ".getBytes(), 12));
+        // Marca genérica: depende das faixas (ver acceptsGenericMpeg4OnlyWithSoundTracks); QuickTime nunca
+        assertNull(AudioUploadService.audioExtension("\0\0\0 ftypisom".getBytes(), 12));
+        assertTrue(AudioUploadService.isGenericMpeg4("\0\0\0 ftypmp42".getBytes(), 12));
+        assertNull(AudioUploadService.audioExtension("\0\0\0 ftypqt  ".getBytes(), 12));
+        assertFalse(AudioUploadService.isGenericMpeg4("\0\0\0 ftypqt  ".getBytes(), 12));
+        assertNull(AudioUploadService.audioExtension("RIFF\0\0\0\0AVI ".getBytes(), 12));
+        assertNull(AudioUploadService.audioExtension(new byte[] {(byte) 0x89, 'P', 'N', 'G'}, 4));
+    }
+    @Test
+    void acceptsGenericMpeg4OnlyWithSoundTracks() {
+        byte[] audioOnly = mpeg4("isom", "soun");
+        AudioUploadService.UploadSession audio = audioUploadService.create("mc", audioOnly.length);
+        send(audio.id(), audioOnly, 0);
+        assertEquals(sha256(audioOnly) + ".m4a", audioUploadService.complete("mc", audio.id()).filename());
+
+        // Vídeo com som continua sendo vídeo
+        byte[] video = mpeg4("mp42", "soun", "vide");
+        AudioUploadService.UploadSession rejected = audioUploadService.create("mc", video.length);
+        send(rejected.id(), video, 0);
+        assertStatus(HttpStatus.BAD_REQUEST, () -> audioUploadService.complete("mc", rejected.id()));
+    }
+
+    @Test
+    void limitsOpenSessionsAndDeclaredBytesPerOwner() {
+        AudioUploadService.UploadSession first = audioUploadService.create("mc", CHUNK);
+        audioUploadService.create("mc", CHUNK);
+        audioUploadService.create("mc", CHUNK);
+        assertStatus(HttpStatus.TOO_MANY_REQUESTS, () -> audioUploadService.create("mc", CHUNK));
+        // Cancelar libera a vaga; outros usuários não são afetados
+        audioUploadService.abort("mc", first.id());
+        audioUploadService.create("mc", CHUNK);
+
+        audioUploadService.create("outro", 10 * CHUNK);
+        assertStatus(HttpStatus.TOO_MANY_REQUESTS, () -> audioUploadService.create("outro", 5 * CHUNK + 1));
+        audioUploadService.create("outro", 5 * CHUNK);
+    }
+
+    private void send(String id, byte[] content, int index) {
+        byte[] chunk = Arrays.copyOfRange(content, index * CHUNK, Math.min(content.length, (index + 1) * CHUNK));
+        audioUploadService.writeChunk("mc", id, index, sha256(chunk), new ByteArrayInputStream(chunk));
+    }
+
+    private static byte[] audio(byte[] signature, int size) {
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        System.arraycopy(signature, 0, content, 0, signature.length);
+        return content;
+    }
+
+    /**
+     * ftyp com a marca dada e um moov com uma faixa (trak/mdia/hdlr) por tipo de handler.
+     */
+    private static byte[] mpeg4(String brand, String... handlers) {
+        ByteArrayOutputStream tracks = new ByteArrayOutputStream();
+        for (String handler : handlers) {
+            byte[] hdlr = new byte[25];
+            System.arraycopy(handler.getBytes(StandardCharsets.ISO_8859_1), 0, hdlr, 8, 4);
+            tracks.writeBytes(box("trak", box("mdia", box("hdlr", hdlr))));
+        }
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.writeBytes(box("ftyp", (brand + "\0\0\0\0isom").getBytes(StandardCharsets.ISO_8859_1)));
+        file.writeBytes(box("free", new byte[16]));
+        file.writeBytes(box("moov", tracks.toByteArray()));
+        return file.toByteArray();
+    }
+
+    private static byte[] box(String type, byte[] content) {
+        return ByteBuffer.allocate(8 + content.length).putInt(8 + content.length)
+                .put(type.getBytes(StandardCharsets.ISO_8859_1)).put(content).array();
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void assertStatus(HttpStatus status, Runnable call) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, call::run);
+        assertEquals(status, e.getStatusCode());
+    }
+}
@@ -0,0 +1,65 @@
+package com.MoveRap.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void encodesAndMatchesWithConfiguredCost() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(1, 4, 5000, 4, 250, 0, new SimpleMeterRegistry());
+
+        String hash = encoder.encode("senhaSegura123");
+
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(encoder.matches("senhaSegura123", hash));
+        assertFalse(encoder.matches("outraSenha", hash));
+        encoder.shutdown();
+    }
+
+    @Test
+    void onlyWeakerHashesNeedUpgrade() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(1, 4, 5000, 5, 250, 0, new SimpleMeterRegistry());
+
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("x")));
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("x")));
+        assertFalse(encoder.upgradeEncoding(encoder.encode("x")));
+        assertFalse(encoder.upgradeEncoding("texto-puro"));
+        encoder.shutdown();
+    }
+
+    @Test
+    void rejectsImmediatelyWhenQueueIsFull() throws Exception {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(1, 1, 30000, 12, 250, 0, new SimpleMeterRegistry());
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        Thread.sleep(50);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        while (encoder.getQueueDepth() < 1 && !queued.isDone()) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(PasswordHashingUnavailableException.class, () -> encoder.encode("c"));
+        assertNotNull(running.get());
+        assertNotNull(queued.get());
+        encoder.shutdown();
+    }
+
+    @Test
+    void calibrationNeverGoesBelowStoredHashes() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(1, 4, 5000, 0, 0, 12, new SimpleMeterRegistry());
+
+        assertEquals(12, encoder.getCost());
+        encoder.shutdown();
+    }
+
+    @Test
+    void calibrationNeverGoesBelowMinimumCost() {
+        assertEquals(BoundedPasswordEncoder.MIN_COST, BoundedPasswordEncoder.calibrateCost(0));
+    }
+}
@@ -0,0 +1,200 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.model.ImageDerivativeJob;
+import com.MoveRap.demo.repository.ImageDerivativeJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.FileSystemUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Fila e geração das variantes. Sem transação de teste: cada chamada ao repositório é confirmada
+ * sozinha, como nos workers.
+ */
+@DataJpaTest(properties = "file.upload-dir=target/test-derivatives")
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ImageDerivativeService.class, ImageDerivativeWorker.class, UploadDirectory.class, LocalBlobStorage.class,
+        BackgroundThreads.class})
+class ImageDerivativeServiceTest {
+
+    @Autowired
+    private ImageDerivativeService derivativeService;
+    @Autowired
+    private ImageDerivativeWorker worker;
+    @Autowired
+    private ImageDerivativeJobRepository jobRepository;
+    @Autowired
+    private UploadDirectory uploadDirectory;
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    private Path uploadPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jobRepository.deleteAll();
+        uploadPath = Paths.get(uploadDir).toAbsolutePath();
+        FileSystemUtils.deleteRecursively(uploadPath);
+        Files.createDirectories(uploadPath);
+    }
+
+    @Test
+    void rendersEverySizeUprightAndWithoutExif() throws IOException {
+        // Foto "deitada": 2000x1000 em pixels com Orientation = 6 (girar 90° no sentido horário)
+        Files.write(uploadDirectory.prepare("a.jpg"), withOrientation(jpeg(2000, 1000), 6));
+        worker.enqueue("a.jpg");
+        worker.enqueue("a.jpg");
+
+        assertEquals(1, worker.processPending());
+
+        BufferedImage large = ImageIO.read(uploadDirectory.pathFor("a-1024.jpg").toFile());
+        assertEquals(512, large.getWidth());
+        assertEquals(1024, large.getHeight());
+        BufferedImage thumbnail = ImageIO.read(uploadDirectory.pathFor("a-64.jpg").toFile());
+        assertEquals(32, thumbnail.getWidth());
+        assertEquals(64, thumbnail.getHeight());
+        assertTrue(Files.exists(uploadDirectory.pathFor("a-256.jpg")));
+        assertFalse(new String(Files.readAllBytes(uploadDirectory.pathFor("a-1024.jpg")), StandardCharsets.ISO_8859_1).contains("Exif"));
+        assertTrue(Files.size(uploadDirectory.pathFor("a-256.jpg")) < Files.size(uploadDirectory.pathFor("a.jpg")));
+
+        assertEquals("a-256.jpg", derivativeService.variant("a.jpg", 200).orElseThrow());
+        assertEquals("a-1024.jpg", derivativeService.variant("a.jpg", 4000).orElseThrow());
+        assertEquals(ImageDerivativeJob.Status.DONE, jobRepository.findAll().get(0).getStatus());
+    }
+
+    @Test
+    void keepsTransparencyAsPng() throws IOException {
+        BufferedImage image = new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB);
+        ImageIO.write(image, "png", uploadDirectory.prepare("b.png").toFile());
+        worker.enqueue("b.png");
+
+        assertEquals(1, worker.processPending());
+
+        assertTrue(ImageIO.read(uploadDirectory.pathFor("b-256.png").toFile()).getColorModel().hasAlpha());
+        // Imagem menor que o tamanho pedido não é ampliada
+        assertEquals(300, ImageIO.read(uploadDirectory.pathFor("b-1024.png").toFile()).getWidth());
+        assertEquals("b-64.png", derivativeService.variant("b.png", 64).orElseThrow());
+    }
+
+    @Test
+    void formatsWithoutDecoderKeepOnlyTheOriginal() throws IOException {
+        Files.write(uploadDirectory.prepare("c.webp"), "RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.US_ASCII));
+        worker.enqueue("c.webp");
+
+        assertEquals(1, worker.processPending());
+
+        assertTrue(derivativeService.variant("c.webp", 256).isEmpty());
+        assertEquals(ImageDerivativeJob.Status.DONE, jobRepository.findAll().get(0).getStatus());
+    }
+
+    @Test
+    void brokenImagesFailAfterLimitedAttempts() throws IOException {
+        Files.write(uploadDirectory.prepare("d.jpg"), new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0x00, 0x01});
+        worker.enqueue("d.jpg");
+
+        assertEquals(0, worker.processPending());
+
+        ImageDerivativeJob job = jobRepository.findAll().get(0);
+        assertEquals(ImageDerivativeJob.Status.FAILED, job.getStatus());
+        assertEquals(ImageDerivativeWorker.MAX_ATTEMPTS, job.getAttempts());
+        assertNotNull(job.getLastError());
+    }
+
+    @Test
+    void reuploadAfterFailureQueuesTheJobAgain() throws IOException {
+        Files.write(uploadDirectory.prepare("f.jpg"), new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0x00, 0x01});
+        worker.enqueue("f.jpg");
+        worker.processPending();
+        assertEquals(ImageDerivativeJob.Status.FAILED, jobRepository.findAll().get(0).getStatus());
+
+        Files.write(uploadDirectory.pathFor("f.jpg"), jpeg(100, 100));
+        worker.enqueue("f.jpg");
+
+        ImageDerivativeJob job = jobRepository.findAll().get(0);
+        assertEquals(ImageDerivativeJob.Status.PENDING, job.getStatus());
+        assertEquals(0, job.getAttempts());
+        assertEquals(1, worker.processPending());
+    }
+
+    @Test
+    void onlyExpiredRunningJobsGoBackToTheQueue() {
+        worker.enqueue("g.jpg");
+        worker.enqueue("h.jpg");
+        Long stale = jobRepository.findIdsByStatus(ImageDerivativeJob.Status.PENDING, PageRequest.of(0, 10)).get(0);
+        Long fresh = jobRepository.findIdsByStatus(ImageDerivativeJob.Status.PENDING, PageRequest.of(0, 10)).get(1);
+        // Uma instância parou há uma hora; a outra acabou de reservar o job
+        jobRepository.claim(stale, Instant.now().minus(Duration.ofHours(1)));
+        jobRepository.claim(fresh, Instant.now());
+
+        assertEquals(1, worker.requeueExpired());
+
+        assertEquals(ImageDerivativeJob.Status.PENDING, jobRepository.findById(stale).orElseThrow().getStatus());
+        assertEquals(ImageDerivativeJob.Status.RUNNING, jobRepository.findById(fresh).orElseThrow().getStatus());
+    }
+
+    @Test
+    void forgetRemovesVariantsAndJob() throws IOException {
+        Files.write(uploadDirectory.prepare("e.jpg"), jpeg(400, 400));
+        worker.enqueue("e.jpg");
+        worker.processPending();
+
+        derivativeService.forget("e.jpg");
+
+        assertTrue(derivativeService.variant("e.jpg", 64).isEmpty());
+        assertFalse(Files.exists(uploadDirectory.pathFor("e-1024.jpg")));
+        assertEquals(0, jobRepository.count());
+    }
+
+    private static byte[] jpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, new Color(x % 256, y % 256, (x * y) % 256).getRGB());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+
+    // Insere logo após o SOI um APP1/Exif com IFD0 contendo só a tag Orientation
+    private static byte[] withOrientation(byte[] jpeg, int orientation) {
+        ByteBuffer tiff = ByteBuffer.allocate(6 + 8 + 2 + 12 + 4);
+        tiff.put("Exif\0\0".getBytes(StandardCharsets.US_ASCII))
+                .put(new byte[] {'M', 'M', 0, 42}).putInt(8)
+                .putShort((short) 1)
+                .putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0)
+                .putInt(0);
+        ByteBuffer result = ByteBuffer.allocate(jpeg.length + 4 + tiff.capacity());
+        result.put(jpeg, 0, 2)
+                .put((byte) 0xFF).put((byte) 0xE1).putShort((short) (2 + tiff.capacity()))
+                .put(tiff.array())
+                .put(jpeg, 2, jpeg.length - 2);
+        return result.array();
+    }
+}
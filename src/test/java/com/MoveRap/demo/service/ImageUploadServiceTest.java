@@ -0,0 +1,200 @@
+package com.MoveRap.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageUploadServiceTest {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A};
+
+    @TempDir
+    Path uploadDir;
+
+    private UploadDirectory uploadDirectory;
+    private ImageUploadService uploadService;
+
+    @BeforeEach
+    void setUp() {
+        uploadDirectory = new UploadDirectory(uploadDir.toString());
+        uploadService = new ImageUploadService(uploadDirectory, new LocalBlobStorage(uploadDirectory));
+    }
+
+    @Test
+    void storesImageInOnePassWithDigest() throws Exception {
+        byte[] content = image(PNG_SIGNATURE, 200_000);
+        CountingInputStream input = new CountingInputStream(new ByteArrayInputStream(content));
+
+        ImageUploadService.StoredImage stored = uploadService.store(input);
+
+        assertEquals(stored.sha256() + ".png", stored.filename());
+        assertEquals(content.length, stored.size());
+        assertEquals(content.length, input.bytesRead);
+        assertArrayEquals(content, Files.readAllBytes(uploadDirectory.pathFor(stored.filename())));
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)), stored.sha256());
+        assertEquals(0, temporaryFiles());
+    }
+
+    @Test
+    void sameContentIsStoredOnceUnderTheSameName() throws IOException {
+        byte[] content = image(PNG_SIGNATURE, 10_000);
+
+        ImageUploadService.StoredImage first = uploadService.store(new ByteArrayInputStream(content));
+        ImageUploadService.StoredImage second = uploadService.store(new ByteArrayInputStream(content));
+
+        assertEquals(first.filename(), second.filename());
+        assertEquals(1, storedFiles());
+        assertEquals(0, temporaryFiles());
+    }
+
+    @Test
+    void existsOnlyForStoredOriginals() throws IOException {
+        String filename = uploadService.store(new ByteArrayInputStream(image(PNG_SIGNATURE, 1_000))).filename();
+        Files.write(uploadDirectory.prepare(ImageDerivativeService.variantName(filename, 256, ".jpg")), new byte[10]);
+
+        assertTrue(uploadService.exists(filename));
+        assertFalse(uploadService.exists(ImageDerivativeService.variantName(filename, 256, ".jpg")));
+        assertFalse(uploadService.exists(".."));
+        assertFalse(uploadService.exists("f".repeat(64) + ".png"));
+    }
+
+    @Test
+    void rejectsContentThatIsNotAnImage() throws IOException {
+        byte[] script = "<?php system($_GET['c']); ?>".getBytes();
+
+        assertThrows(ResponseStatusException.class, () -> uploadService.store(new ByteArrayInputStream(script)));
+        assertThrows(ResponseStatusException.class, () -> uploadService.store(new ByteArrayInputStream(new byte[0])));
+        assertEquals(0, storedFiles());
+        assertEquals(0, temporaryFiles());
+    }
+
+    @Test
+    void stopsReadingOnceTheLimitIsExceeded() throws IOException {
+        CountingInputStream input = new CountingInputStream(
+                new ByteArrayInputStream(image(PNG_SIGNATURE, (int) ImageUploadService.MAX_FILE_SIZE * 2)));
+
+        assertThrows(ResponseStatusException.class, () -> uploadService.store(input));
+        assertTrue(input.bytesRead < ImageUploadService.MAX_FILE_SIZE + 128 * 1024);
+        assertEquals(0, storedFiles());
+        assertEquals(0, temporaryFiles());
+    }
+
+    private static byte[] image(byte[] signature, int length) {
+        byte[] content = Arrays.copyOf(signature, length);
+        Arrays.fill(content, signature.length, length, (byte) 7);
+        return content;
+    }
+
+    private long storedFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    void directUploadsAreValidatedOnCompletion() throws Exception {
+        ImageUploadService direct = new ImageUploadService(uploadDirectory, new DirectLocalBlobStorage(uploadDirectory));
+        byte[] content = image(PNG_SIGNATURE, 10_000);
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+
+        ImageUploadService.PendingUpload pending = direct.prepareDirectUpload(sha256.toUpperCase(), content.length, "image/png").orElseThrow();
+        assertEquals(sha256 + ".png", pending.filename());
+        // O "PUT" do cliente
+        Files.write(uploadDirectory.prepare("incoming/" + pending.filename()), content);
+
+        ImageUploadService.StoredImage stored = direct.completeDirectUpload(pending.filename());
+
+        assertEquals(content.length, stored.size());
+        assertArrayEquals(content, Files.readAllBytes(uploadDirectory.pathFor(pending.filename())));
+        assertTrue(uploadDirectory.find("incoming/" + pending.filename()).isEmpty());
+        // Repetir a confirmação não falha
+        assertEquals(stored, direct.completeDirectUpload(pending.filename()));
+    }
+
+    @Test
+    void disguisedDirectUploadsAreDeleted() throws Exception {
+        ImageUploadService direct = new ImageUploadService(uploadDirectory, new DirectLocalBlobStorage(uploadDirectory));
+        String filename = "e".repeat(64) + ".png";
+        Files.write(uploadDirectory.prepare("incoming/" + filename), "<?php echo 1; ?>".getBytes());
+
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, () -> direct.completeDirectUpload(filename));
+
+        assertEquals(400, error.getStatusCode().value());
+        assertTrue(uploadDirectory.find("incoming/" + filename).isEmpty());
+        assertTrue(uploadDirectory.find(filename).isEmpty());
+        assertThrows(ResponseStatusException.class, () -> direct.prepareDirectUpload("e".repeat(64), 10, "text/html"));
+        assertThrows(ResponseStatusException.class, () -> direct.prepareDirectUpload("e".repeat(64), ImageUploadService.MAX_FILE_SIZE + 1, "image/png"));
+        // Armazenamento local: o cliente usa o upload pela aplicação
+        assertTrue(uploadService.prepareDirectUpload("e".repeat(64), 10, "image/png").isEmpty());
+        assertEquals(404, assertThrows(ResponseStatusException.class,
+                () -> uploadService.completeDirectUpload("e".repeat(64) + ".png")).getStatusCode().value());
+    }
+
+    private long temporaryFiles() throws IOException {
+        Path tempDir = uploadDir.resolve(".tmp");
+        if (!Files.exists(tempDir)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.count();
+        }
+    }
+
+    /**
+     * Diretório local fazendo o papel de um armazenamento com upload direto (como o S3).
+     */
+    private static class DirectLocalBlobStorage extends LocalBlobStorage {
+        DirectLocalBlobStorage(UploadDirectory uploadDirectory) {
+            super(uploadDirectory);
+        }
+
+        @Override
+        public Optional<DirectUpload> presignUpload(String key, String contentType, long contentLength, String sha256Hex) {
+            return Optional.of(new DirectUpload(URI.create("http://storage/" + key), Map.of("Content-Type", contentType), Instant.now()));
+        }
+    }
+
+    private static class CountingInputStream extends InputStream {
+        private final InputStream delegate;
+        private long bytesRead;
+
+        CountingInputStream(InputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b != -1) {
+                bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = delegate.read(buffer, offset, length);
+            if (read > 0) {
+                bytesRead += read;
+            }
+            return read;
+        }
+    }
+}
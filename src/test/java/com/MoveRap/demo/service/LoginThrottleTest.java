@@ -0,0 +1,106 @@
+package com.MoveRap.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginThrottleTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private LoginThrottle throttle(int capacity) {
+        return new LoginThrottle(capacity, 5, 20, 15 * 60, now::get);
+    }
+
+    @Test
+    void locksAccountAfterMaxFailuresAndUnlocksAfterWindow() {
+        LoginThrottle throttle = throttle(1024);
+        for (int i = 0; i < 4; i++) {
+            assertFalse(throttle.recordFailure("mc@rap.com", "10.0.0." + i));
+        }
+        assertEquals(0, throttle.accountLockRemainingSeconds("mc@rap.com"));
+
+        assertTrue(throttle.recordFailure("mc@rap.com", "10.0.0.9"));
+        assertEquals(15 * 60, throttle.accountLockRemainingSeconds("mc@rap.com"));
+
+        now.addAndGet(15 * 60);
+        assertEquals(0, throttle.accountLockRemainingSeconds("mc@rap.com"));
+        assertFalse(throttle.recordFailure("mc@rap.com", "10.0.0.9"));
+    }
+
+    @Test
+    void locksIpSprayingDistinctAccounts() {
+        LoginThrottle throttle = throttle(1024);
+        for (int i = 0; i < 20; i++) {
+            throttle.recordFailure("vitima" + i + "@rap.com", "203.0.113.7");
+        }
+
+        assertTrue(throttle.ipLockRemainingSeconds("203.0.113.7") > 0);
+        assertEquals(0, throttle.ipLockRemainingSeconds("203.0.113.8"));
+        assertEquals(0, throttle.accountLockRemainingSeconds("vitima1@rap.com"));
+    }
+
+    @Test
+    void successfulLoginResetsAccountButNotIp() {
+        LoginThrottle throttle = throttle(1024);
+        for (int i = 0; i < 4; i++) {
+            throttle.recordFailure("mc", "10.0.0.1");
+        }
+        throttle.resetAccount("mc");
+
+        assertFalse(throttle.recordFailure("mc", "10.0.0.1"));
+        assertEquals(0, throttle.accountLockRemainingSeconds("mc"));
+    }
+
+    @Test
+    void memoryStaysFixedUnderMillionsOfDistinctKeys() {
+        LoginThrottle throttle = throttle(1 << 16);
+        for (int i = 0; i < 2_000_000; i++) {
+            throttle.recordFailure("spray-" + i, null);
+        }
+        assertEquals(1 << 16, throttle.capacity());
+
+        for (int i = 0; i < 5; i++) {
+            throttle.recordFailure("alvo@rap.com", null);
+        }
+        assertTrue(throttle.accountLockRemainingSeconds("alvo@rap.com") > 0);
+    }
+
+    @Test
+    void lockSurvivesAFullProbeWindow() {
+        // Capacidade 8: toda chave cai na mesma janela de sondagem, como chaves calculadas por um atacante
+        LoginThrottle throttle = throttle(8);
+        for (int i = 0; i < 5; i++) {
+            throttle.recordFailure("vitima@rap.com", null);
+        }
+        now.addAndGet(60);
+
+        for (int i = 0; i < 50; i++) {
+            throttle.recordFailure("colisao" + i + "@rap.com", null);
+        }
+
+        assertEquals(15 * 60 - 60, throttle.accountLockRemainingSeconds("vitima@rap.com"));
+    }
+
+    @Test
+    void windowFullOfLocksFailsClosed() {
+        LoginThrottle throttle = throttle(8);
+        for (int key = 0; key < 8; key++) {
+            for (int i = 0; i < 5; i++) {
+                throttle.recordFailure("bloqueada" + key + "@rap.com", null);
+            }
+        }
+        now.addAndGet(60);
+
+        assertFalse(throttle.recordFailure("outra@rap.com", null));
+        assertEquals(15 * 60 - 60, throttle.accountLockRemainingSeconds("outra@rap.com"));
+        for (int key = 0; key < 8; key++) {
+            assertTrue(throttle.accountLockRemainingSeconds("bloqueada" + key + "@rap.com") > 0);
+        }
+
+        now.addAndGet(15 * 60);
+        assertEquals(0, throttle.accountLockRemainingSeconds("outra@rap.com"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.Dtos.UserPageViewDto;
+import com.MoveRap.demo.model.UserModel;
+import com.MoveRap.demo.model.UserPage;
+import com.MoveRap.demo.repository.UserPageRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ProfileSnapshotService.class)
+class ProfileSnapshotServiceTest {
+
+    @Autowired
+    private ProfileSnapshotService snapshotService;
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        snapshotService.delete("mc_silva");
+        UserModel user = new UserModel(null, "mc_silva", "mc@rap.com", "$2a$10$hash");
+        entityManager.persist(user);
+        UserPage page = new UserPage();
+        page.setUser(user);
+        page.setBiography("Rap <b>de</b> Recife & região");
+        page.setBackgroundImageUrl("/uploads/images/fundo');x.png");
+        page.setMusicUrls("https://soundcloud.com/mc/faixa,javascript:alert(1)");
+        entityManager.persist(page);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void writesEscapedHtmlAndGzipVariant() throws IOException {
+        assertTrue(snapshotService.regenerate("mc_silva"));
+
+        Path html = snapshotService.getDirectory().resolve("mc_silva.html");
+        String content = Files.readString(html);
+        assertTrue(content.contains("<title>mc_silva - MoveRap</title>"));
+        assertTrue(content.contains("Rap &lt;b&gt;de&lt;/b&gt; Recife &amp; região"));
+        assertTrue(content.contains("url('/uploads/images/fundo%27%29;x.png?size=1024')"));
+        assertTrue(content.contains("href=\"https://soundcloud.com/mc/faixa\""));
+        assertFalse(content.contains("href=\"javascript:"));
+
+        try (InputStream gzip = new GZIPInputStream(Files.newInputStream(snapshotService.getDirectory().resolve("mc_silva.html.gz")))) {
+            assertEquals(content, new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void removesSnapshotWhenThePageIsGone() {
+        assertTrue(snapshotService.regenerate("mc_silva"));
+        entityManager.createQuery("delete from UserPage").executeUpdate();
+
+        assertFalse(snapshotService.regenerate("mc_silva"));
+        assertFalse(Files.exists(snapshotService.getDirectory().resolve("mc_silva.html")));
+        assertFalse(Files.exists(snapshotService.getDirectory().resolve("mc_silva.html.gz")));
+    }
+
+    @Test
+    void skipsUsernamesThatAreNotSafeFileNames() {
+        assertFalse(snapshotService.regenerate("../mc_silva"));
+        assertFalse(snapshotService.regenerate(".mc"));
+        assertFalse(snapshotService.regenerate("mc silva"));
+    }
+
+    @Test
+    void aSlowStaleRenderNeverOverwritesANewerOne(@TempDir Path tempDir) throws Exception {
+        UserPageRepository repository = mock(UserPageRepository.class);
+        ProfileSnapshotService service = new ProfileSnapshotService(repository, tempDir.toString(), "", 60, 30);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger reads = new AtomicInteger();
+        when(repository.findViewByUsername("mc")).thenAnswer(invocation -> {
+            if (reads.incrementAndGet() == 1) {
+                // A primeira escrita leu a versão antiga e demora a gravar
+                reading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return Optional.of(view("Bio antiga"));
+            }
+            return Optional.of(view("Bio nova"));
+        });
+
+        Thread first = Thread.ofPlatform().start(() -> service.regenerate("mc"));
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        Thread second = Thread.ofPlatform().start(() -> service.regenerate("mc"));
+        Thread.sleep(200);
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertTrue(Files.readString(tempDir.resolve("mc.html")).contains("Bio nova"));
+    }
+
+    @Test
+    void refreshRereadsOnlyExpiredSnapshotsAndRemembersMissingPages(@TempDir Path tempDir) throws IOException {
+        UserPageRepository repository = mock(UserPageRepository.class);
+        ProfileSnapshotService service = new ProfileSnapshotService(repository, tempDir.toString(), "", 60, 30);
+        when(repository.findViewByUsername("mc")).thenReturn(Optional.of(view("Bio")));
+
+        assertTrue(service.refresh("mc"));
+        assertTrue(service.refresh("mc"));
+        verify(repository, times(1)).findViewByUsername("mc");
+
+        // Outra instância recebeu a escrita há mais de um minuto
+        Files.setLastModifiedTime(tempDir.resolve("mc.html"), FileTime.fromMillis(System.currentTimeMillis() - 120_000));
+        assertTrue(service.refresh("mc"));
+        verify(repository, times(2)).findViewByUsername("mc");
+
+        assertFalse(service.refresh("ninguem"));
+        assertFalse(service.refresh("ninguem"));
+        verify(repository, times(1)).findViewByUsername("ninguem");
+    }
+
+    private static UserPageViewDto view(String biography) {
+        return new UserPageViewDto(1L, 0, Instant.now(), "mc", biography, null, null, List.of());
+    }
+}
@@ -0,0 +1,82 @@
+package com.MoveRap.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublicPageCacheTest {
+
+    private PublicPageCache cache;
+    private AtomicInteger renders;
+    private Function<String, PublicPageCache.Entry> renderer;
+
+    @BeforeEach
+    void setUp() {
+        cache = new PublicPageCache(new SimpleMeterRegistry(), 1024, 600);
+        renders = new AtomicInteger();
+        renderer = username -> {
+            renders.incrementAndGet();
+            byte[] body = ("{\"username\":\"" + username + "\"}").getBytes(StandardCharsets.UTF_8);
+            return new PublicPageCache.Entry(body, "\"p-1-0\"", -1);
+        };
+    }
+
+    @Test
+    void repeatedReadsReuseSerializedBytes() {
+        PublicPageCache.Entry first = cache.get("mc", renderer);
+        PublicPageCache.Entry second = cache.get("mc", renderer);
+
+        assertSame(first, second);
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void invalidateForcesRerender() {
+        cache.get("mc", renderer);
+        cache.invalidate("mc");
+        cache.get("mc", renderer);
+
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    void failedRenderIsNotCached() {
+        assertThrows(IllegalStateException.class, () -> cache.get("mc", username -> {
+            throw new IllegalStateException("não encontrado");
+        }));
+
+        cache.get("mc", renderer);
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void concurrentMissesWaitForASingleRender() throws Exception {
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<PublicPageCache.Entry> first = CompletableFuture.supplyAsync(() -> cache.get("mc", username -> {
+            rendering.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return renderer.apply(username);
+        }));
+        assertTrue(rendering.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<PublicPageCache.Entry> second = CompletableFuture.supplyAsync(() -> cache.get("mc", renderer));
+        release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, renders.get());
+    }
+}
@@ -0,0 +1,148 @@
+package com.MoveRap.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.BucketAlreadyOwnedByYouException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Assinatura das URLs sempre; operações reais só contra um S3 local (MinIO):
+ * {@code docker run -p 9000:9000 minio/minio server /data} e
+ * {@code mvn test -Dtest=S3BlobStorageTest -Ds3.endpoint=http://localhost:9000}
+ */
+class S3BlobStorageTest {
+
+    private static final String ENDPOINT = System.getProperty("s3.endpoint", "http://localhost:9000");
+    private static final String ACCESS_KEY = System.getProperty("s3.access-key", "minioadmin");
+    private static final String SECRET_KEY = System.getProperty("s3.secret-key", "minioadmin");
+    private static final String BUCKET = System.getProperty("s3.bucket", "moverap-test");
+
+    @TempDir
+    Path tempDir;
+
+    private final S3BlobStorage storage = new S3BlobStorage(BUCKET, "us-east-1", ENDPOINT, true,
+            ACCESS_KEY, SECRET_KEY, "uploads/", 600, 3600);
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    void presignedPutPinsLengthAndChecksum() {
+        String sha256 = "ab".repeat(32);
+
+        BlobStorage.DirectUpload upload = storage.presignUpload("incoming/" + sha256 + ".png", "image/png", 1234, sha256).orElseThrow();
+
+        assertEquals(ENDPOINT + "/" + BUCKET + "/uploads/incoming/" + sha256 + ".png", upload.url().toString().split("\\?")[0]);
+        assertTrue(upload.url().getQuery().contains("X-Amz-Signature="));
+        Map<String, String> headers = lowerCase(upload.headers());
+        assertEquals("image/png", headers.get("content-type"));
+        assertEquals("1234", headers.get("content-length"));
+        assertEquals("q6urq6urq6urq6urq6urq6urq6urq6urq6urq6urq6s=", headers.get("x-amz-checksum-sha256"));
+        assertFalse(headers.containsKey("host"));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "s3.endpoint", matches = ".+")
+    void storesMovesAndDeletesObjects() throws Exception {
+        createBucket();
+        Path file = Files.write(tempDir.resolve("a.png"), new byte[] {(byte) 0x89, 0x50, 0x4E, 0x47, 1, 2, 3});
+
+        storage.put("a.png", file, "image/png");
+
+        assertTrue(storage.exists("a.png"));
+        assertEquals(7, storage.size("a.png"));
+        assertArrayEquals(new byte[] {(byte) 0x89, 0x50, 0x4E, 0x47}, storage.readPrefix("a.png", 4));
+        try (InputStream input = storage.open("a.png")) {
+            assertArrayEquals(Files.readAllBytes(file), input.readAllBytes());
+        }
+        storage.move("a.png", "b.png");
+        assertFalse(storage.exists("a.png"));
+        assertThrows(NoSuchFileException.class, () -> storage.size("a.png"));
+
+        HttpResponse<byte[]> download = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(storage.downloadUrl("b.png").orElseThrow()).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, download.statusCode());
+        assertArrayEquals(Files.readAllBytes(file), download.body());
+
+        assertTrue(storage.delete("b.png"));
+        assertFalse(storage.delete("b.png"));
+        assertThrows(NoSuchFileException.class, () -> storage.open("b.png"));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "s3.endpoint", matches = ".+")
+    void clientsUploadDirectlyWithThePresignedPut() throws Exception {
+        createBucket();
+        byte[] content = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0, 1, 2, 3, 4};
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        String key = "incoming/" + sha256 + ".jpg";
+
+        BlobStorage.DirectUpload upload = storage.presignUpload(key, "image/jpeg", content.length, sha256).orElseThrow();
+
+        // Mesmo tamanho, outro conteúdo: o hash assinado não confere
+        byte[] forged = content.clone();
+        forged[7] = 9;
+        assertEquals(400, put(upload, forged));
+        assertFalse(storage.exists(key));
+
+        assertEquals(200, put(upload, content));
+        assertEquals(content.length, storage.size(key));
+        storage.delete(key);
+    }
+
+    private int put(BlobStorage.DirectUpload upload, byte[] body) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(upload.url()).PUT(HttpRequest.BodyPublishers.ofByteArray(body));
+        // Content-Length sai do corpo (header restrito no HttpClient e no navegador)
+        upload.headers().forEach((name, value) -> {
+            if (!name.equalsIgnoreCase("content-length")) {
+                request.header(name, value);
+            }
+        });
+        return HttpClient.newHttpClient().send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static void createBucket() {
+        try (S3Client admin = S3Client.builder()
+                .region(Region.US_EAST_1)
+                .endpointOverride(URI.create(ENDPOINT))
+                .forcePathStyle(true)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(ACCESS_KEY, SECRET_KEY)))
+                .httpClientBuilder(UrlConnectionHttpClient.builder())
+                .build()) {
+            admin.createBucket(request -> request.bucket(BUCKET));
+        } catch (BucketAlreadyOwnedByYouException e) {
+            // Já criado por outro teste
+        }
+    }
+
+    private static Map<String, String> lowerCase(Map<String, String> headers) {
+        Map<String, String> lower = new HashMap<>();
+        headers.forEach((name, value) -> lower.put(name.toLowerCase(), value));
+        return lower;
+    }
+}
@@ -0,0 +1,119 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenServiceTest {
+
+    private static final String KEY_1 = "k1:" + Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String KEY_2 = "k2:" + Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+    private UserRepository userRepository;
+    private MutableClock clock;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    }
+
+    @Test
+    void issuedTokenVerifiesWithoutDatabaseAccess() {
+        TokenService service = new TokenService(userRepository, KEY_1, 60, clock);
+        String token = service.issueToken(7L, "mc.rima", 0).token();
+
+        TokenService.TokenClaims claims = service.verify(token);
+
+        assertNotNull(claims);
+        assertEquals(7L, claims.userId());
+        assertEquals("mc.rima", claims.username());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void rejectsTamperedAndExpiredTokens() {
+        TokenService service = new TokenService(userRepository, KEY_1, 60, clock);
+        String token = service.issueToken(7L, "mc", 0).token();
+        String forged = service.issueToken(8L, "admin", 0).token();
+        String tampered = token.substring(0, token.lastIndexOf('.')) + forged.substring(forged.lastIndexOf('.'));
+
+        assertNull(service.verify(tampered));
+        assertNull(service.verify("lixo"));
+
+        clock.advanceSeconds(60 * 60);
+        assertNull(service.verify(token));
+    }
+
+    @Test
+    void oldKeyStillValidatesAfterRotation() {
+        TokenService before = new TokenService(userRepository, KEY_1, 60, clock);
+        String token = before.issueToken(7L, "mc", 0).token();
+        when(userRepository.findCredentialsEpochById(7L)).thenReturn(0L);
+
+        TokenService rotated = new TokenService(userRepository, KEY_2 + "," + KEY_1, 60, clock);
+        TokenService retired = new TokenService(userRepository, KEY_2, 60, clock);
+
+        assertNotNull(rotated.verify(token));
+        assertTrue(rotated.issueToken(7L, "mc", 0).token().startsWith("k2."));
+        assertNull(retired.verify(token));
+    }
+
+    @Test
+    void passwordChangeRevokesPreviousTokens() {
+        TokenService service = new TokenService(userRepository, KEY_1, 60, clock);
+        String token = service.issueToken(7L, "mc", 3).token();
+
+        service.revokeTokens(7L, 4);
+
+        assertNull(service.verify(token));
+        assertNotNull(service.verify(service.issueToken(7L, "mc", 4).token()));
+    }
+
+    @Test
+    void coldEpochIsLoadedOnceFromRepository() {
+        String token = new TokenService(userRepository, KEY_1, 60, clock).issueToken(7L, "mc", 2).token();
+        when(userRepository.findCredentialsEpochById(7L)).thenReturn(2L);
+        TokenService restarted = new TokenService(userRepository, KEY_1, 60, clock);
+
+        assertNotNull(restarted.verify(token));
+        assertNotNull(restarted.verify(token));
+        verify(userRepository, times(1)).findCredentialsEpochById(7L);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advanceSeconds(long seconds) {
+            now = now.plusSeconds(seconds);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
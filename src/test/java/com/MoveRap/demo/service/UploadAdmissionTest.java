@@ -0,0 +1,153 @@
+package com.MoveRap.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadAdmissionTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private UploadAdmission admission;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        admission.shutdown();
+    }
+
+    @Test
+    void writesOnTheIoExecutorAndFreesTheUserSlot() throws Exception {
+        admission = new UploadAdmission(meterRegistry, new BackgroundThreads(false), 2, 1, 4, 10000, 0, 0, 0, 2);
+
+        assertTrue(admission.submit("mc", () -> Thread.currentThread().getName()).get().startsWith("upload-io-"));
+        // O slot do usuário volta ao terminar
+        assertEquals("ok", admission.submit("mc", () -> "ok").get());
+        assertEquals(2, meterRegistry.get("uploads.admission.queue.wait").timer().count());
+    }
+
+    @Test
+    void runsOnVirtualThreadsInVirtualMode() throws Exception {
+        admission = new UploadAdmission(meterRegistry, new BackgroundThreads(true), 2, 1, 4, 10000, 0, 0, 0, 2);
+
+        assertTrue(admission.submit("mc", () -> Thread.currentThread().isVirtual()).get());
+    }
+
+    @Test
+    void limitsConcurrentUploadsPerUser() throws Exception {
+        admission = new UploadAdmission(meterRegistry, new BackgroundThreads(false), 2, 1, 4, 10000, 0, 0, 0, 3);
+        CompletableFuture<String> running = admission.submit("mc", this::blocked);
+
+        UploadRejectedException e = assertThrows(UploadRejectedException.class, () -> admission.submit("mc", () -> "b"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatusCode());
+        assertEquals("3", e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        // Outro usuário não é afetado
+        assertEquals("c", admission.submit("outro", () -> "c").get());
+
+        release.countDown();
+        assertEquals("a", running.get());
+        assertEquals(1, meterRegistry.get("uploads.admission.rejected").tag("reason", "per-user").counter().count());
+    }
+
+    @Test
+    void rejectsImmediatelyWhenQueueIsFull() {
+        admission = new UploadAdmission(meterRegistry, new BackgroundThreads(false), 1, 4, 1, 10000, 0, 0, 0, 2);
+        admission.submit("a", this::blocked);
+        admission.submit("b", () -> "b");
+
+        UploadRejectedException e = assertThrows(UploadRejectedException.class, () -> admission.submit("c", () -> "c"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        assertEquals(1, admission.getQueueDepth());
+        assertEquals(1, meterRegistry.get("uploads.admission.rejected").tag("reason", "queue-full").counter().count());
+    }
+
+    @Test
+    void dropsUploadsThatWaitedTooLong() throws Exception {
+        admission = new UploadAdmission(meterRegistry, new BackgroundThreads(false), 1, 4, 4, 500, 0, 0, 0, 2);
+        CompletableFuture<String> running = admission.submit("a", this::blocked);
+        // O primeiro já saiu da fila: só o segundo espera mais que os 500 ms
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = admission.submit("b", () -> "b");
+
+        Thread.sleep(600);
+        release.countDown();
+
+        assertEquals("a", running.get());
+        ExecutionException e = assertThrows(ExecutionException.class, queued::get);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ((UploadRejectedException) e.getCause()).getStatusCode());
+        assertEquals(1, meterRegistry.get("uploads.admission.rejected").tag("reason", "timeout").counter().count());
+    }
+
+    @Test
+    void shapesBytesPerSecondAfterOneSecondOfBurst() {
+        admission = new UploadAdmission(meterRegistry, new BackgroundThreads(false), 1, 1, 1, 10000, 1_000_000, 0, 0, 2);
+
+        // Bucket parado: um segundo de crédito sai sem espera
+        assertTrue(admission.reserve(1_000_000) <= 0);
+        // Depois disso, cada 500 KB custa meio segundo
+        long wait = admission.reserve(500_000);
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(400) && wait <= TimeUnit.MILLISECONDS.toNanos(500), "espera: " + wait);
+        assertTrue(admission.reserve(500_000) > TimeUnit.MILLISECONDS.toNanos(900));
+    }
+
+    @Test
+    void abortsClientsThatSendBelowTheMinimumRate() throws Exception {
+        admission = new UploadAdmission(meterRegistry, new BackgroundThreads(false), 1, 1, 1, 10000, 0, 1000, 100, 2);
+        // Um byte a cada 20 ms: 50 B/s
+        InputStream trickle = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return 'a';
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                buffer[offset] = (byte) read();
+                return 1;
+            }
+        };
+
+        CompletableFuture<byte[]> upload = admission.submit("mc", () -> admission.throttle(trickle).readNBytes(1000));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> upload.get(5, TimeUnit.SECONDS));
+        assertEquals(HttpStatus.REQUEST_TIMEOUT, ((UploadRejectedException) e.getCause()).getStatusCode());
+        assertEquals(1, meterRegistry.get("uploads.admission.rejected").tag("reason", "slow-client").counter().count());
+        // A vaga do usuário foi liberada
+        assertEquals("ok", admission.submit("mc", () -> "ok").get());
+    }
+
+    @Test
+    void minimumRateIgnoresTheGlobalThrottleWaits() throws Exception {
+        // Limite global de 1 KB/s e mínimo de 900 B/s: só o tempo esperando o cliente conta
+        admission = new UploadAdmission(meterRegistry, new BackgroundThreads(false), 1, 1, 1, 10000, 1000, 900, 100, 2);
+
+        byte[] read = admission.throttle(new ByteArrayInputStream(new byte[2000])).readAllBytes();
+
+        assertEquals(2000, read.length);
+    }
+
+    private String blocked() throws InterruptedException {
+        started.countDown();
+        release.await(5, TimeUnit.SECONDS);
+        return "a";
+    }
+}
@@ -0,0 +1,166 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.repository.UserPageRepository;
+import com.MoveRap.demo.repository.UserPageTrackRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UploadGarbageCollectorTest {
+
+    private static final String KEPT = "a".repeat(64) + ".png";
+    private static final String ORPHAN = "b".repeat(64) + ".jpg";
+    private static final String FRESH = "c".repeat(64) + ".png";
+    private static final String SAVED_LATER = "d".repeat(64) + ".png";
+    private static final String TRACK = "e".repeat(64) + ".mp3";
+    private static final String LEGACY = "3f2a9c1e-7b4d-4e2a-9c1e-7b4d4e2a9c1e.png";
+
+    @TempDir
+    Path uploadDir;
+
+    private UploadDirectory uploadDirectory;
+    private UserPageRepository userPageRepository;
+    private UserPageTrackRepository trackRepository;
+    private ImageDerivativeService derivativeService;
+    private AudioUploadService audioUploadService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        uploadDirectory = new UploadDirectory(uploadDir.toString());
+        userPageRepository = mock(UserPageRepository.class);
+        trackRepository = mock(UserPageTrackRepository.class);
+        derivativeService = mock(ImageDerivativeService.class);
+        audioUploadService = mock(AudioUploadService.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        // Duas páginas por lote: a marcação precisa seguir o cursor até o fim
+        when(userPageRepository.findImageReferences(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                page(1L, "http://localhost:8080/uploads/" + KEPT, null),
+                page(2L, null, "/uploads/" + LEGACY + "?size=1024")));
+        when(userPageRepository.findImageReferences(eq(2L), any(Pageable.class))).thenReturn(List.of());
+        when(userPageRepository.countImageReferences(anyString())).thenReturn(0L);
+        when(userPageRepository.countImageReferences("%/uploads/" + "d".repeat(64) + "%")).thenReturn(1L);
+        when(trackRepository.findUploadReferences(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                track(7L, "http://localhost:8080/uploads/" + TRACK)));
+
+        old(write(uploadDirectory.prepare(KEPT), 10));
+        old(write(uploadDirectory.prepare(ImageDerivativeService.variantName(KEPT, 256, ".png")), 5));
+        old(write(uploadDirectory.prepare(ORPHAN), 100));
+        old(write(uploadDirectory.prepare(ImageDerivativeService.variantName(ORPHAN, 64, ".jpg")), 7));
+        write(uploadDirectory.prepare(FRESH), 20);
+        old(write(uploadDirectory.prepare(SAVED_LATER), 30));
+        // Upload antigo ainda na raiz plana, referenciado por URL com ?size=
+        old(write(uploadDirectory.legacyPathFor(LEGACY), 40));
+        old(write(uploadDirectory.prepare(TRACK), 60));
+        old(write(uploadDirectory.tempDir().resolve("upload1.tmp"), 50));
+        // Sessão de upload de áudio em andamento: fica com o AudioUploadService
+        Path session = Files.createDirectories(uploadDirectory.tempDir().resolve("audio").resolve("sessao"));
+        old(write(session.resolve("data.part"), 70));
+    }
+
+    @Test
+    void removesOnlyOldUnreferencedFiles() {
+        UploadGarbageCollector.Result result = collector(false).collect();
+
+        assertEquals(9, result.scanned());
+        assertEquals(3, result.removed());
+        assertEquals(157, result.reclaimedBytes());
+        assertFalse(Files.exists(uploadDirectory.pathFor(ORPHAN)));
+        assertFalse(Files.exists(uploadDirectory.pathFor(ImageDerivativeService.variantName(ORPHAN, 64, ".jpg"))));
+        assertFalse(Files.exists(uploadDir.resolve(".tmp").resolve("upload1.tmp")));
+        assertTrue(Files.exists(uploadDirectory.pathFor(KEPT)));
+        assertTrue(Files.exists(uploadDirectory.pathFor(ImageDerivativeService.variantName(KEPT, 256, ".png"))));
+        assertTrue(Files.exists(uploadDirectory.pathFor(FRESH)));
+        assertTrue(Files.exists(uploadDirectory.pathFor(SAVED_LATER)));
+        assertTrue(uploadDirectory.find(LEGACY).isPresent());
+        assertTrue(Files.exists(uploadDirectory.pathFor(TRACK)));
+        assertTrue(Files.exists(uploadDir.resolve(".tmp").resolve("audio").resolve("sessao").resolve("data.part")));
+        verify(derivativeService).forget(ORPHAN);
+        verify(audioUploadService).purgeExpired();
+        assertEquals(157, meterRegistry.get("uploads.gc.reclaimed").tag("dry.run", "false").counter().count());
+    }
+
+    @Test
+    void dryRunOnlyReports() {
+        UploadGarbageCollector.Result result = collector(true).collect();
+
+        assertEquals(3, result.removed());
+        assertEquals(157, result.reclaimedBytes());
+        assertTrue(Files.exists(uploadDirectory.pathFor(ORPHAN)));
+        assertTrue(Files.exists(uploadDir.resolve(".tmp").resolve("upload1.tmp")));
+        verifyNoInteractions(derivativeService);
+        assertEquals(3, meterRegistry.get("uploads.gc.removed").tag("dry.run", "true").counter().count());
+    }
+
+    @Test
+    void keepsAFileReuploadedWhileTheSweepChecksTheDatabase() {
+        // O mesmo conteúdo é reenviado entre a leitura do mtime e a remoção
+        when(userPageRepository.countImageReferences("%/uploads/" + "b".repeat(64) + "%")).thenAnswer(invocation -> {
+            Path temp = write(uploadDirectory.tempDir().resolve("reenvio"), 100);
+            new LocalBlobStorage(uploadDirectory).put(ORPHAN, temp, "image/jpeg");
+            return 0L;
+        });
+
+        collector(false).collect();
+
+        assertTrue(Files.exists(uploadDirectory.pathFor(ORPHAN)));
+        verify(derivativeService, never()).forget(ORPHAN);
+    }
+
+    private UploadGarbageCollector collector(boolean dryRun) {
+        return new UploadGarbageCollector(uploadDirectory, userPageRepository, trackRepository, derivativeService,
+                audioUploadService, new BackgroundThreads(false), meterRegistry,
+                false, dryRun, 24, 6, 2, 0);
+    }
+
+    private static UserPageRepository.ImageReferences page(Long id, String profileImageUrl, String backgroundImageUrl) {
+        return new UserPageRepository.ImageReferences() {
+            public Long getId() {
+                return id;
+            }
+
+            public String getProfileImageUrl() {
+                return profileImageUrl;
+            }
+
+            public String getBackgroundImageUrl() {
+                return backgroundImageUrl;
+            }
+        };
+    }
+
+    private static UserPageTrackRepository.UploadReference track(Long id, String url) {
+        return new UserPageTrackRepository.UploadReference() {
+            public Long getId() {
+                return id;
+            }
+
+            public String getUrl() {
+                return url;
+            }
+        };
+    }
+
+    private static Path write(Path path, int size) throws IOException {
+        return Files.write(path, new byte[size]);
+    }
+
+    private static void old(Path path) throws IOException {
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+    }
+}
@@ -0,0 +1,79 @@
+package com.MoveRap.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadShardMigratorTest {
+
+    private static final String LEGACY = "3f2a9c1e-7b4d-4e2a-9c1e-7b4d4e2a9c1e.png";
+
+    @TempDir
+    Path uploadDir;
+
+    private UploadDirectory uploadDirectory;
+    private UploadShardMigrator migrator;
+
+    @BeforeEach
+    void setUp() {
+        uploadDirectory = new UploadDirectory(uploadDir.toString());
+        migrator = new UploadShardMigrator(uploadDirectory, new BackgroundThreads(false), false, 2, 0);
+    }
+
+    @Test
+    void shardsByTheLeadingHexOfTheName() {
+        assertEquals(uploadDir.resolve("3f").resolve("2a").resolve(LEGACY), uploadDirectory.pathFor(LEGACY));
+        // Variante no mesmo diretório do original
+        assertEquals(uploadDirectory.pathFor(LEGACY).getParent(),
+                uploadDirectory.pathFor(ImageDerivativeService.variantName(LEGACY, 256, ".jpg")).getParent());
+        assertEquals(4, UploadDirectory.shard("foto antiga.png").length());
+    }
+
+    @Test
+    void movesFlatFilesWhileOldNamesKeepResolving() throws IOException {
+        Files.write(uploadDir.resolve(LEGACY), new byte[] {1, 2, 3});
+        Files.write(uploadDir.resolve("3f2a9c1e-7b4d-4e2a-9c1e-7b4d4e2a9c1e-256.jpg"), new byte[] {4});
+        Files.write(uploadDir.resolve("nome-qualquer.gif"), new byte[] {5});
+        Files.createDirectories(uploadDir.resolve(".tmp"));
+        Files.write(uploadDir.resolve(".tmp").resolve("upload1.tmp"), new byte[] {6});
+
+        // Antes da migração, o nome antigo é achado na raiz
+        assertEquals(uploadDir.resolve(LEGACY), uploadDirectory.find(LEGACY).orElseThrow());
+
+        assertEquals(3, migrator.migrateAll());
+
+        assertFalse(Files.exists(uploadDir.resolve(LEGACY)));
+        assertArrayEquals(new byte[] {1, 2, 3}, Files.readAllBytes(uploadDirectory.find(LEGACY).orElseThrow()));
+        assertEquals(uploadDirectory.pathFor(LEGACY), uploadDirectory.find(LEGACY).orElseThrow());
+        assertTrue(uploadDirectory.find("nome-qualquer.gif").isPresent());
+        assertTrue(Files.exists(uploadDir.resolve(".tmp").resolve("upload1.tmp")));
+        // Segunda execução não tem o que mover
+        assertEquals(0, migrator.migrateAll());
+    }
+
+    @Test
+    void dropsTheFlatCopyWhenTheShardAlreadyHasIt() throws IOException {
+        Files.write(uploadDirectory.prepare(LEGACY), new byte[] {1});
+        Files.write(uploadDir.resolve(LEGACY), new byte[] {1});
+
+        assertEquals(0, migrator.migrateAll());
+
+        assertFalse(Files.exists(uploadDir.resolve(LEGACY)));
+        assertTrue(Files.exists(uploadDirectory.pathFor(LEGACY)));
+    }
+
+    @Test
+    void deleteRemovesEitherLocation() throws IOException {
+        Files.write(uploadDir.resolve(LEGACY), new byte[] {1});
+
+        assertTrue(uploadDirectory.delete(LEGACY));
+        assertFalse(uploadDirectory.delete(LEGACY));
+        assertTrue(uploadDirectory.find(LEGACY).isEmpty());
+    }
+}
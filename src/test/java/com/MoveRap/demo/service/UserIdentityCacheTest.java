@@ -0,0 +1,93 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.Dtos.UserIdentityDto;
+import com.MoveRap.demo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserIdentityCacheTest {
+
+    private static final UserIdentityDto MC = new UserIdentityDto(1L, "mc", "mc@rap.com", "$2a$10$hash", 0);
+
+    private UserRepository userRepository;
+    private UserIdentityCache cache;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        cache = new UserIdentityCache(userRepository, new SimpleMeterRegistry(), 100, 300);
+    }
+
+    @Test
+    void loginMissCostsOneQueryAndRepeatedLookupsHitCache() {
+        when(userRepository.findIdentitiesByEmailOrUsername("mc@rap.com")).thenReturn(List.of(MC));
+
+        assertEquals(MC, cache.findByLogin("mc@rap.com"));
+        assertEquals(MC, cache.findByLogin("mc@rap.com"));
+        assertEquals(MC, cache.findByUsername("mc"));
+
+        verify(userRepository, times(1)).findIdentitiesByEmailOrUsername("mc@rap.com");
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    void emailMatchTakesPrecedenceOverUsername() {
+        UserIdentityDto other = new UserIdentityDto(2L, "mc@rap.com", "outro@rap.com", "$2a$10$x", 0);
+        when(userRepository.findIdentitiesByEmailOrUsername("mc@rap.com")).thenReturn(List.of(other, MC));
+
+        assertEquals(MC, cache.findByLogin("mc@rap.com"));
+    }
+
+    @Test
+    void invalidateForcesReload() {
+        when(userRepository.findIdentityByUsername("mc")).thenReturn(MC);
+
+        cache.findByUsername("mc");
+        cache.invalidate("mc", "mc@rap.com");
+        cache.findByUsername("mc");
+
+        verify(userRepository, times(2)).findIdentityByUsername("mc");
+    }
+
+    @Test
+    void aLoadRacingAnInvalidationDoesNotCacheTheOldHash() throws Exception {
+        UserIdentityDto changed = new UserIdentityDto(1L, "mc", "mc@rap.com", "$2a$10$nova", 1);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findIdentitiesByEmailOrUsername("mc@rap.com")).thenAnswer(invocation -> {
+            // A consulta lê o hash antigo; a troca de senha confirma e invalida antes do put
+            reading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(MC);
+        });
+        when(userRepository.findIdentityByUsername("mc")).thenReturn(changed);
+
+        Thread login = Thread.ofPlatform().start(() -> cache.findByLogin("mc@rap.com"));
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        Thread passwordChange = Thread.ofPlatform().start(() -> cache.invalidate("mc", "mc@rap.com"));
+        Thread.sleep(200);
+        release.countDown();
+        login.join();
+        passwordChange.join();
+
+        assertEquals(changed, cache.findByUsername("mc"));
+        when(userRepository.findIdentitiesByEmailOrUsername("mc@rap.com")).thenReturn(List.of(changed));
+        assertEquals(changed, cache.findByLogin("mc@rap.com"));
+    }
+
+    @Test
+    void unknownUsersAreNotCached() {
+        assertNull(cache.findByLogin("ninguem"));
+        assertNull(cache.findByLogin("ninguem"));
+
+        verify(userRepository, times(2)).findIdentitiesByEmailOrUsername("ninguem");
+    }
+}
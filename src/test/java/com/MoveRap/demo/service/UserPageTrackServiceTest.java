@@ -0,0 +1,174 @@
+package com.MoveRap.demo.service;
+
+import com.MoveRap.demo.model.UserModel;
+import com.MoveRap.demo.model.UserPage;
+import com.MoveRap.demo.model.UserPageTrack;
+import com.MoveRap.demo.repository.UserPageRepository;
+import com.MoveRap.demo.repository.UserPageTrackRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UserPageTrackService.class, MusicUrlsMigrator.class, BackgroundThreads.class})
+class UserPageTrackServiceTest {
+
+    @Autowired
+    private UserPageTrackService trackService;
+    @Autowired
+    private MusicUrlsMigrator migrator;
+    @Autowired
+    private UserPageRepository userPageRepository;
+    @Autowired
+    private UserPageTrackRepository trackRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long userId;
+    private Long pageId;
+
+    @BeforeEach
+    void setUp() {
+        UserModel user = new UserModel(null, "mc", "mc@rap.com", "$2a$10$hash");
+        entityManager.persist(user);
+        UserPage page = new UserPage();
+        page.setUser(user);
+        entityManager.persist(page);
+        trackService.replaceTracks(page, List.of("a", "b", "c"));
+        entityManager.flush();
+        entityManager.clear();
+        userId = user.getId();
+        pageId = page.getId();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void appendInsertsOneRowWithoutRewritingOthers() {
+        trackService.append(userId, "d");
+        entityManager.flush();
+
+        assertEquals(1, statistics.getEntityInsertCount());
+        // Só a página (versão/updated_at) é atualizada; nenhuma faixa existente é regravada
+        assertEquals(1, statistics.getEntityUpdateCount());
+        assertEquals(List.of("a", "b", "c", "d"), urls());
+    }
+
+    @Test
+    void removeDeletesOneRow() {
+        trackService.remove(userId, 1);
+        entityManager.flush();
+
+        assertEquals(1, statistics.getEntityDeleteCount());
+        assertEquals(List.of("a", "c"), urls());
+    }
+
+    @Test
+    void moveUpdatesOnlyTheMovedTrack() {
+        trackService.move(userId, 2, 0);
+        entityManager.flush();
+
+        // Faixa movida + página
+        assertEquals(2, statistics.getEntityUpdateCount());
+        assertEquals(List.of("c", "a", "b"), urls());
+
+        trackService.move(userId, 0, 2);
+        entityManager.flush();
+        assertEquals(List.of("a", "b", "c"), urls());
+    }
+
+    @Test
+    void moveRenumbersWhenGapIsExhausted() {
+        for (int i = 0; i < 20; i++) {
+            trackService.move(userId, 2, 1);
+            entityManager.flush();
+        }
+
+        assertEquals(List.of("a", "b", "c"), urls());
+        List<UserPageTrack> tracks = trackRepository.findByPage_IdOrderByPositionAsc(pageId);
+        assertTrue(tracks.get(1).getPosition() - tracks.get(0).getPosition() >= 1);
+    }
+
+    @Test
+    void replaceIfChangedSkipsIdenticalList() {
+        UserPage page = userPageRepository.findById(pageId).orElseThrow();
+        statistics.clear();
+
+        assertFalse(trackService.replaceTracksIfChanged(page, List.of("a", "b", "c")));
+        entityManager.flush();
+
+        assertEquals(0, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityUpdateCount());
+        assertEquals(0, statistics.getEntityDeleteCount());
+
+        assertTrue(trackService.replaceTracksIfChanged(page, List.of("c")));
+        entityManager.flush();
+        assertEquals(List.of("c"), urls());
+    }
+
+    @Test
+    void invalidIndexIsNotFound() {
+        assertThrows(ResponseStatusException.class, () -> trackService.remove(userId, 3));
+        assertThrows(ResponseStatusException.class, () -> trackService.move(userId, 0, 5));
+    }
+
+    @Test
+    void trackChangesBumpPageVersion() {
+        long before = userPageRepository.findById(pageId).orElseThrow().getVersion();
+        entityManager.clear();
+
+        trackService.append(userId, "d");
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(before + 1, userPageRepository.findById(pageId).orElseThrow().getVersion());
+    }
+
+    @Test
+    void migratorMovesLegacyColumnIntoTracks() {
+        UserModel user = new UserModel(null, "legado", "legado@rap.com", "$2a$10$hash");
+        entityManager.persist(user);
+        UserPage legacy = new UserPage();
+        legacy.setUser(user);
+        legacy.setMusicUrls("x,https://a.com/?q=1,y");
+        entityManager.persist(legacy);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(List.of("x", "https://a.com/?q=1", "y"),
+                userPageRepository.findViewByUsername("legado").orElseThrow().musicUrlsList());
+
+        assertEquals(1, migrator.migrateAll());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertNull(userPageRepository.findById(legacy.getId()).orElseThrow().getMusicUrls());
+        assertEquals(List.of("x", "https://a.com/?q=1", "y"),
+                userPageRepository.findViewByUsername("legado").orElseThrow().musicUrlsList());
+        assertEquals(0, migrator.migrateAll());
+    }
+
+    private List<String> urls() {
+        entityManager.clear();
+        return userPageRepository.findViewByUsername("mc").orElseThrow().musicUrlsList();
+    }
+}